@@ -2,8 +2,16 @@ package org.togetherjava.event.elevator;
 
 import org.togetherjava.event.elevator.elevators.Elevator;
 import org.togetherjava.event.elevator.humans.Human;
+import org.togetherjava.event.elevator.regression.ScenarioCatalog;
+import org.togetherjava.event.elevator.scenarios.ScenarioFile;
+import org.togetherjava.event.elevator.scenarios.ScenarioGenerator;
+import org.togetherjava.event.elevator.scenarios.TrafficProfile;
+import org.togetherjava.event.elevator.scenarios.TrafficWorkload;
+import org.togetherjava.event.elevator.simulation.ProgressWatchdog;
 import org.togetherjava.event.elevator.simulation.Simulation;
 
+import java.nio.file.Path;
+
 public final class Main {
     /**
      * Starts the application.
@@ -31,6 +39,14 @@ public final class Main {
         //Simulation simulation = Simulation.createRandomSimulation(2, 20, 1_000, 50);
         Simulation simulation = Simulation.createRandomSimulation(3, 100, 100_000, 100);
         //Simulation simulation = Simulation.createRandomSimulation(4637787693156730566L, 20, 5_000, 100);
+        //Simulation simulation = ScenarioFile.read(Path.of("scenario.bin"));
+        //Simulation simulation = new ScenarioGenerator(3, 100, 100_000, 100).createSimulation();
+        //Simulation simulation = TrafficWorkload.createSimulation(3, 10, 50, TrafficProfile.officeDay(500, 2));
+        //Simulation simulation = ScenarioCatalog.get("many-elevators-5k").createSimulation();
+        // To compare the performance of all catalog scenarios against a recorded baseline, run RegressionSuite instead.
+        // Repeated runs of the same scenario can be answered from disk by a ResultCache instead of simulating again.
+        // To plot queues and elevator positions over time, sample the steps with a TimeSeriesExporter.
+        //simulation.getElevatorSystem().setMaxHallCallWait(60);
         simulation.printSummary();
 
         System.out.println("Starting simulation...");
@@ -38,9 +54,12 @@ public final class Main {
         simulation.prettyPrint();
 
         var before = System.currentTimeMillis();
+        // Aborts with a dump of the stuck humans and elevators long before the step limit, if humans got stranded
+        ProgressWatchdog watchdog = new ProgressWatchdog(simulation);
         while (!simulation.isDone()) {
             //System.out.println("\tSimulation step " + simulation.getStepCount());
             simulation.step();
+            watchdog.check();
             if (simulation.getStepCount() == 20000) {
                 System.out.println();
             }
@@ -0,0 +1,101 @@
+package org.togetherjava.event.elevator.elevators;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Online model of where hall calls are to be expected, learned from the hall calls received so far.
+ * <p>
+ * Every hall call adds heat to its floor and direction. Heat decays exponentially over time,
+ * so recent calls weigh more than old ones and the model follows changing traffic patterns.
+ * Decay is applied lazily, only floors that are recorded or queried cost any time.
+ */
+final class DemandModel {
+    private static final int DIRECTIONS = TravelDirection.values().length;
+
+    private final double decayPerStep;
+    /**
+     * Heat per floor and direction at the time of its last update, indexed by {@link #index(int, TravelDirection)}.
+     */
+    private double[] heat = new double[0];
+    private long[] lastUpdateStep = new long[0];
+
+    /**
+     * Creates an empty model.
+     *
+     * @param halfLifeSteps after how many steps the heat of a hall call has decayed to half of its initial value
+     */
+    DemandModel(double halfLifeSteps) {
+        if (halfLifeSteps <= 0) {
+            throw new IllegalArgumentException("Half-life must be positive.");
+        }
+        decayPerStep = Math.pow(0.5, 1 / halfLifeSteps);
+    }
+
+    synchronized void recordHallCall(int floor, TravelDirection direction, long step) {
+        int index = index(floor, direction);
+        ensureCapacity(index);
+        heat[index] = decayed(index, step) + 1;
+        lastUpdateStep[index] = step;
+    }
+
+    /**
+     * The predicted demand for hall calls at the given floor, in both directions.
+     *
+     * @param floor the floor to predict for
+     * @param step  the current step
+     * @return the decayed amount of hall calls at that floor, 0 if there were none
+     */
+    synchronized double predictedDemand(int floor, long step) {
+        return predictedDemand(floor, TravelDirection.UP, step) + predictedDemand(floor, TravelDirection.DOWN, step);
+    }
+
+    synchronized double predictedDemand(int floor, TravelDirection direction, long step) {
+        int index = index(floor, direction);
+        return index < heat.length ? decayed(index, step) : 0;
+    }
+
+    synchronized int stateBytes() {
+        return Integer.BYTES + heat.length * (Double.BYTES + Long.BYTES);
+    }
+
+    synchronized void writeState(ByteBuffer buffer) {
+        buffer.putInt(heat.length);
+        for (int i = 0; i < heat.length; i++) {
+            buffer.putDouble(heat[i]).putLong(lastUpdateStep[i]);
+        }
+    }
+
+    synchronized void readState(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining() / (Double.BYTES + Long.BYTES)) {
+            throw new IllegalArgumentException("Corrupt demand model state, invalid length " + length);
+        }
+        heat = new double[length];
+        lastUpdateStep = new long[length];
+        for (int i = 0; i < length; i++) {
+            heat[i] = buffer.getDouble();
+            lastUpdateStep[i] = buffer.getLong();
+        }
+    }
+
+    private double decayed(int index, long step) {
+        if (heat[index] == 0) {
+            return 0;
+        }
+        return heat[index] * Math.pow(decayPerStep, step - lastUpdateStep[index]);
+    }
+
+    private void ensureCapacity(int index) {
+        if (index < heat.length) {
+            return;
+        }
+        int capacity = Math.max(index + 1, heat.length * 2);
+        heat = Arrays.copyOf(heat, capacity);
+        lastUpdateStep = Arrays.copyOf(lastUpdateStep, capacity);
+    }
+
+    private static int index(int floor, TravelDirection direction) {
+        return (floor - 1) * DIRECTIONS + direction.ordinal();
+    }
+}
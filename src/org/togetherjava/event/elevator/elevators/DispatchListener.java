@@ -0,0 +1,15 @@
+package org.togetherjava.event.elevator.elevators;
+
+/**
+ * Listener to decisions of the {@link ElevatorSystem}, fired whenever an elevator was sent to pick up a human.
+ */
+@FunctionalInterface
+public interface DispatchListener {
+    /**
+     * Fired when an elevator was requested to move to the given floor for picking up a human.
+     *
+     * @param elevator the elevator that was dispatched
+     * @param atFloor  the floor the elevator was dispatched to
+     */
+    void onElevatorDispatched(Elevator elevator, int atFloor);
+}
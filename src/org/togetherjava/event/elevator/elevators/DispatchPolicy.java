@@ -0,0 +1,18 @@
+package org.togetherjava.event.elevator.elevators;
+
+/**
+ * Strategy deciding which elevator the {@link ElevatorSystem} sends to a hall call,
+ * replacing the default of sending the nearest one, see {@link ElevatorSystem#setDispatchPolicy(DispatchPolicy)}.
+ */
+@FunctionalInterface
+public interface DispatchPolicy {
+    /**
+     * Chooses the elevator to pick up a human. Called before the hall call is added to the system.
+     *
+     * @param system                 the system that received the hall call
+     * @param atFloor                the floor to pick up the human at
+     * @param desiredTravelDirection the direction the human wants to travel into
+     * @return the elevator to send, one of the elevators registered at the system
+     */
+    Elevator selectElevator(ElevatorSystem system, int atFloor, TravelDirection desiredTravelDirection);
+}
@@ -1,5 +1,6 @@
 package org.togetherjava.event.elevator.elevators;
 
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -8,19 +9,83 @@ import java.util.concurrent.atomic.AtomicInteger;
  * <p>
  * An elevator can take floor requests from either humans or the elevator system itself.
  * The elevator will eventually move towards the requested floor and transport humans to their destinations.
+ * <p>
+ * Elevators belong to the thread moving their system. Requests are only synchronized because humans may be notified
+ * in parallel, which never happens while elevators move. Other threads have to hand their requests to the moving
+ * thread, for example through the inbox of the simulation.
  */
 public final class Elevator implements ElevatorPanel {
     private static final AtomicInteger NEXT_ID = new AtomicInteger(0);
+    static final int NO_FLOOR = 0;
 
     private final int id;
     private final int minFloor;
     private final int floorsServed;
     private int currentFloor;
+    /**
+     * The system this elevator is registered at, if any. It is notified once the elevator has work to do.
+     */
+    private ElevatorSystem elevatorSystem;
+    /**
+     * The position of this elevator in the fleet state of its system.
+     */
+    private int fleetIndex;
+    /**
+     * The floor the elevator is stationed at by the system while it has no requests, or {@link #NO_FLOOR}.
+     * The elevator moves there if it is not there yet.
+     */
+    private int parkingFloor = NO_FLOOR;
 
-    private final List<Integer> floorRequests = new ArrayList<>();
+    /**
+     * Requested floors in the order they were requested, only the first {@link #floorRequestCount} are used.
+     * Kept as primitives, so that moving the elevator does not allocate.
+     */
+    private int[] floorRequests = new int[4];
+    private int floorRequestCount;
+    /**
+     * For each floor request, whether a human inside the elevator wants to go there. Otherwise, the request is a
+     * hall call of the system, which may be withdrawn again.
+     */
+    private boolean[] carCalls = new boolean[4];
+    /**
+     * The first requests are urgent hall calls the system prioritized, see {@link #prioritize(int)},
+     * served before all others in the order they were prioritized.
+     */
+    private int urgentRequestCount;
+    /**
+     * Requests received while the system notifies its listeners about this elevator.
+     * They are added to the floor requests afterwards, in an order that does not depend on thread scheduling.
+     */
+    private int[] batchedRequests = new int[4];
+    private int batchedRequestCount;
+    private boolean batchingRequests;
+    /**
+     * Whether the system currently moves this elevator, guarded by the system.
+     */
+    private boolean active;
+    /**
+     * Steps moved since the elevator last reached a requested floor or received its first request.
+     * The first request is reached in fewer steps than the elevator serves floors, unless the elevator is stuck.
+     */
+    private int stepsWithoutReachingRequest;
 
-    public List<Integer> getFloorRequests() {
-        return Collections.unmodifiableList(floorRequests);
+    /**
+     * The floors requested so far that the elevator did not reach yet, in the order they were requested.
+     *
+     * @return a snapshot of the requests
+     */
+    public synchronized List<Integer> getFloorRequests() {
+        return Arrays.stream(floorRequests, 0, floorRequestCount).boxed().toList();
+    }
+
+    /**
+     * The amount of floors requested that the elevator did not reach yet. Unlike {@link #getFloorRequests()},
+     * this does not allocate.
+     *
+     * @return the amount of pending floor requests
+     */
+    public synchronized int getFloorRequestCount() {
+        return floorRequestCount;
     }
 
     /**
@@ -62,6 +127,22 @@ public final class Elevator implements ElevatorPanel {
         return minFloor + floorsServed - 1;
     }
 
+    @Override
+    public boolean serves(int floor) {
+        return floor >= minFloor && floor < minFloor + floorsServed;
+    }
+
+    /**
+     * The amount of steps this elevator moved without reaching any of its requested floors,
+     * since it reached one last or received its first request. Elevators that serve their requests in order
+     * reach the first one in fewer steps than they serve floors.
+     *
+     * @return the steps without reaching a requested floor
+     */
+    public synchronized int getStepsWithoutReachingRequest() {
+        return stepsWithoutReachingRequest;
+    }
+
     @Override
     public int getCurrentFloor() {
         return currentFloor;
@@ -73,10 +154,241 @@ public final class Elevator implements ElevatorPanel {
         //  itself requesting this elevator to eventually move to the given floor.
         //  The elevator is supposed to memorize the destination in a way that
         //  it can ensure to eventually reach it.
-        if (floorRequests.contains(destinationFloor)) {
+        if (batchingRequests) {
+            if (indexOf(batchedRequests, batchedRequestCount, destinationFloor) == -1) {
+                batchedRequests = append(batchedRequests, batchedRequestCount++, destinationFloor);
+            }
             return;
         }
-        floorRequests.add(destinationFloor);
+        addRequest(destinationFloor, true);
+    }
+
+    /**
+     * Requests this elevator to pick up humans waiting at the given floor. Unlike requests of humans inside the
+     * elevator, the system may withdraw it again via {@link #withdrawHallCall(int)}.
+     *
+     * @param floor the floor to move to
+     */
+    synchronized void requestHallCall(int floor) {
+        addRequest(floor, false);
+    }
+
+    private void addRequest(int floor, boolean carCall) {
+        int index = indexOf(floorRequests, floorRequestCount, floor);
+        if (index != -1) {
+            carCalls[index] |= carCall;
+            return;
+        }
+        if (floorRequestCount == 0) {
+            stepsWithoutReachingRequest = 0;
+            if (elevatorSystem != null) {
+                elevatorSystem.activate(this);
+            }
+        }
+        parkingFloor = NO_FLOOR;
+        if (floorRequestCount == carCalls.length) {
+            carCalls = Arrays.copyOf(carCalls, 2 * carCalls.length);
+        }
+        carCalls[floorRequestCount] = carCall;
+        floorRequests = append(floorRequests, floorRequestCount++, floor);
+        updateFleetState();
+    }
+
+    /**
+     * Removes the request for the given floor, unless a human inside the elevator wants to go there.
+     *
+     * @param floor the floor of the hall call
+     */
+    synchronized void withdrawHallCall(int floor) {
+        int index = indexOf(floorRequests, floorRequestCount, floor);
+        if (index != -1 && !carCalls[index]) {
+            removeRequest(index);
+        }
+    }
+
+    /**
+     * Serves the hall call of the given floor before all requests that are not urgent, requesting it if needed.
+     * Urgent hall calls are served in the order they were prioritized.
+     *
+     * @param floor the floor of the hall call
+     */
+    synchronized void prioritize(int floor) {
+        int index = indexOf(floorRequests, floorRequestCount, floor);
+        if (index == -1) {
+            addRequest(floor, false);
+            index = floorRequestCount - 1;
+        }
+        if (index < urgentRequestCount) {
+            return;
+        }
+        boolean carCall = carCalls[index];
+        System.arraycopy(floorRequests, urgentRequestCount, floorRequests, urgentRequestCount + 1,
+                index - urgentRequestCount);
+        System.arraycopy(carCalls, urgentRequestCount, carCalls, urgentRequestCount + 1, index - urgentRequestCount);
+        floorRequests[urgentRequestCount] = floor;
+        carCalls[urgentRequestCount] = carCall;
+        if (urgentRequestCount == 0) {
+            // Heading somewhere else now, so the way to the previous first request does not count
+            stepsWithoutReachingRequest = 0;
+        }
+        urgentRequestCount++;
+    }
+
+    /**
+     * The amount of steps until this elevator will have passed the given floor, if it serves its current requests
+     * in order and the floor is added as last request otherwise.
+     *
+     * @param floor the floor to reach
+     * @return the estimated amount of steps
+     */
+    synchronized int stepsToReach(int floor) {
+        return stepsToReach(floor, floorRequestCount);
+    }
+
+    /**
+     * The amount of steps until this elevator will have passed the given floor, if it was prioritized now,
+     * see {@link #prioritize(int)}.
+     *
+     * @param floor the floor to reach
+     * @return the estimated amount of steps
+     */
+    synchronized int stepsToReachUrgently(int floor) {
+        return stepsToReach(floor, urgentRequestCount);
+    }
+
+    /**
+     * The amount of steps until this elevator will have passed the given floor, if it serves the given amount of
+     * its first requests in order and the floor afterwards.
+     */
+    private int stepsToReach(int floor, int requestsBefore) {
+        int position = currentFloor;
+        // Floors passed on the way are served, so the floors visited always form a single range
+        int lowestVisited = position;
+        int highestVisited = position;
+        int steps = 0;
+        for (int i = 0; i < requestsBefore; i++) {
+            int target = floorRequests[i];
+            if (target >= lowestVisited && target <= highestVisited) {
+                continue;
+            }
+            if (floor >= Math.min(position, target) && floor <= Math.max(position, target)) {
+                return steps + Math.abs(floor - position);
+            }
+            steps += Math.abs(target - position);
+            position = target;
+            lowestVisited = Math.min(lowestVisited, position);
+            highestVisited = Math.max(highestVisited, position);
+        }
+        return steps + Math.abs(floor - position);
+    }
+
+    synchronized void beginRequestBatch() {
+        batchingRequests = true;
+    }
+
+    /**
+     * Adds all requests received since {@link #beginRequestBatch()}, nearest floors first.
+     */
+    synchronized void commitRequestBatch() {
+        batchingRequests = false;
+        // Insertion sort, the batch is small and sorting must not allocate
+        for (int i = 1; i < batchedRequestCount; i++) {
+            int floor = batchedRequests[i];
+            int j = i - 1;
+            while (j >= 0 && isNearer(floor, batchedRequests[j])) {
+                batchedRequests[j + 1] = batchedRequests[j];
+                j--;
+            }
+            batchedRequests[j + 1] = floor;
+        }
+        int batchSize = batchedRequestCount;
+        batchedRequestCount = 0;
+        for (int i = 0; i < batchSize; i++) {
+            requestDestinationFloor(batchedRequests[i]);
+        }
+    }
+
+    private boolean isNearer(int floor, int otherFloor) {
+        int distance = Math.abs(floor - currentFloor);
+        int otherDistance = Math.abs(otherFloor - currentFloor);
+        return distance < otherDistance || (distance == otherDistance && floor < otherFloor);
+    }
+
+    /**
+     * Stations this elevator at the given floor until it receives its next request.
+     *
+     * @param floor the floor to move to while idle
+     */
+    synchronized void park(int floor) {
+        parkingFloor = floor;
+    }
+
+    int getParkingFloor() {
+        return parkingFloor;
+    }
+
+    /**
+     * Whether the elevator has a reason to move, either requests or a parking floor it did not reach yet.
+     *
+     * @return {@code true} if the elevator is busy, {@code false} if it is idle
+     */
+    synchronized boolean hasPendingWork() {
+        return floorRequestCount > 0 || (parkingFloor != NO_FLOOR && parkingFloor != currentFloor);
+    }
+
+    synchronized void setElevatorSystem(ElevatorSystem elevatorSystem, int fleetIndex) {
+        this.elevatorSystem = elevatorSystem;
+        this.fleetIndex = fleetIndex;
+        updateFleetState();
+        if (floorRequestCount > 0) {
+            elevatorSystem.activate(this);
+        }
+    }
+
+    boolean isActive() {
+        return active;
+    }
+
+    void setActive(boolean active) {
+        this.active = active;
+    }
+
+    synchronized int stateBytes() {
+        return 3 * Integer.BYTES + floorRequestCount * Integer.BYTES;
+    }
+
+    /**
+     * Writes the parking floor and the floor requests, the current floor is part of the elevator definition.
+     * Hall calls are stored as negative floors.
+     */
+    synchronized void writeState(ByteBuffer buffer) {
+        buffer.putInt(parkingFloor).putInt(floorRequestCount).putInt(urgentRequestCount);
+        for (int i = 0; i < floorRequestCount; i++) {
+            buffer.putInt(carCalls[i] ? floorRequests[i] : -floorRequests[i]);
+        }
+    }
+
+    synchronized void readState(ByteBuffer buffer) {
+        int restoredParkingFloor = buffer.getInt();
+        int restoredRequestCount = buffer.getInt();
+        int restoredUrgentRequestCount = buffer.getInt();
+        if (restoredRequestCount < 0 || restoredRequestCount > buffer.remaining() / Integer.BYTES) {
+            throw new IllegalArgumentException("Corrupt elevator state, invalid request count " + restoredRequestCount);
+        }
+        if (restoredUrgentRequestCount < 0 || restoredUrgentRequestCount > restoredRequestCount) {
+            throw new IllegalArgumentException("Corrupt elevator state, invalid urgent request count "
+                    + restoredUrgentRequestCount);
+        }
+        parkingFloor = restoredParkingFloor;
+        urgentRequestCount = restoredUrgentRequestCount;
+        floorRequestCount = 0;
+        carCalls = new boolean[Math.max(4, restoredRequestCount)];
+        for (int i = 0; i < restoredRequestCount; i++) {
+            int floor = buffer.getInt();
+            carCalls[i] = floor > 0;
+            floorRequests = append(floorRequests, floorRequestCount++, Math.abs(floor));
+        }
+        updateFleetState();
     }
 
     public void incrementFloorByOne() {
@@ -84,6 +396,7 @@ public final class Elevator implements ElevatorPanel {
             return;
         }
         currentFloor++;
+        updateFleetState();
     }
 
     public void decrementFloorByOne() {
@@ -91,6 +404,7 @@ public final class Elevator implements ElevatorPanel {
             return;
         }
         currentFloor--;
+        updateFleetState();
     }
 
     public void moveOneFloor() {
@@ -103,24 +417,75 @@ public final class Elevator implements ElevatorPanel {
         //  meaning that the average time waiting (either in corridor or inside the elevator)
         //  is minimized across all humans.
         //  It is essential that this method updates the currentFloor field accordingly.
-        if (floorRequests.isEmpty()) {
+        if (floorRequestCount == 0) {
+            if (parkingFloor != NO_FLOOR) {
+                this.moveTowards(parkingFloor);
+            }
             return; //stand still
         }
 
+        this.moveTowards(floorRequests[0]); //first come, first served, for now...
+
+        //if we have arrived at our floor, or we already are there, we remove the request
+        synchronized (this) {
+            int index = indexOf(floorRequests, floorRequestCount, currentFloor);
+            if (index != -1) {
+                removeRequest(index);
+            } else {
+                stepsWithoutReachingRequest++;
+            }
+        }
+    }
+
+    private void removeRequest(int index) {
+        System.arraycopy(floorRequests, index + 1, floorRequests, index, floorRequestCount - index - 1);
+        System.arraycopy(carCalls, index + 1, carCalls, index, floorRequestCount - index - 1);
+        floorRequestCount--;
+        if (index < urgentRequestCount) {
+            urgentRequestCount--;
+        }
+        stepsWithoutReachingRequest = 0;
+        updateFleetState();
+    }
+
+    /**
+     * Mirrors the current floor and the amount of requests to the system, which dispatches based on them.
+     */
+    private void updateFleetState() {
+        if (elevatorSystem != null) {
+            elevatorSystem.updateFleetState(fleetIndex, currentFloor, floorRequestCount);
+        }
+    }
+
+    private void moveTowards(int floor) {
         //if we the target is up, we go up, if it is down, we go down
-        if (currentFloor < floorRequests.getFirst()) { //first come, first served, for now...
+        if (currentFloor < floor) {
             this.incrementFloorByOne();
-        } else if (currentFloor > floorRequests.getFirst()) {
+        } else if (currentFloor > floor) {
             this.decrementFloorByOne();
         }
+    }
 
-        //if we have arrived at our floor, or we already are there, we remove the request
-
-        if (floorRequests.contains(currentFloor)) {
-            synchronized (this) {
-                floorRequests.remove(floorRequests.indexOf(currentFloor));
+    private static int indexOf(int[] floors, int count, int floor) {
+        for (int i = 0; i < count; i++) {
+            if (floors[i] == floor) {
+                return i;
             }
         }
+        return -1;
+    }
+
+    /**
+     * Sets the floor at the given index, growing the array if needed.
+     *
+     * @return the array containing the floor, which is a new one if it had to grow
+     */
+    private static int[] append(int[] floors, int index, int floor) {
+        if (index == floors.length) {
+            floors = Arrays.copyOf(floors, floors.length * 2);
+        }
+        floors[index] = floor;
+        return floors;
     }
 
     @Override
@@ -25,4 +25,14 @@ public interface ElevatorPanel {
      * @param destinationFloor the desired destination, must be within the range served by this elevator
      */
     void requestDestinationFloor(int destinationFloor);
+
+    /**
+     * Whether the elevator can travel to the given floor.
+     *
+     * @param floor the floor to check
+     * @return {@code true} if the floor is within the range served by this elevator
+     */
+    default boolean serves(int floor) {
+        return true;
+    }
 }
@@ -2,10 +2,13 @@ package org.togetherjava.event.elevator.elevators;
 
 import org.togetherjava.event.elevator.humans.ElevatorListener;
 
+import java.io.Serial;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * System controlling all elevators of a building.
@@ -13,57 +16,532 @@ import java.util.Set;
  * Once all elevators and humans have been registered via {@link #registerElevator(Elevator)}
  * and {@link #registerElevatorListener(ElevatorListener)} respectively,
  * the system can be made ready using {@link #ready()}.
+ * <p>
+ * The system learns from the hall calls it receives where calls are to be expected. Elevators that run out of
+ * requests are parked at the floors with the highest predicted demand, unless disabled via
+ * {@link #setIdleParking(boolean)}.
+ * <p>
+ * Hall calls are not locked to the elevator they were first given to. Until an elevator reaches their floor,
+ * they are moved to elevators that become idle if those arrive sooner, and withdrawn from the elevators they were
+ * given to before, unless disabled via {@link #setHallCallReassignment(boolean)}.
+ * <p>
+ * Hall calls age while they wait. A call waiting for half of the maximum wait set via
+ * {@link #setMaxHallCallWait(int)} is served by its elevators before their other requests, and a call predicted to
+ * wait longer than the maximum is additionally given to the elevator reaching it soonest. Disabled by default.
+ * <p>
+ * Buildings whose elevators serve different floors are supported by planning trips with changes of elevators,
+ * see {@link TripPlanner}. Humans are then sent the nearest elevator serving both ends of their current leg,
+ * and hall calls stay with the elevator they were given to, as another elevator might not serve the leg.
+ * <p>
+ * Once running, moving the elevators does not allocate any objects, so long simulations do not churn the heap.
  */
 public final class ElevatorSystem implements FloorPanelSystem {
+    /**
+     * After how many steps a hall call only counts half as much for predicting demand.
+     */
+    private static final double DEMAND_HALF_LIFE_STEPS = 100;
+    /**
+     * Floors with less predicted demand are not worth moving an idle elevator for.
+     */
+    private static final double MIN_PARKING_DEMAND = 3;
+    /**
+     * Below this amount of elevator listeners, notifying them in parallel costs more than it saves.
+     */
+    private static final int PARALLEL_NOTIFICATION_THRESHOLD = 4_096;
+
     private final List<Elevator> elevators = new ArrayList<>();
-    private final List<ElevatorListener> elevatorListeners = new ArrayList<>();
+    /**
+     * Only the first {@link #elevatorListenerCount} are used. A plain array, as notifying them is the hot loop.
+     */
+    private ElevatorListener[] elevatorListeners = new ElevatorListener[16];
+    private int elevatorListenerCount;
+    private final List<DispatchListener> dispatchListeners = new ArrayList<>();
+    /**
+     * The current floor and amount of floor requests of every elevator, indexed by registration order.
+     * Elevators keep them up to date, so dispatching scores the whole fleet in flat passes over primitive arrays
+     * instead of following a reference per elevator.
+     */
+    private int[] fleetFloors = new int[8];
+    private int[] fleetRequestCounts = new int[8];
+    /**
+     * Elevators that have pending floor requests, in the order they became active.
+     * Idle elevators are not part of it and are skipped when moving.
+     * Together with the elevators that stopped or became idle during a step, it is sized for the whole fleet on
+     * registration, so stepping never grows these lists, not even the first time an elevator becomes idle.
+     */
+    private final ArrayList<Elevator> activeElevators = new ArrayList<>(8);
+    private final ArrayList<Elevator> stoppedElevators = new ArrayList<>(8);
+    private final ArrayList<Elevator> idledElevators = new ArrayList<>(8);
+    private final DemandModel demandModel = new DemandModel(DEMAND_HALF_LIFE_STEPS);
+    /**
+     * The amount of idle elevators stationed at each floor, indexed by floor.
+     */
+    private int[] parkedElevatorsPerFloor = new int[1];
+    /**
+     * The elevators that were given the hall calls of each floor, indexed by floor.
+     * Usually one, but humans arriving later may have called a different one.
+     */
+    private final List<List<Elevator>> hallCallElevatorsPerFloor = new ArrayList<>();
+    /**
+     * Floors with hall calls that no elevator reached yet.
+     */
+    private final BitSet pendingHallCallFloors = new BitSet();
+    /**
+     * Floors that received hall calls since the last step, checked against all idle elevators once.
+     */
+    private final BitSet newHallCallFloors = new BitSet();
+    /**
+     * The step at which the oldest hall call of each pending floor was made, indexed by floor.
+     */
+    private long[] hallCallStepsPerFloor = new long[1];
+    /**
+     * Pending floors whose hall calls were prioritized for their age, or also given to the elevator reaching them
+     * soonest to keep the maximum wait.
+     */
+    private final BitSet agedHallCallFloors = new BitSet();
+    private final BitSet escalatedHallCallFloors = new BitSet();
+    /**
+     * The pending floors old enough to age, reused every step so aging does not allocate.
+     */
+    private int[] agingFloors = new int[1];
+    private int maxHallCallWait;
+    private boolean hallCallReassignment = true;
+    /**
+     * Tasks notifying a slice of the elevator listeners each. They are reused every time, so notifying does not
+     * allocate.
+     */
+    private final List<ArrivalNotification> arrivalNotifications = new ArrayList<>();
+    /**
+     * The elevator the {@link #arrivalNotifications} are currently notifying about.
+     */
+    private Elevator arrivedElevator;
+    private boolean idleParking = true;
+    private DispatchPolicy dispatchPolicy;
+    /**
+     * Planned for the registered elevators on first use, {@code null} until then.
+     */
+    private TripPlanner tripPlanner;
+    /**
+     * Hall calls of humans changing elevators, each the floor in the upper and the leg destination in the lower half.
+     * Only the first {@link #transferRequestCount} are used. They are made once all humans were notified about an
+     * arrival, in an order that does not depend on thread scheduling.
+     */
+    private long[] transferRequests = new long[16];
+    private int transferRequestCount;
+    private boolean notifyingArrival;
+    private long stepCount;
 
     public void registerElevator(Elevator elevator) {
         elevators.add(elevator);
+        if (elevators.size() > fleetFloors.length) {
+            fleetFloors = Arrays.copyOf(fleetFloors, 2 * fleetFloors.length);
+            fleetRequestCounts = Arrays.copyOf(fleetRequestCounts, 2 * fleetRequestCounts.length);
+        }
+        activeElevators.ensureCapacity(elevators.size());
+        stoppedElevators.ensureCapacity(elevators.size());
+        idledElevators.ensureCapacity(elevators.size());
+        if (elevator.getTopFloor() >= parkedElevatorsPerFloor.length) {
+            parkedElevatorsPerFloor = Arrays.copyOf(parkedElevatorsPerFloor, elevator.getTopFloor() + 1);
+            hallCallStepsPerFloor = Arrays.copyOf(hallCallStepsPerFloor, elevator.getTopFloor() + 1);
+            agingFloors = new int[elevator.getTopFloor() + 1];
+        }
+        hallCallElevators(elevator.getTopFloor());
+        elevator.setElevatorSystem(this, elevators.size() - 1);
+        tripPlanner = null;
     }
 
     public void registerElevatorListener(ElevatorListener listener) {
-        elevatorListeners.add(listener);
+        if (elevatorListenerCount == elevatorListeners.length) {
+            elevatorListeners = Arrays.copyOf(elevatorListeners, elevatorListenerCount * 2);
+        }
+        elevatorListeners[elevatorListenerCount++] = listener;
+    }
+
+    public void registerDispatchListener(DispatchListener listener) {
+        dispatchListeners.add(listener);
+    }
+
+    /**
+     * Whether elevators without requests are moved to the floors where hall calls are predicted. Enabled by default.
+     *
+     * @param idleParking {@code true} to park idle elevators, {@code false} to let them stay where they stopped
+     */
+    public void setIdleParking(boolean idleParking) {
+        this.idleParking = idleParking;
+    }
+
+    /**
+     * Whether waiting hall calls are moved to idle elevators that arrive sooner than the elevator they were given to.
+     * Enabled by default.
+     *
+     * @param hallCallReassignment {@code true} to move hall calls, {@code false} to let the first elevator serve them
+     */
+    public void setHallCallReassignment(boolean hallCallReassignment) {
+        this.hallCallReassignment = hallCallReassignment;
+    }
+
+    /**
+     * The longest a hall call should wait until an elevator reaches its floor, disabled by default.
+     * <p>
+     * Calls waiting for half of it are served before all requests that are not urgent by the elevators they were
+     * given to, the oldest first. Calls predicted to still wait longer are additionally given to the elevator that
+     * reaches them soonest as urgent calls. The maximum holds as long as the elevators are not saturated with
+     * urgent calls and can reach every floor within half of it. In buildings whose elevators serve different
+     * floors, calls are only prioritized, as another elevator might not serve where the humans travel to.
+     *
+     * @param maxHallCallWait the maximum wait in steps, or 0 to let calls wait for their turn
+     */
+    public void setMaxHallCallWait(int maxHallCallWait) {
+        if (maxHallCallWait < 0) {
+            throw new IllegalArgumentException("Max hall call wait must not be negative, but was " + maxHallCallWait);
+        }
+        this.maxHallCallWait = maxHallCallWait;
+    }
+
+    /**
+     * How long the oldest hall call of the given floor waits already.
+     *
+     * @param floor the floor to look at
+     * @return the steps since the call was made, 0 if no elevator is on its way to a call of the floor
+     */
+    public long getHallCallWait(int floor) {
+        return pendingHallCallFloors.get(floor) ? stepCount - hallCallStepsPerFloor[floor] : 0;
+    }
+
+    /**
+     * Replaces how elevators are chosen for hall calls. By default, the nearest elevator is sent,
+     * see {@link #nearestElevator(int)}. The policy is not part of the state written by {@link #writeState(ByteBuffer)}.
+     * <p>
+     * In buildings whose elevators serve different floors, humans are always sent the nearest elevator serving their
+     * leg, as policies choose without knowing where humans travel to.
+     *
+     * @param dispatchPolicy the policy to use, or {@code null} to send the nearest elevator again
+     */
+    public void setDispatchPolicy(DispatchPolicy dispatchPolicy) {
+        this.dispatchPolicy = dispatchPolicy;
+    }
+
+    /**
+     * The demand for hall calls at the given floor predicted from the recent hall calls.
+     *
+     * @param floor                  the floor to predict for
+     * @param desiredTravelDirection the direction of the hall calls to predict
+     * @return the amount of recent hall calls, with older calls weighing exponentially less
+     */
+    public double getPredictedDemand(int floor, TravelDirection desiredTravelDirection) {
+        return demandModel.predictedDemand(floor, desiredTravelDirection, stepCount);
     }
 
     /**
      * Upon calling this, the system is ready to receive elevator requests. Elevators may now start moving.
+     * <p>
+     * Listeners are notified in registration order, as the dispatch decisions depend on the requests made before.
      */
     public void ready() {
-        elevatorListeners.parallelStream().forEach(listener -> listener.onElevatorSystemReady(this));
+        tripPlanner();
+        for (int i = 0; i < elevatorListenerCount; i++) {
+            elevatorListeners[i].onElevatorSystemReady(this);
+        }
+
+        prepareArrivalNotifications();
+    }
+
+    private void prepareArrivalNotifications() {
+        // A single processor can not notify in parallel, so the notification tasks would only add overhead
+        int processors = Runtime.getRuntime().availableProcessors();
+        if (processors > 1) {
+            int slices = 4 * processors;
+            for (int slice = arrivalNotifications.size(); slice < slices; slice++) {
+                arrivalNotifications.add(new ArrivalNotification(slice, slices));
+            }
+        }
+    }
+
+    /**
+     * The amount of bytes {@link #writeState(ByteBuffer)} writes.
+     *
+     * @return the size of the current state
+     */
+    public int stateBytes() {
+        int bytes = Long.BYTES + 2 + Integer.BYTES * (3 + parkedElevatorsPerFloor.length + activeElevators.size())
+                + demandModel.stateBytes();
+        bytes += Integer.BYTES * (2 + newHallCallFloors.cardinality());
+        for (int floor = pendingHallCallFloors.nextSetBit(0); floor >= 0;
+                floor = pendingHallCallFloors.nextSetBit(floor + 1)) {
+            bytes += Integer.BYTES * (2 + hallCallElevatorsPerFloor.get(floor).size()) + Long.BYTES + 1;
+        }
+        for (Elevator elevator : elevators) {
+            bytes += elevator.stateBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes the state of the system and the requests of its elevators, such that the system can continue from
+     * this state later on using {@link #readState(ByteBuffer)}. Must not be called while the elevators are moving.
+     * <p>
+     * Elevators are referred to by their registration order. The elevators themselves, including their current
+     * floor, are not part of the state and have to be stored separately.
+     *
+     * @param buffer the buffer to write to, starting at its position, which needs at least {@link #stateBytes()}
+     *               remaining
+     */
+    public void writeState(ByteBuffer buffer) {
+        buffer.putLong(stepCount).put((byte) (idleParking ? 1 : 0)).put((byte) (hallCallReassignment ? 1 : 0));
+        buffer.putInt(maxHallCallWait);
+        buffer.putInt(parkedElevatorsPerFloor.length);
+        for (int parkedElevators : parkedElevatorsPerFloor) {
+            buffer.putInt(parkedElevators);
+        }
+        demandModel.writeState(buffer);
+
+        // The order of active elevators decides who is notified first, so it is part of the state
+        buffer.putInt(activeElevators.size());
+        for (Elevator elevator : activeElevators) {
+            buffer.putInt(elevators.indexOf(elevator));
+        }
+        for (Elevator elevator : elevators) {
+            elevator.writeState(buffer);
+        }
+
+        buffer.putInt(pendingHallCallFloors.cardinality());
+        for (int floor = pendingHallCallFloors.nextSetBit(0); floor >= 0;
+                floor = pendingHallCallFloors.nextSetBit(floor + 1)) {
+            List<Elevator> hallCallElevators = hallCallElevatorsPerFloor.get(floor);
+            buffer.putInt(floor).putInt(hallCallElevators.size());
+            for (Elevator elevator : hallCallElevators) {
+                buffer.putInt(elevators.indexOf(elevator));
+            }
+            int aging = (agedHallCallFloors.get(floor) ? 1 : 0) | (escalatedHallCallFloors.get(floor) ? 2 : 0);
+            buffer.putLong(hallCallStepsPerFloor[floor]).put((byte) aging);
+        }
+        buffer.putInt(newHallCallFloors.cardinality());
+        for (int floor = newHallCallFloors.nextSetBit(0); floor >= 0; floor = newHallCallFloors.nextSetBit(floor + 1)) {
+            buffer.putInt(floor);
+        }
+    }
+
+    /**
+     * Restores a state previously written with {@link #writeState(ByteBuffer)}, replacing the current one.
+     * <p>
+     * Elevators equal to the ones of the written system have to be registered already, in the same order.
+     *
+     * @param buffer the buffer to read from, starting at its position
+     * @throws IllegalArgumentException if the state is corrupt or does not match the registered elevators
+     */
+    public void readState(ByteBuffer buffer) {
+        stepCount = buffer.getLong();
+        idleParking = buffer.get() != 0;
+        hallCallReassignment = buffer.get() != 0;
+        maxHallCallWait = buffer.getInt();
+        if (maxHallCallWait < 0) {
+            throw new IllegalArgumentException("Corrupt state, invalid max hall call wait " + maxHallCallWait);
+        }
+        int floors = buffer.getInt();
+        if (floors != parkedElevatorsPerFloor.length) {
+            throw new IllegalArgumentException("State is for %d floors, but the elevators serve %d"
+                    .formatted(floors - 1, parkedElevatorsPerFloor.length - 1));
+        }
+        for (int floor = 0; floor < floors; floor++) {
+            parkedElevatorsPerFloor[floor] = buffer.getInt();
+        }
+        demandModel.readState(buffer);
+
+        int activeCount = buffer.getInt();
+        if (activeCount < 0 || activeCount > elevators.size()) {
+            throw new IllegalArgumentException("Corrupt state, invalid amount of active elevators " + activeCount);
+        }
+        for (Elevator elevator : activeElevators) {
+            elevator.setActive(false);
+        }
+        activeElevators.clear();
+        for (int i = 0; i < activeCount; i++) {
+            Elevator elevator = elevators.get(readElevatorIndex(buffer));
+            elevator.setActive(true);
+            activeElevators.add(elevator);
+        }
+        for (Elevator elevator : elevators) {
+            elevator.readState(buffer);
+        }
+
+        for (int floor = pendingHallCallFloors.nextSetBit(0); floor >= 0;
+                floor = pendingHallCallFloors.nextSetBit(floor + 1)) {
+            hallCallElevatorsPerFloor.get(floor).clear();
+        }
+        pendingHallCallFloors.clear();
+        agedHallCallFloors.clear();
+        escalatedHallCallFloors.clear();
+        int pendingFloors = buffer.getInt();
+        for (int i = 0; i < pendingFloors; i++) {
+            int floor = readFloor(buffer);
+            int hallCallElevators = buffer.getInt();
+            for (int j = 0; j < hallCallElevators; j++) {
+                hallCallElevatorsPerFloor.get(floor).add(elevators.get(readElevatorIndex(buffer)));
+            }
+            pendingHallCallFloors.set(floor);
+            hallCallStepsPerFloor[floor] = buffer.getLong();
+            int aging = buffer.get();
+            agedHallCallFloors.set(floor, (aging & 1) != 0);
+            escalatedHallCallFloors.set(floor, (aging & 2) != 0);
+        }
+        newHallCallFloors.clear();
+        int newFloors = buffer.getInt();
+        for (int i = 0; i < newFloors; i++) {
+            newHallCallFloors.set(readFloor(buffer));
+        }
+        tripPlanner();
+        prepareArrivalNotifications();
+    }
+
+    private int readElevatorIndex(ByteBuffer buffer) {
+        int index = buffer.getInt();
+        if (index < 0 || index >= elevators.size()) {
+            throw new IllegalArgumentException("Corrupt state, unknown elevator " + index);
+        }
+        return index;
+    }
+
+    private int readFloor(ByteBuffer buffer) {
+        int floor = buffer.getInt();
+        if (floor < 1 || floor >= hallCallElevatorsPerFloor.size()) {
+            throw new IllegalArgumentException("Corrupt state, unknown floor " + floor);
+        }
+        return floor;
     }
 
     public static int floorAndElevatorDistance(int floor, Elevator elevator) {
         return Math.abs(elevator.getCurrentFloor()-floor);
     }
+    /**
+     * Chooses the elevator to send to a hall call, using the {@link DispatchPolicy} if one is set.
+     */
     @Override
     public Elevator bestElevator(int atFloor, TravelDirection desiredTravelDirection) {
+        if (dispatchPolicy != null) {
+            return dispatchPolicy.selectElevator(this, atFloor, desiredTravelDirection);
+        }
+        return tripPlanner().isZoned() ? nearestElevatorServing(atFloor, atFloor) : nearestElevator(atFloor);
+    }
+
+    @Override
+    public Elevator bestElevatorFor(int atFloor, int legDestinationFloor) {
+        if (!tripPlanner().isZoned()) {
+            return bestElevator(atFloor, legDestinationFloor > atFloor ? TravelDirection.UP : TravelDirection.DOWN);
+        }
+        return nearestElevatorServing(atFloor, legDestinationFloor);
+    }
+
+    @Override
+    public int nextLegDestination(int atFloor, int destinationFloor) {
+        TripPlanner planner = tripPlanner();
+        return planner.isZoned() ? planner.nextLegDestination(atFloor, destinationFloor) : destinationFloor;
+    }
+
+    /**
+     * Plans the trips through the building of the registered elevators.
+     *
+     * @return the planner, which stays the same until another elevator is registered
+     */
+    public TripPlanner tripPlanner() {
+        if (tripPlanner == null) {
+            tripPlanner = new TripPlanner(elevators);
+        }
+        return tripPlanner;
+    }
+
+    /**
+     * Finds the closest elevator, ties are broken by the least traffic and then by registration order.
+     * <p>
+     * The fleet is scored in two passes over its primitive state. The first finds the smallest distance without
+     * branches, so the JIT can vectorize it, the second the least busy elevator at that distance.
+     */
+    public Elevator nearestElevator(int atFloor) {
         assert !elevators.isEmpty();
-        Elevator bestElevator = elevators.getFirst();
-        if (elevators.size() == 1) {
-            return bestElevator;
+        int fleetSize = elevators.size();
+        int[] floors = fleetFloors;
+        int[] requestCounts = fleetRequestCounts;
+
+        int minDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < fleetSize; i++) {
+            minDistance = Math.min(minDistance, Math.abs(floors[i] - atFloor));
         }
-        Set<Elevator> candidates = new HashSet<>(); //we find all the closest candidates
-        candidates.add(bestElevator);
-        for (var elevator : elevators) {
-            if (floorAndElevatorDistance(atFloor, elevator) < floorAndElevatorDistance(atFloor, candidates.stream().findAny().get())) {
-                candidates.clear();
-                candidates.add(elevator);
-            } else if (floorAndElevatorDistance(atFloor, elevator) == floorAndElevatorDistance(atFloor, candidates.stream().findAny().get())) {
-                candidates.add(elevator);
+        // Usually only a few elevators are at the smallest distance, so this rarely takes the branch
+        int best = -1;
+        int bestRequests = Integer.MAX_VALUE;
+        for (int i = 0; i < fleetSize; i++) {
+            if (Math.abs(floors[i] - atFloor) == minDistance && requestCounts[i] < bestRequests) {
+                best = i;
+                bestRequests = requestCounts[i];
             }
         }
-        bestElevator = candidates.stream().findAny().get();
-        for (var elevator : candidates) {
-            if (elevator.getFloorRequests().size() < bestElevator.getFloorRequests().size()) { //out of the closest candidates, we chose the one with the least traffic
-                bestElevator = elevator;
+        return elevators.get(best);
+    }
+
+    /**
+     * Finds the closest elevator serving both given floors, ties are broken by the least traffic and then by
+     * registration order.
+     *
+     * @throws IllegalArgumentException if no elevator serves both floors
+     */
+    private Elevator nearestElevatorServing(int atFloor, int otherFloor) {
+        int lowFloor = Math.min(atFloor, otherFloor);
+        int highFloor = Math.max(atFloor, otherFloor);
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        int bestRequests = Integer.MAX_VALUE;
+        for (int i = 0; i < elevators.size(); i++) {
+            Elevator elevator = elevators.get(i);
+            if (elevator.getMinFloor() > lowFloor || elevator.getTopFloor() < highFloor) {
+                continue;
             }
+            int distance = Math.abs(fleetFloors[i] - atFloor);
+            if (distance < bestDistance || distance == bestDistance && fleetRequestCounts[i] < bestRequests) {
+                best = i;
+                bestDistance = distance;
+                bestRequests = fleetRequestCounts[i];
+            }
+        }
+        if (best == -1) {
+            throw new IllegalArgumentException("No elevator serves floors %d and %d".formatted(atFloor, otherFloor));
+        }
+        return elevators.get(best);
+    }
+
+    /**
+     * Called by an elevator whenever its floor or its amount of floor requests changed.
+     */
+    void updateFleetState(int fleetIndex, int currentFloor, int floorRequestCount) {
+        fleetFloors[fleetIndex] = currentFloor;
+        fleetRequestCounts[fleetIndex] = floorRequestCount;
+    }
+
+    @Override
+    public void requestElevator(Elevator elevator, int atFloor, TravelDirection desiredTravelDirection) {
+        demandModel.recordHallCall(atFloor, desiredTravelDirection, stepCount);
+        assignHallCall(elevator, atFloor);
+        newHallCallFloors.set(atFloor);
+    }
+
+    private void assignHallCall(Elevator elevator, int atFloor) {
+        elevator.requestHallCall(atFloor);
+        List<Elevator> hallCallElevators = hallCallElevators(atFloor);
+        if (!hallCallElevators.contains(elevator)) {
+            hallCallElevators.add(elevator);
+        }
+        if (!pendingHallCallFloors.get(atFloor)) {
+            hallCallStepsPerFloor[atFloor] = stepCount;
+        }
+        pendingHallCallFloors.set(atFloor);
+        for (int i = 0; i < dispatchListeners.size(); i++) {
+            dispatchListeners.get(i).onElevatorDispatched(elevator, atFloor);
         }
-        return bestElevator;
     }
 
-    public void requestElevator(Elevator elevator, int atFloor) {
-        elevator.requestDestinationFloor(atFloor);
+    private List<Elevator> hallCallElevators(int floor) {
+        while (hallCallElevatorsPerFloor.size() <= floor) {
+            hallCallElevatorsPerFloor.add(new ArrayList<>(1));
+        }
+        return hallCallElevatorsPerFloor.get(floor);
     }
 
     @Override
@@ -74,11 +552,354 @@ public final class ElevatorSystem implements FloorPanelSystem {
         //  The human can then enter the elevator and request their actual destination within the elevator.
         //  Ideally this has to select the best elevator among all which can reduce the time
         //  for the human spending waiting (either in corridor or in the elevator itself).
-        bestElevator(atFloor, desiredTravelDirection).requestDestinationFloor(atFloor);
+        requestElevator(bestElevator(atFloor, desiredTravelDirection), atFloor, desiredTravelDirection);
     }
 
+    /**
+     * Requests an elevator for a human changing elevators. While humans are notified about an arrival, the request
+     * is made after all of them were notified, so it can be called from any notifying thread.
+     */
+    @Override
+    public synchronized void requestTransfer(int atFloor, int legDestinationFloor) {
+        if (!notifyingArrival) {
+            FloorPanelSystem.super.requestTransfer(atFloor, legDestinationFloor);
+            return;
+        }
+        if (transferRequestCount == transferRequests.length) {
+            transferRequests = Arrays.copyOf(transferRequests, 2 * transferRequestCount);
+        }
+        transferRequests[transferRequestCount++] = (long) atFloor << Integer.SIZE | legDestinationFloor;
+    }
+
+    private synchronized void requestTransfers() {
+        Arrays.sort(transferRequests, 0, transferRequestCount);
+        for (int i = 0; i < transferRequestCount; i++) {
+            int atFloor = (int) (transferRequests[i] >>> Integer.SIZE);
+            int legDestinationFloor = (int) transferRequests[i];
+            requestElevator(bestElevatorFor(atFloor, legDestinationFloor), atFloor,
+                    legDestinationFloor > atFloor ? TravelDirection.UP : TravelDirection.DOWN);
+        }
+        transferRequestCount = 0;
+    }
+
+    /**
+     * Called by an elevator once it received its first floor request after being idle.
+     *
+     * @param elevator the elevator that has work to do now
+     */
+    void activate(Elevator elevator) {
+        synchronized (activeElevators) {
+            if (!elevator.isActive()) {
+                elevator.setActive(true);
+                activeElevators.add(elevator);
+            }
+            if (elevator.getParkingFloor() != Elevator.NO_FLOOR) {
+                parkedElevatorsPerFloor[elevator.getParkingFloor()]--;
+            }
+        }
+    }
+
+    /**
+     * Moves all elevators that have pending floor requests by one floor.
+     * <p>
+     * Arrival events are only fired for elevators that actually stopped at a floor during this step, i.e. that moved
+     * or served a request at their current floor. Idle elevators neither move nor fire events,
+     * so the cost of a step scales with the amount of busy elevators instead of the size of the fleet.
+     */
     public void moveOneFloor() {
-        elevators.parallelStream().forEach(Elevator::moveOneFloor);
-        elevators.parallelStream().forEach(elevator -> elevatorListeners.parallelStream().forEach(listener -> listener.onElevatorArrivedAtFloor(elevator)));
+        stoppedElevators.clear();
+        for (int i = 0; i < activeElevators.size(); i++) {
+            Elevator elevator = activeElevators.get(i);
+            int previousFloor = elevator.getCurrentFloor();
+            int previousRequests = elevator.getFloorRequestCount();
+            elevator.moveOneFloor();
+            if (elevator.getCurrentFloor() != previousFloor || elevator.getFloorRequestCount() < previousRequests) {
+                stoppedElevators.add(elevator);
+            }
+        }
+
+        // Elevators are handled one after another, so a human never sees two of them at once.
+        // Requests made by listeners are batched, so their order does not depend on the parallel notification.
+        for (int i = 0; i < stoppedElevators.size(); i++) {
+            Elevator elevator = stoppedElevators.get(i);
+            elevator.beginRequestBatch();
+            notifyingArrival = true;
+            notifyArrival(elevator);
+            notifyingArrival = false;
+            elevator.commitRequestBatch();
+            // Everybody waiting at this floor entered, so their hall calls are not worth moving anymore
+            serveHallCalls(elevator.getCurrentFloor());
+            // Humans that left to change elevators are waiting from now on
+            if (transferRequestCount > 0) {
+                requestTransfers();
+            }
+        }
+
+        // Listeners may have given new requests to elevators that just ran out of them.
+        // Busy elevators are compacted to the front, keeping their order.
+        idledElevators.clear();
+        int busyElevators = 0;
+        for (int i = 0; i < activeElevators.size(); i++) {
+            Elevator elevator = activeElevators.get(i);
+            if (elevator.hasPendingWork()) {
+                activeElevators.set(busyElevators++, elevator);
+            } else {
+                elevator.setActive(false);
+                idledElevators.add(elevator);
+            }
+        }
+        while (activeElevators.size() > busyElevators) {
+            activeElevators.removeLast();
+        }
+        if (hallCallReassignment && !tripPlanner().isZoned()) {
+            reassignHallCalls();
+        }
+        if (maxHallCallWait > 0) {
+            ageHallCalls();
+        }
+        newHallCallFloors.clear();
+        if (idleParking) {
+            for (int i = 0; i < idledElevators.size(); i++) {
+                parkIdleElevator(idledElevators.get(i));
+            }
+        }
+        stepCount++;
+    }
+
+    private void notifyArrival(Elevator elevator) {
+        if (elevatorListenerCount < PARALLEL_NOTIFICATION_THRESHOLD || arrivalNotifications.isEmpty()) {
+            notifyArrival(elevator, 0, elevatorListenerCount);
+            return;
+        }
+
+        arrivedElevator = elevator;
+        for (int i = 1; i < arrivalNotifications.size(); i++) {
+            arrivalNotifications.get(i).fork();
+        }
+        arrivalNotifications.getFirst().invoke();
+        // Slices that no worker picked up yet are run by this thread
+        for (int i = arrivalNotifications.size() - 1; i >= 1; i--) {
+            ArrivalNotification notification = arrivalNotifications.get(i);
+            if (notification.tryUnfork()) {
+                notification.invoke();
+            } else {
+                notification.join();
+            }
+        }
+        for (int i = 0; i < arrivalNotifications.size(); i++) {
+            arrivalNotifications.get(i).reinitialize();
+        }
+        arrivedElevator = null;
+    }
+
+    private void notifyArrival(Elevator elevator, int fromListener, int toListener) {
+        ElevatorListener[] listeners = elevatorListeners;
+        for (int i = fromListener; i < toListener; i++) {
+            listeners[i].onElevatorArrivedAtFloor(elevator);
+        }
+    }
+
+    /**
+     * Stops tracking the hall calls of the given floor, as nobody is waiting there anymore.
+     * Their elevators still come by, which picks up humans that arrive there in the meantime.
+     */
+    private void serveHallCalls(int floor) {
+        if (pendingHallCallFloors.get(floor)) {
+            hallCallElevatorsPerFloor.get(floor).clear();
+            pendingHallCallFloors.clear(floor);
+            agedHallCallFloors.clear(floor);
+            escalatedHallCallFloors.clear(floor);
+        }
+    }
+
+    /**
+     * Offers the waiting hall calls to idle elevators. Only elevators that just became idle are checked against all
+     * waiting calls, and only calls received since the last step are checked against all idle elevators,
+     * so calls are not rescanned every step.
+     */
+    private void reassignHallCalls() {
+        if (pendingHallCallFloors.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < idledElevators.size(); i++) {
+            reassignHallCallTo(idledElevators.get(i), pendingHallCallFloors);
+        }
+        if (!newHallCallFloors.isEmpty()) {
+            for (int i = 0; i < elevators.size(); i++) {
+                Elevator elevator = elevators.get(i);
+                if (!elevator.isActive()) {
+                    reassignHallCallTo(elevator, newHallCallFloors);
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the hall call the given idle elevator saves the most steps on to it, if any.
+     */
+    private void reassignHallCallTo(Elevator idleElevator, BitSet floors) {
+        if (idleElevator.getFloorRequestCount() > 0) {
+            return; // Took over a hall call already
+        }
+        int bestFloor = Elevator.NO_FLOOR;
+        int bestSavedSteps = 0;
+        for (int floor = floors.nextSetBit(0); floor >= 0; floor = floors.nextSetBit(floor + 1)) {
+            if (!pendingHallCallFloors.get(floor)
+                    || floor < idleElevator.getMinFloor() || floor > idleElevator.getTopFloor()) {
+                continue;
+            }
+            int savedSteps = soonestArrival(floor) - floorAndElevatorDistance(floor, idleElevator);
+            if (savedSteps > bestSavedSteps) {
+                bestFloor = floor;
+                bestSavedSteps = savedSteps;
+            }
+        }
+        if (bestFloor == Elevator.NO_FLOOR) {
+            return;
+        }
+
+        List<Elevator> hallCallElevators = hallCallElevatorsPerFloor.get(bestFloor);
+        for (int i = 0; i < hallCallElevators.size(); i++) {
+            hallCallElevators.get(i).withdrawHallCall(bestFloor);
+        }
+        hallCallElevators.clear();
+        assignHallCall(idleElevator, bestFloor);
+    }
+
+    /**
+     * Prioritizes the hall calls waiting for half of the maximum wait, and gives the ones predicted to wait longer
+     * than the maximum to the elevator reaching them soonest, the oldest calls first.
+     */
+    private void ageHallCalls() {
+        long agingStep = stepCount - maxHallCallWait / 2;
+        int agingCount = 0;
+        for (int floor = pendingHallCallFloors.nextSetBit(0); floor >= 0;
+                floor = pendingHallCallFloors.nextSetBit(floor + 1)) {
+            if (hallCallStepsPerFloor[floor] <= agingStep && !escalatedHallCallFloors.get(floor)) {
+                agingFloors[agingCount++] = floor;
+            }
+        }
+        // Insertion sort by age, only few calls are old enough and sorting must not allocate
+        for (int i = 1; i < agingCount; i++) {
+            int floor = agingFloors[i];
+            int j = i - 1;
+            while (j >= 0 && hallCallStepsPerFloor[agingFloors[j]] > hallCallStepsPerFloor[floor]) {
+                agingFloors[j + 1] = agingFloors[j];
+                j--;
+            }
+            agingFloors[j + 1] = floor;
+        }
+
+        boolean zoned = tripPlanner().isZoned();
+        for (int i = 0; i < agingCount; i++) {
+            int floor = agingFloors[i];
+            List<Elevator> hallCallElevators = hallCallElevatorsPerFloor.get(floor);
+            if (!agedHallCallFloors.get(floor)) {
+                agedHallCallFloors.set(floor);
+                for (int j = 0; j < hallCallElevators.size(); j++) {
+                    hallCallElevators.get(j).prioritize(floor);
+                }
+            }
+            long wait = stepCount - hallCallStepsPerFloor[floor];
+            if (zoned || wait + soonestArrival(floor) <= maxHallCallWait) {
+                continue;
+            }
+            Elevator soonest = soonestUrgentElevator(floor);
+            if (!hallCallElevators.contains(soonest)) {
+                assignHallCall(soonest, floor);
+            }
+            soonest.prioritize(floor);
+            escalatedHallCallFloors.set(floor);
+        }
+    }
+
+    /**
+     * Finds the elevator serving the given floor that would reach it soonest if it was prioritized,
+     * ties are broken by the least traffic and then by registration order.
+     */
+    private Elevator soonestUrgentElevator(int floor) {
+        int soonest = -1;
+        int soonestSteps = Integer.MAX_VALUE;
+        for (int i = 0; i < elevators.size(); i++) {
+            Elevator elevator = elevators.get(i);
+            if (floor < elevator.getMinFloor() || floor > elevator.getTopFloor()) {
+                continue;
+            }
+            int steps = elevator.stepsToReachUrgently(floor);
+            if (steps < soonestSteps || steps == soonestSteps && fleetRequestCounts[i] < fleetRequestCounts[soonest]) {
+                soonest = i;
+                soonestSteps = steps;
+            }
+        }
+        return elevators.get(soonest);
+    }
+
+    private int soonestArrival(int floor) {
+        List<Elevator> hallCallElevators = hallCallElevatorsPerFloor.get(floor);
+        int soonest = Integer.MAX_VALUE;
+        for (int i = 0; i < hallCallElevators.size(); i++) {
+            soonest = Math.min(soonest, hallCallElevators.get(i).stepsToReach(floor));
+        }
+        return soonest;
+    }
+
+    private void parkIdleElevator(Elevator elevator) {
+        if (elevator.getParkingFloor() != Elevator.NO_FLOOR) {
+            return; // Arrived at its station
+        }
+        if (elevator.getFloorRequestCount() > 0) {
+            return; // Took over a hall call instead
+        }
+
+        // Parked elevators share the demand of their floor, so idle elevators spread over the busy floors
+        int bestFloor = elevator.getCurrentFloor();
+        double bestScore = parkingScore(bestFloor);
+        for (int floor = elevator.getMinFloor(); floor <= elevator.getTopFloor(); floor++) {
+            double score = parkingScore(floor);
+            if (score > bestScore) {
+                bestFloor = floor;
+                bestScore = score;
+            }
+        }
+        if (bestScore < MIN_PARKING_DEMAND) {
+            return; // Nothing worth moving for, stays where it stopped
+        }
+
+        parkedElevatorsPerFloor[bestFloor]++;
+        elevator.park(bestFloor);
+        // Elevators that took over a hall call this step and lost it to a closer one again are still active,
+        // adding them once more would move them twice per step
+        if (elevator.hasPendingWork() && !elevator.isActive()) {
+            elevator.setActive(true);
+            activeElevators.add(elevator);
+        }
+    }
+
+    private double parkingScore(int floor) {
+        return demandModel.predictedDemand(floor, stepCount) / (1 + parkedElevatorsPerFloor[floor]);
+    }
+
+    /**
+     * Notifies one slice of the elevator listeners about the {@link #arrivedElevator}.
+     * The slice bounds are computed on every run, as listeners may be added while the simulation is running.
+     */
+    private final class ArrivalNotification extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int slice;
+        private final int slices;
+
+        ArrivalNotification(int slice, int slices) {
+            this.slice = slice;
+            this.slices = slices;
+        }
+
+        @Override
+        protected void compute() {
+            int listeners = elevatorListenerCount;
+            notifyArrival(arrivedElevator, (int) ((long) listeners * slice / slices),
+                    (int) ((long) listeners * (slice + 1) / slices));
+        }
     }
 }
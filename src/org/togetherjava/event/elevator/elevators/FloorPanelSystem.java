@@ -15,6 +15,42 @@ public interface FloorPanelSystem {
      * requesting that an elevator comes to pick them up for travel into the given direction.
      */
     void requestElevator(int atFloor, TravelDirection desiredTravelDirection);
-    void requestElevator(Elevator bestElevator, int atFloor);
+    void requestElevator(Elevator bestElevator, int atFloor, TravelDirection desiredTravelDirection);
     Elevator bestElevator(int atFloor, TravelDirection desiredTravelDirection);
+
+    /**
+     * The floor a human should travel to next on the way to their destination. This is the destination itself,
+     * unless no elevator serves both floors and the human has to change elevators on the way.
+     *
+     * @param atFloor          the floor the human is at
+     * @param destinationFloor the floor the human eventually wants to reach
+     * @return the floor to travel to with the next elevator
+     */
+    default int nextLegDestination(int atFloor, int destinationFloor) {
+        return destinationFloor;
+    }
+
+    /**
+     * Chooses the elevator to send to a human traveling between the given floors.
+     *
+     * @param atFloor             the floor to pick up the human at
+     * @param legDestinationFloor the floor the human travels to with this elevator, see
+     *                            {@link #nextLegDestination(int, int)}
+     * @return an elevator serving both floors
+     */
+    default Elevator bestElevatorFor(int atFloor, int legDestinationFloor) {
+        return bestElevator(atFloor, legDestinationFloor > atFloor ? TravelDirection.UP : TravelDirection.DOWN);
+    }
+
+    /**
+     * Requests an elevator for a human that left an elevator at the given floor to change to another one.
+     * Unlike the other requests, this may be called while humans are notified about an elevator arriving.
+     *
+     * @param atFloor             the floor the human changes elevators at
+     * @param legDestinationFloor the floor the human travels to with the next elevator
+     */
+    default void requestTransfer(int atFloor, int legDestinationFloor) {
+        requestElevator(bestElevatorFor(atFloor, legDestinationFloor), atFloor,
+                legDestinationFloor > atFloor ? TravelDirection.UP : TravelDirection.DOWN);
+    }
 }
@@ -0,0 +1,223 @@
+package org.togetherjava.event.elevator.elevators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Plans trips through buildings in which no single elevator serves all floors, for example towers split into zones
+ * that share a sky lobby with the zone above.
+ * <p>
+ * Elevators serving the same floors form a zone. Consecutive floors covered by the same zones form a segment,
+ * so a building has less than twice as many segments as zones. For every pair of segments, a table built upfront
+ * holds the first change of elevators on a route with the least changes, preferring the change closest to the
+ * destination. Looking up the next leg of a trip is then constant time: a human travels directly if a zone covers
+ * both floors, and otherwise to the floor shared by the first two zones of the route closest to their destination.
+ * <p>
+ * Instances are immutable and can be used from any thread.
+ */
+public final class TripPlanner {
+    private static final int DIRECT = -1;
+    private static final int UNREACHABLE = -2;
+
+    private final int minFloor;
+    private final int topFloor;
+    private final int amountOfZones;
+    /**
+     * The segment of every served floor, indexed by the floor relative to {@link #minFloor}.
+     */
+    private final int[] segmentOfFloor;
+    private final int amountOfSegments;
+    /**
+     * The floors shared by the first two zones of the route between two segments, indexed by
+     * {@code fromSegment * amountOfSegments + toSegment}. The low floor is {@link #DIRECT} if a zone covers both
+     * segments and {@link #UNREACHABLE} if no route connects them.
+     */
+    private final int[] transferLowFloors;
+    private final int[] transferHighFloors;
+
+    /**
+     * Plans trips for the given elevators.
+     *
+     * @param elevators the elevators of the building, if there are none, no floor is served
+     */
+    public TripPlanner(List<Elevator> elevators) {
+        List<int[]> zones = new ArrayList<>();
+        for (Elevator elevator : elevators) {
+            int[] zone = {elevator.getMinFloor(), elevator.getTopFloor()};
+            if (zones.stream().noneMatch(other -> Arrays.equals(other, zone))) {
+                zones.add(zone);
+            }
+        }
+        zones.sort(Comparator.<int[]>comparingInt(zone -> zone[0]).thenComparingInt(zone -> zone[1]));
+        amountOfZones = zones.size();
+        minFloor = zones.stream().mapToInt(zone -> zone[0]).min().orElse(1);
+        topFloor = zones.stream().mapToInt(zone -> zone[1]).max().orElse(0);
+
+        // Coverage only changes where a zone starts or ends
+        TreeSet<Integer> segmentStarts = new TreeSet<>();
+        for (int[] zone : zones) {
+            segmentStarts.add(zone[0]);
+            if (zone[1] < topFloor) {
+                segmentStarts.add(zone[1] + 1);
+            }
+        }
+        int[] starts = segmentStarts.stream().mapToInt(Integer::intValue).toArray();
+        amountOfSegments = starts.length;
+        segmentOfFloor = new int[topFloor - minFloor + 1];
+        int[] segmentEnds = new int[amountOfSegments];
+        for (int segment = 0; segment < amountOfSegments; segment++) {
+            segmentEnds[segment] = segment + 1 < amountOfSegments ? starts[segment + 1] - 1 : topFloor;
+            Arrays.fill(segmentOfFloor, starts[segment] - minFloor, segmentEnds[segment] - minFloor + 1, segment);
+        }
+
+        boolean[][] covers = new boolean[amountOfSegments][amountOfZones];
+        for (int segment = 0; segment < amountOfSegments; segment++) {
+            for (int zone = 0; zone < amountOfZones; zone++) {
+                covers[segment][zone] = zones.get(zone)[0] <= starts[segment] && starts[segment] <= zones.get(zone)[1];
+            }
+        }
+
+        transferLowFloors = new int[amountOfSegments * amountOfSegments];
+        transferHighFloors = new int[amountOfSegments * amountOfSegments];
+        int[] changes = new int[amountOfZones];
+        for (int to = 0; to < amountOfSegments; to++) {
+            countChanges(zones, covers[to], changes);
+            for (int from = 0; from < amountOfSegments; from++) {
+                planRoute(zones, covers[from], changes, starts[to], segmentEnds[to], from * amountOfSegments + to);
+            }
+        }
+    }
+
+    /**
+     * Counts how often a human in each zone has to change elevators at least to reach a segment,
+     * by a breadth first search from the zones covering it.
+     */
+    private void countChanges(List<int[]> zones, boolean[] coveringZones, int[] changes) {
+        Arrays.fill(changes, Integer.MAX_VALUE);
+        int[] queue = new int[amountOfZones];
+        int queued = 0;
+        for (int zone = 0; zone < amountOfZones; zone++) {
+            if (coveringZones[zone]) {
+                changes[zone] = 0;
+                queue[queued++] = zone;
+            }
+        }
+        for (int head = 0; head < queued; head++) {
+            int zone = queue[head];
+            for (int neighbor = 0; neighbor < amountOfZones; neighbor++) {
+                if (changes[neighbor] == Integer.MAX_VALUE && overlap(zones, zone, neighbor)) {
+                    changes[neighbor] = changes[zone] + 1;
+                    queue[queued++] = neighbor;
+                }
+            }
+        }
+    }
+
+    private void planRoute(List<int[]> zones, boolean[] coveringZones, int[] changes, int toLow, int toHigh,
+            int pair) {
+        int leastChanges = Integer.MAX_VALUE;
+        for (int zone = 0; zone < amountOfZones; zone++) {
+            if (coveringZones[zone]) {
+                leastChanges = Math.min(leastChanges, changes[zone]);
+            }
+        }
+        if (leastChanges == Integer.MAX_VALUE) {
+            transferLowFloors[pair] = UNREACHABLE;
+            return;
+        }
+        if (leastChanges == 0) {
+            transferLowFloors[pair] = DIRECT;
+            return;
+        }
+
+        // Among the equally short routes, the one changing closest to the destination saves the most travel
+        int bestDistance = Integer.MAX_VALUE;
+        for (int first = 0; first < amountOfZones; first++) {
+            if (!coveringZones[first] || changes[first] != leastChanges) {
+                continue;
+            }
+            for (int second = 0; second < amountOfZones; second++) {
+                if (changes[second] != leastChanges - 1 || !overlap(zones, first, second)) {
+                    continue;
+                }
+                int low = Math.max(zones.get(first)[0], zones.get(second)[0]);
+                int high = Math.min(zones.get(first)[1], zones.get(second)[1]);
+                int distance = Math.max(0, Math.max(low - toHigh, toLow - high));
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    transferLowFloors[pair] = low;
+                    transferHighFloors[pair] = high;
+                }
+            }
+        }
+    }
+
+    private static boolean overlap(List<int[]> zones, int zone, int other) {
+        return zone != other && zones.get(zone)[0] <= zones.get(other)[1] && zones.get(other)[0] <= zones.get(zone)[1];
+    }
+
+    /**
+     * Whether the elevators serve different floors, so that some trips need the right elevator or a change.
+     *
+     * @return {@code true} if the building has more than one zone
+     */
+    public boolean isZoned() {
+        return amountOfZones > 1;
+    }
+
+    /**
+     * The floor a human should travel to next on the way to their destination.
+     *
+     * @param fromFloor the floor the human is at
+     * @param toFloor   the floor the human eventually wants to reach
+     * @return the destination itself if an elevator serves both floors,
+     * otherwise the floor to change elevators at, which an elevator serving the given floor serves as well
+     * @throws IllegalArgumentException if a floor is not served or no elevators connect the floors
+     */
+    public int nextLegDestination(int fromFloor, int toFloor) {
+        if (fromFloor == toFloor) {
+            return toFloor;
+        }
+        int pair = segment(fromFloor) * amountOfSegments + segment(toFloor);
+        int low = transferLowFloors[pair];
+        if (low == DIRECT) {
+            return toFloor;
+        }
+        if (low == UNREACHABLE) {
+            throw new IllegalArgumentException("No elevators connect floor %d to floor %d"
+                    .formatted(fromFloor, toFloor));
+        }
+        return Math.clamp(toFloor, low, transferHighFloors[pair]);
+    }
+
+    /**
+     * How often a human has to change elevators at least to travel between the given floors.
+     *
+     * @param fromFloor the floor the human is at
+     * @param toFloor   the floor the human wants to reach
+     * @return the amount of changes, 0 if an elevator serves both floors
+     * @throws IllegalArgumentException if a floor is not served or no elevators connect the floors
+     */
+    public int changesBetween(int fromFloor, int toFloor) {
+        int changes = 0;
+        for (int floor = fromFloor; floor != toFloor; changes++) {
+            int next = nextLegDestination(floor, toFloor);
+            if (next == toFloor) {
+                return changes;
+            }
+            floor = next;
+        }
+        return changes;
+    }
+
+    private int segment(int floor) {
+        if (floor < minFloor || floor > topFloor) {
+            throw new IllegalArgumentException("Floor %d is not served, the building has floors %d to %d"
+                    .formatted(floor, minFloor, topFloor));
+        }
+        return segmentOfFloor[floor - minFloor];
+    }
+}
@@ -0,0 +1,41 @@
+package org.togetherjava.event.elevator.humans;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups identical humans into cohorts, see {@link Human#Human(int, int, int)}.
+ */
+public final class Cohorts {
+    private Cohorts() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * Aggregates humans with the same starting and destination floor into cohorts.
+     * The humans are expected to request an elevator at the same time.
+     *
+     * @param humans the humans to aggregate, cohorts themselves may be part of it as well
+     * @return new cohorts, in the order their first member was given, containing all members of all humans
+     * @throws IllegalArgumentException if any of the humans requested an elevator already
+     */
+    public static List<Human> aggregate(Collection<Human> humans) {
+        Map<Long, Integer> tripToCohortSize = new LinkedHashMap<>();
+        for (Human human : humans) {
+            if (human.getCurrentState() != Human.State.IDLE) {
+                throw new IllegalArgumentException("Only humans that did not start yet can be aggregated, but got "
+                        + human);
+            }
+            long trip = ((long) human.getStartingFloor() << Integer.SIZE) | human.getDestinationFloor();
+            tripToCohortSize.merge(trip, human.getCohortSize(), Math::addExact);
+        }
+
+        List<Human> cohorts = new ArrayList<>(tripToCohortSize.size());
+        tripToCohortSize.forEach((trip, cohortSize) -> cohorts.add(
+                new Human((int) (trip >>> Integer.SIZE), (int) (long) trip, cohortSize)));
+        return cohorts;
+    }
+}
@@ -16,18 +16,34 @@ import java.util.StringJoiner;
  * <p>
  * The class mainly acts upon given elevator events it listens to,
  * for example requesting an elevator, eventually entering and exiting them.
+ * <p>
+ * A human may also stand for a cohort of identical humans, see {@link #Human(int, int, int)}.
+ * <p>
+ * If no elevator serves both floors, the trip consists of several legs, see
+ * {@link FloorPanelSystem#nextLegDestination(int, int)}. At the end of each but the last leg, the human leaves
+ * the elevator and waits for one serving the next leg.
  */
 public final class Human implements ElevatorListener {
+    private static final int NO_ELEVATOR = -1;
+
     private State currentState;
     private final int startingFloor;
     private final int destinationFloor;
+    private final int cohortSize;
     private Elevator bestElevator = null;
+    private FloorPanelSystem floorPanelSystem;
+    /**
+     * The floors of the current leg of the trip. Equal to the starting and destination floor unless the human has
+     * to change elevators on the way.
+     */
+    private int legStartingFloor;
+    private int legDestinationFloor;
     /**
      * If the human is currently inside an elevator, this is its unique ID.
-     * Otherwise, this is {@code null} to indicate that the human is currently on the corridor.
+     * Otherwise, this is {@link #NO_ELEVATOR} to indicate that the human is currently on the corridor.
      */
-    private Integer currentEnteredElevatorId;
-    private final List<HumanArrivedListener> listeners = new ArrayList<>();
+    private int currentEnteredElevatorId = NO_ELEVATOR;
+    private final List<HumanArrivedListener> listeners = new ArrayList<>(1);
     /**
      * Creates a new human.
      * <p>
@@ -38,12 +54,33 @@ public final class Human implements ElevatorListener {
      * @param destinationFloor the floor the human eventually wants to reach, must be greater than or equal to 1
      */
     public Human(int startingFloor, int destinationFloor) {
+        this(startingFloor, destinationFloor, 1);
+    }
+
+    /**
+     * Creates a cohort of humans that start at the same floor, want to reach the same destination
+     * and request an elevator at the same time.
+     * <p>
+     * Such humans enter and exit the same elevator together, so the cohort acts as a single human.
+     * Every member still requests an elevator, as individual humans would.
+     *
+     * @param startingFloor    the floor the humans currently stand at, must be greater than or equal to 1
+     * @param destinationFloor the floor the humans eventually want to reach, must be greater than or equal to 1
+     * @param cohortSize       the amount of humans, must be at least 1
+     */
+    public Human(int startingFloor, int destinationFloor, int cohortSize) {
         if (startingFloor <= 0 || destinationFloor <= 0) {
             throw new IllegalArgumentException("Floors must be at least 1");
         }
+        if (cohortSize <= 0) {
+            throw new IllegalArgumentException("A cohort must have at least 1 human");
+        }
 
         this.startingFloor = startingFloor;
         this.destinationFloor = destinationFloor;
+        this.cohortSize = cohortSize;
+        legStartingFloor = startingFloor;
+        legDestinationFloor = destinationFloor;
 
         currentState = State.IDLE;
     }
@@ -57,8 +94,62 @@ public final class Human implements ElevatorListener {
             return; //dont want to notify listeners again for our arrival
         }
         this.currentState = State.ARRIVED;
-        for (var listener : listeners) {
-            listener.onHumanArrived(this);
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onHumanArrived(this);
+        }
+    }
+
+    private void setEntered(ElevatorPanel elevatorPanel) {
+        this.currentState = State.TRAVELING_WITH_ELEVATOR;
+        this.currentEnteredElevatorId = elevatorPanel.getId();
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onHumanEnteredElevator(this, elevatorPanel.getId());
+        }
+    }
+
+    /**
+     * Continues the journey of this human from a previously stored state,
+     * instead of starting it via {@link #onElevatorSystemReady(FloorPanelSystem)}. Listeners are not notified.
+     *
+     * @param state           the state to continue from
+     * @param enteredElevator the elevator the human is traveling with if the state is
+     *                        {@link State#TRAVELING_WITH_ELEVATOR}, {@code null} otherwise
+     * @throws IllegalStateException if the human already left their initial state
+     */
+    public void restoreState(State state, Elevator enteredElevator) {
+        restoreState(state, enteredElevator, null, startingFloor, destinationFloor);
+    }
+
+    /**
+     * Continues the journey of this human from a previously stored state in the middle of a trip with changes,
+     * instead of starting it via {@link #onElevatorSystemReady(FloorPanelSystem)}. Listeners are not notified.
+     *
+     * @param state               the state to continue from
+     * @param enteredElevator     the elevator the human is traveling with if the state is
+     *                            {@link State#TRAVELING_WITH_ELEVATOR}, {@code null} otherwise
+     * @param floorPanelSystem    the system to request elevators from when changing elevators,
+     *                            may be {@code null} if the current leg is the last
+     * @param legStartingFloor    the floor the current leg starts at
+     * @param legDestinationFloor the floor the current leg ends at
+     * @throws IllegalStateException if the human already left their initial state
+     */
+    public void restoreState(State state, Elevator enteredElevator, FloorPanelSystem floorPanelSystem,
+            int legStartingFloor, int legDestinationFloor) {
+        if (currentState != State.IDLE) {
+            throw new IllegalStateException("Only a human that did not start yet can be restored, but was " + currentState);
+        }
+        if ((state == State.TRAVELING_WITH_ELEVATOR) != (enteredElevator != null)) {
+            throw new IllegalArgumentException("Exactly the humans traveling with an elevator need to be in one.");
+        }
+        if (legStartingFloor <= 0 || legDestinationFloor <= 0) {
+            throw new IllegalArgumentException("Floors must be at least 1");
+        }
+        currentState = state;
+        this.floorPanelSystem = floorPanelSystem;
+        this.legStartingFloor = legStartingFloor;
+        this.legDestinationFloor = legDestinationFloor;
+        if (enteredElevator != null) {
+            currentEnteredElevatorId = enteredElevator.getId();
         }
     }
 
@@ -74,6 +165,33 @@ public final class Human implements ElevatorListener {
         return destinationFloor;
     }
 
+    /**
+     * The floor the current leg of the trip starts at, where the human waits or entered their elevator.
+     *
+     * @return the starting floor, unless the human changed elevators already
+     */
+    public int getLegStartingFloor() {
+        return legStartingFloor;
+    }
+
+    /**
+     * The floor the current leg of the trip ends at, where the human leaves their elevator.
+     *
+     * @return the destination floor, unless the human has to change elevators on the way
+     */
+    public int getLegDestinationFloor() {
+        return legDestinationFloor;
+    }
+
+    /**
+     * The amount of humans this stands for.
+     *
+     * @return 1 for a single human, the size of the cohort otherwise
+     */
+    public int getCohortSize() {
+        return cohortSize;
+    }
+
     @Override
     public void onElevatorSystemReady(FloorPanelSystem floorPanelSystem) {
         // TODO Implement. The system is now ready and the human should leave
@@ -82,17 +200,26 @@ public final class Human implements ElevatorListener {
         if (this.getCurrentState() != State.IDLE) {
             return;
         }
-        this.currentState = State.WAITING_FOR_ELEVATOR;
         if (destinationFloor == startingFloor) {
+            // Already there, no elevator will ever stop here just for us
+            this.setArrived();
             return;
         }
-        bestElevator = floorPanelSystem.bestElevator(destinationFloor, destinationFloor > startingFloor ? TravelDirection.UP : TravelDirection.DOWN);
+        this.currentState = State.WAITING_FOR_ELEVATOR;
+        this.floorPanelSystem = floorPanelSystem;
+        legDestinationFloor = floorPanelSystem.nextLegDestination(startingFloor, destinationFloor);
+        TravelDirection desiredTravelDirection = legDestinationFloor > startingFloor ? TravelDirection.UP : TravelDirection.DOWN;
+        bestElevator = floorPanelSystem.bestElevatorFor(startingFloor, legDestinationFloor);
+        floorPanelSystem.requestElevator(bestElevator, startingFloor, desiredTravelDirection);
         if(bestElevator.getCurrentFloor() == startingFloor) {
-            this.currentEnteredElevatorId = bestElevator.getId();
-            this.currentState = State.TRAVELING_WITH_ELEVATOR;
-            return;
+            this.setEntered(bestElevator);
+            bestElevator.requestDestinationFloor(legDestinationFloor);
+        }
+        // The other members press the button as well, as individual humans would, so cohorts do not change dispatching
+        for (int i = 1; i < cohortSize; i++) {
+            floorPanelSystem.requestElevator(floorPanelSystem.bestElevatorFor(startingFloor, legDestinationFloor),
+                    startingFloor, desiredTravelDirection);
         }
-        floorPanelSystem.requestElevator(bestElevator,startingFloor);
     }
 
     @Override
@@ -103,26 +230,42 @@ public final class Human implements ElevatorListener {
         //  If the human is currently traveling with this elevator and the event represents
         //  arrival at the human's destination floor, the human can now exit the elevator.
         if (this.getCurrentState() == State.ARRIVED ||
-                (this.getDestinationFloor() != elevatorPanel.getCurrentFloor() && this.getStartingFloor() != elevatorPanel.getCurrentFloor())) {
+                (legDestinationFloor != elevatorPanel.getCurrentFloor() && legStartingFloor != elevatorPanel.getCurrentFloor())) {
             return;
         }
         //are we on our destination floor or is our elevator at our destination floor? hop out
-        if (startingFloor == destinationFloor || (destinationFloor == elevatorPanel.getCurrentFloor() && this.currentEnteredElevatorId != null && this.currentEnteredElevatorId == elevatorPanel.getId())) {
-            this.currentEnteredElevatorId = null;
-            this.setArrived();
+        if (startingFloor == destinationFloor || (legDestinationFloor == elevatorPanel.getCurrentFloor() && this.currentEnteredElevatorId == elevatorPanel.getId())) {
+            this.currentEnteredElevatorId = NO_ELEVATOR;
+            if (legDestinationFloor == destinationFloor) {
+                this.setArrived();
+            } else {
+                changeElevators();
+            }
             return;
         }
-        assert bestElevator != null;
-        //elevator's in our floor and we arent traveling? hop in
-        if (startingFloor == elevatorPanel.getCurrentFloor() && this.getCurrentState() != State.TRAVELING_WITH_ELEVATOR) {
-            this.currentState = State.TRAVELING_WITH_ELEVATOR;
-            this.currentEnteredElevatorId = elevatorPanel.getId();
-            elevatorPanel.requestDestinationFloor(destinationFloor);
+        assert currentState != State.IDLE : "Human did not request an elevator yet";
+        //elevator's in our floor, goes where we want to and we arent traveling? hop in
+        if (legStartingFloor == elevatorPanel.getCurrentFloor() && this.getCurrentState() != State.TRAVELING_WITH_ELEVATOR
+                && elevatorPanel.serves(legDestinationFloor)) {
+            this.setEntered(elevatorPanel);
+            elevatorPanel.requestDestinationFloor(legDestinationFloor);
+        }
+    }
+
+    /**
+     * Starts the next leg of the trip at the current floor, waiting for an elevator again.
+     */
+    private void changeElevators() {
+        legStartingFloor = legDestinationFloor;
+        legDestinationFloor = floorPanelSystem.nextLegDestination(legStartingFloor, destinationFloor);
+        currentState = State.WAITING_FOR_ELEVATOR;
+        for (int i = 0; i < cohortSize; i++) {
+            floorPanelSystem.requestTransfer(legStartingFloor, legDestinationFloor);
         }
     }
 
     public OptionalInt getCurrentEnteredElevatorId() {
-        return currentEnteredElevatorId == null
+        return currentEnteredElevatorId == NO_ELEVATOR
                 ? OptionalInt.empty()
                 : OptionalInt.of(currentEnteredElevatorId);
     }
@@ -133,7 +276,10 @@ public final class Human implements ElevatorListener {
                 .add("currentState=" + currentState)
                 .add("startingFloor=" + startingFloor)
                 .add("destinationFloor=" + destinationFloor)
-                .add("currentEnteredElevatorId=" + currentEnteredElevatorId)
+                .add("legStartingFloor=" + legStartingFloor)
+                .add("legDestinationFloor=" + legDestinationFloor)
+                .add("cohortSize=" + cohortSize)
+                .add("currentEnteredElevatorId=" + (currentEnteredElevatorId == NO_ELEVATOR ? null : currentEnteredElevatorId))
                 .toString();
     }
 
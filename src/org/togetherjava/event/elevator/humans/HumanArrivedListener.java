@@ -3,5 +3,15 @@ package org.togetherjava.event.elevator.humans;
 @FunctionalInterface
 public interface HumanArrivedListener {
     void onHumanArrived(Human human);
+
+    /**
+     * Fired when the human entered an elevator.
+     *
+     * @param human      the human that entered
+     * @param elevatorId the unique ID of the elevator the human entered
+     */
+    default void onHumanEnteredElevator(Human human, int elevatorId) {
+        // Most listeners only care about arrivals
+    }
 }
 
@@ -0,0 +1,98 @@
+package org.togetherjava.event.elevator.regression;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * CSV file storing the measurements considered as reference, one scenario per line:
+ * <pre>
+ * scenario,wallTimeMillis,steps,allocatedBytes,medianWaitSteps,p99WaitSteps
+ * simple,0,17,123456,2,5
+ * </pre>
+ * The columns follow the order of {@link Measurement.Metric}.
+ */
+public final class BaselineFile {
+    private static final String SCENARIO_COLUMN = "scenario";
+    private static final String SEPARATOR = ",";
+
+    private BaselineFile() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * Writes the given measurements to the given file, replacing it if it already exists.
+     *
+     * @param path         the file to write to
+     * @param measurements the measurements to store
+     */
+    public static void write(Path path, List<Measurement> measurements) {
+        List<String> lines = new ArrayList<>();
+        lines.add(header());
+        for (Measurement measurement : measurements) {
+            StringBuilder line = new StringBuilder(measurement.scenario());
+            for (Measurement.Metric metric : Measurement.Metric.values()) {
+                line.append(SEPARATOR).append(metric.valueOf(measurement));
+            }
+            lines.add(line.toString());
+        }
+        try {
+            Files.write(path, lines);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write baseline " + path, e);
+        }
+    }
+
+    /**
+     * Reads the measurements stored in the given file.
+     *
+     * @param path the file to read from
+     * @return the measurements by scenario name, in the order of the file
+     * @throws IllegalArgumentException if the file is not a valid baseline
+     */
+    public static Map<String, Measurement> read(Path path) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read baseline " + path, e);
+        }
+        if (lines.isEmpty() || !lines.getFirst().equals(header())) {
+            throw new IllegalArgumentException("Not a baseline, expected the header '%s': %s".formatted(header(), path));
+        }
+
+        Map<String, Measurement> measurements = new LinkedHashMap<>();
+        for (int i = 1; i < lines.size(); i++) {
+            if (lines.get(i).isBlank()) {
+                continue;
+            }
+            String[] columns = lines.get(i).split(SEPARATOR);
+            if (columns.length != 1 + Measurement.Metric.values().length) {
+                throw new IllegalArgumentException("Invalid baseline, line %d has %d columns: %s"
+                        .formatted(i + 1, columns.length, path));
+            }
+            try {
+                long[] values = Arrays.stream(columns, 1, columns.length).mapToLong(Long::parseLong).toArray();
+                measurements.put(columns[0], new Measurement(columns[0], values[0], values[1], values[2], values[3],
+                        values[4]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid baseline, line %d is not a number: %s"
+                        .formatted(i + 1, path), e);
+            }
+        }
+        return measurements;
+    }
+
+    private static String header() {
+        return Arrays.stream(Measurement.Metric.values())
+                .map(Measurement.Metric::getColumnName)
+                .collect(Collectors.joining(SEPARATOR, SCENARIO_COLUMN + SEPARATOR, ""));
+    }
+}
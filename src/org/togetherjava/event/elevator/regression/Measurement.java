@@ -0,0 +1,134 @@
+package org.togetherjava.event.elevator.regression;
+
+import com.sun.management.ThreadMXBean;
+import org.togetherjava.event.elevator.humans.Human;
+import org.togetherjava.event.elevator.simulation.Simulation;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Performance and quality of a single scenario run.
+ *
+ * @param scenario        the name of the scenario in the {@link ScenarioCatalog}
+ * @param wallTimeMillis  how long it took to execute the simulation until done, excluding its creation
+ * @param steps           the amount of steps until all humans arrived
+ * @param allocatedBytes  the amount of bytes allocated by all threads while executing the simulation
+ * @param medianWaitSteps the median amount of steps humans waited for an elevator
+ * @param p99WaitSteps    the amount of steps 99% of the humans waited for an elevator at most
+ */
+public record Measurement(String scenario, long wallTimeMillis, long steps, long allocatedBytes, long medianWaitSteps,
+        long p99WaitSteps) {
+    /**
+     * Runs the given scenario until done and measures it.
+     * <p>
+     * The scenario is run the given amount of times, the fastest and least allocating run counts.
+     * All other metrics are the same for every run, as scenarios are deterministic.
+     *
+     * @param entry the scenario to run
+     * @param runs  how often to run the scenario, at least 1
+     * @return the measurement
+     */
+    public static Measurement of(ScenarioCatalog.Entry entry, int runs) {
+        if (runs < 1) {
+            throw new IllegalArgumentException("Scenarios have to be run at least once.");
+        }
+        Measurement best = null;
+        for (int run = 0; run < runs; run++) {
+            Measurement measurement = measureOnce(entry);
+            best = best == null ? measurement : new Measurement(entry.name(),
+                    Math.min(best.wallTimeMillis, measurement.wallTimeMillis), measurement.steps,
+                    Math.min(best.allocatedBytes, measurement.allocatedBytes), measurement.medianWaitSteps,
+                    measurement.p99WaitSteps);
+        }
+        return best;
+    }
+
+    private static Measurement measureOnce(ScenarioCatalog.Entry entry) {
+        Simulation simulation = entry.createSimulation();
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        long allocatedBefore = allocatedBytes(threads);
+        long before = System.nanoTime();
+        simulation.startAndExecuteUntilDone(ScenarioCatalog.STEP_LIMIT);
+        long wallTimeMillis = (System.nanoTime() - before) / 1_000_000;
+        long allocated = allocatedBytes(threads) - allocatedBefore;
+
+        return new Measurement(entry.name(), wallTimeMillis, simulation.getStepCount(), allocated,
+                simulation.getStepsForStatePercentile(Human.State.WAITING_FOR_ELEVATOR, 50),
+                simulation.getStepsForStatePercentile(Human.State.WAITING_FOR_ELEVATOR, 99));
+    }
+
+    /**
+     * Sums up the allocations of all live threads, as the simulation may use worker threads.
+     */
+    private static long allocatedBytes(ThreadMXBean threads) {
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            return 0;
+        }
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            // Threads that died in the meantime report -1
+            total += Math.max(allocated, 0);
+        }
+        return total;
+    }
+
+    /**
+     * Compares this measurement to a baseline of the same scenario.
+     * <p>
+     * A metric regressed if it grew by more than the given share of its baseline value,
+     * plus a small absolute slack to ignore noise on tiny values.
+     *
+     * @param baseline  the measurement to compare to
+     * @param tolerance the share a metric may grow by, for example 0.1 for 10%
+     * @return a description of every metric that regressed, empty if none
+     */
+    public List<String> regressionsAgainst(Measurement baseline, double tolerance) {
+        if (!scenario.equals(baseline.scenario)) {
+            throw new IllegalArgumentException("Can only compare measurements of the same scenario, but got %s and %s"
+                    .formatted(scenario, baseline.scenario));
+        }
+        List<String> regressions = new ArrayList<>();
+        for (Metric metric : Metric.values()) {
+            long expected = metric.valueOf(baseline);
+            long actual = metric.valueOf(this);
+            if (actual > expected * (1 + tolerance) + metric.slack) {
+                regressions.add("%s: %s went from %d to %d (%+.1f%%)".formatted(scenario, metric.columnName,
+                        expected, actual, expected == 0 ? 100.0 : 100.0 * (actual - expected) / expected));
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * The measured values, in the order they are stored in baseline files.
+     */
+    public enum Metric {
+        WALL_TIME_MILLIS("wallTimeMillis", 50, Measurement::wallTimeMillis),
+        STEPS("steps", 0, Measurement::steps),
+        ALLOCATED_BYTES("allocatedBytes", 1 << 20, Measurement::allocatedBytes),
+        MEDIAN_WAIT_STEPS("medianWaitSteps", 1, Measurement::medianWaitSteps),
+        P99_WAIT_STEPS("p99WaitSteps", 1, Measurement::p99WaitSteps);
+
+        private final String columnName;
+        private final long slack;
+        private final ToLongFunction<Measurement> getter;
+
+        Metric(String columnName, long slack, ToLongFunction<Measurement> getter) {
+            this.columnName = columnName;
+            this.slack = slack;
+            this.getter = getter;
+        }
+
+        public String getColumnName() {
+            return columnName;
+        }
+
+        public long valueOf(Measurement measurement) {
+            return getter.applyAsLong(measurement);
+        }
+    }
+}
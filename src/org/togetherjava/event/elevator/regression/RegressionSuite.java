@@ -0,0 +1,98 @@
+package org.togetherjava.event.elevator.regression;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs scenarios of the {@link ScenarioCatalog} and compares them to a {@link BaselineFile}.
+ * <p>
+ * Usage: {@code RegressionSuite [--record] [--baseline <file>] [--tolerance <share>] [--runs <n>] [scenario...]}
+ * <ul>
+ *     <li>{@code --record} stores the measurements as new baseline instead of comparing to it</li>
+ *     <li>{@code --baseline} the baseline file, {@code regression-baseline.csv} by default</li>
+ *     <li>{@code --tolerance} the share a metric may grow by before it counts as regression, 0.1 by default</li>
+ *     <li>{@code --runs} how often each scenario is run, its best run counts, 1 by default</li>
+ * </ul>
+ * Without scenario names, the whole catalog is run. Exits with status 1 if any metric regressed.
+ */
+public final class RegressionSuite {
+    private RegressionSuite() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    public static void main(final String[] args) {
+        boolean record = false;
+        Path baselinePath = Path.of("regression-baseline.csv");
+        double tolerance = 0.1;
+        int runs = 1;
+        List<ScenarioCatalog.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--record" -> record = true;
+                case "--baseline" -> baselinePath = Path.of(valueOf(args, ++i));
+                case "--tolerance" -> tolerance = Double.parseDouble(valueOf(args, ++i));
+                case "--runs" -> runs = Integer.parseInt(valueOf(args, ++i));
+                default -> entries.add(ScenarioCatalog.get(args[i]));
+            }
+        }
+        if (entries.isEmpty()) {
+            entries.addAll(ScenarioCatalog.entries());
+        }
+
+        List<Measurement> measurements = new ArrayList<>();
+        for (ScenarioCatalog.Entry entry : entries) {
+            Measurement measurement = Measurement.of(entry, runs);
+            System.out.println(measurement);
+            measurements.add(measurement);
+        }
+
+        if (record) {
+            BaselineFile.write(baselinePath, measurements);
+            System.out.println("Recorded baseline " + baselinePath);
+            return;
+        }
+        if (!Files.exists(baselinePath)) {
+            System.out.println("No baseline found at " + baselinePath + ", record one using --record");
+            return;
+        }
+
+        List<String> regressions = findRegressions(BaselineFile.read(baselinePath), measurements, tolerance);
+        if (regressions.isEmpty()) {
+            System.out.println("No regressions compared to " + baselinePath);
+            return;
+        }
+        System.out.println("Regressions compared to " + baselinePath + ":");
+        regressions.forEach(regression -> System.out.println("\t" + regression));
+        System.exit(1);
+    }
+
+    /**
+     * Compares measurements to their baseline.
+     *
+     * @param baseline     the baseline measurements by scenario name
+     * @param measurements the current measurements
+     * @param tolerance    the share a metric may grow by, for example 0.1 for 10%
+     * @return descriptions of all regressed metrics, scenarios without baseline are skipped
+     */
+    public static List<String> findRegressions(Map<String, Measurement> baseline, List<Measurement> measurements,
+            double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        for (Measurement measurement : measurements) {
+            Measurement expected = baseline.get(measurement.scenario());
+            if (expected != null) {
+                regressions.addAll(measurement.regressionsAgainst(expected, tolerance));
+            }
+        }
+        return regressions;
+    }
+
+    private static String valueOf(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+        return args[index];
+    }
+}
@@ -0,0 +1,76 @@
+package org.togetherjava.event.elevator.regression;
+
+import org.togetherjava.event.elevator.scenarios.TrafficProfile;
+import org.togetherjava.event.elevator.scenarios.TrafficWorkload;
+import org.togetherjava.event.elevator.simulation.Simulation;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Named catalog of the canonical scenarios used to judge the performance of the engine.
+ * <p>
+ * All scenarios are seeded, so every run of a scenario simulates exactly the same building.
+ * Names are stable, as they identify the scenarios in baseline files.
+ */
+public final class ScenarioCatalog {
+    /**
+     * After how many steps a scenario is considered to be stuck, same as in {@link org.togetherjava.event.elevator.Main}.
+     */
+    static final int STEP_LIMIT = 200_000;
+
+    private static final List<Entry> ENTRIES = List.of(
+            new Entry("single-elevator-single-human", Simulation::createSingleElevatorSingleHumanSimulation),
+            new Entry("simple", Simulation::createSimpleSimulation),
+            new Entry("small-random", () -> Simulation.createRandomSimulation(1, 5, 50, 10)),
+            new Entry("medium-random", () -> Simulation.createRandomSimulation(2, 20, 1_000, 50)),
+            new Entry("few-elevators-5k", () -> Simulation.createRandomSimulation(4637787693156730566L, 5, 5_000, 100)),
+            new Entry("many-elevators-5k",
+                    () -> Simulation.createRandomSimulation(4637787693156730566L, 20, 5_000, 100)),
+            new Entry("office-day", () -> TrafficWorkload.createSimulation(3, 10, 50, TrafficProfile.officeDay(500, 2))),
+            new Entry("zoned-tower", () -> Simulation.createZonedSimulation(5, 4, 4, 26, 5_000)),
+            new Entry("large-fleet-tall-building",
+                    () -> Simulation.createRandomSimulation(-806872529110342439L, 200, 50_000, 1000)),
+            new Entry("crowded-100k", () -> Simulation.createRandomSimulation(3, 100, 100_000, 100)),
+            new Entry("crowded-100k-cohorts", () -> Simulation.createRandomCohortSimulation(3, 100, 100_000, 100)));
+
+    private ScenarioCatalog() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * All scenarios of the catalog, the small ones first.
+     *
+     * @return the scenarios
+     */
+    public static List<Entry> entries() {
+        return ENTRIES;
+    }
+
+    /**
+     * Finds a scenario by its name.
+     *
+     * @param name the name of the scenario
+     * @return the scenario
+     * @throws IllegalArgumentException if the catalog has no scenario with that name
+     */
+    public static Entry get(String name) {
+        return ENTRIES.stream()
+                .filter(entry -> entry.name().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown scenario '%s', known are: %s"
+                        .formatted(name, ENTRIES.stream().map(Entry::name).toList())));
+    }
+
+    /**
+     * A scenario of the catalog.
+     *
+     * @param name    the unique name of the scenario
+     * @param factory creates the simulation of the scenario, not started yet
+     */
+    public record Entry(String name, Supplier<Simulation> factory) {
+        public Simulation createSimulation() {
+            return factory.get();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package org.togetherjava.event.elevator.scenarios;
+
+import org.togetherjava.event.elevator.elevators.Elevator;
+import org.togetherjava.event.elevator.humans.Human;
+import org.togetherjava.event.elevator.simulation.Simulation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Compact binary format for storing the initial state of a simulation.
+ * <p>
+ * A scenario file consists of a fixed size header followed by all elevators and all humans:
+ * <pre>
+ * int magic, int version, int amountOfElevators, int amountOfHumans
+ * amountOfElevators * (int minFloor, int floorsServed, int currentFloor)
+ * amountOfHumans    * (int startingFloor, int destinationFloor)
+ * </pre>
+ * All values are stored big-endian. Files are written through {@link Writer}
+ * and loaded by memory mapping them with {@link #read(Path)}.
+ */
+public final class ScenarioFile {
+    private static final int MAGIC = 0x454C_5343; // "ELSC"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES;
+    private static final int ELEVATOR_BYTES = 3 * Integer.BYTES;
+    private static final int HUMAN_BYTES = 2 * Integer.BYTES;
+    /**
+     * Humans are created in parallel in chunks of this size when loading a scenario.
+     */
+    private static final int HUMANS_PER_CHUNK = 1 << 16;
+
+    private ScenarioFile() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * Writes the given elevators and humans as scenario to the given file, replacing it if it already exists.
+     * <p>
+     * The current floor of each elevator is stored as its starting floor,
+     * so this should be called before the elevators started moving.
+     *
+     * @param path      the file to write to
+     * @param elevators the elevators of the scenario
+     * @param humans    the humans of the scenario
+     */
+    public static void write(Path path, List<Elevator> elevators, List<Human> humans) {
+        try (Writer writer = new Writer(path)) {
+            elevators.forEach(elevator -> writer.writeElevator(elevator.getMinFloor(),
+                    elevator.getFloorsServed(), elevator.getCurrentFloor()));
+            humans.forEach(human -> writer.writeHuman(human.getStartingFloor(), human.getDestinationFloor()));
+        }
+    }
+
+    /**
+     * Loads the scenario stored in the given file and creates a simulation for it.
+     * <p>
+     * The file is memory mapped, humans are created directly from the mapped data in parallel.
+     *
+     * @param path the file to read from, must have been written by {@link Writer}
+     * @return a new simulation, not started yet
+     */
+    public static Simulation read(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IllegalArgumentException("Not a scenario file, it is too small: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException("Not a scenario file, the magic number does not match: " + path);
+            }
+            int version = buffer.getInt(Integer.BYTES);
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported scenario file version %d, expected %d: %s"
+                        .formatted(version, VERSION, path));
+            }
+            int amountOfElevators = buffer.getInt(2 * Integer.BYTES);
+            int amountOfHumans = buffer.getInt(3 * Integer.BYTES);
+            long humansOffset = HEADER_BYTES + (long) amountOfElevators * ELEVATOR_BYTES;
+            if (amountOfElevators < 0 || amountOfHumans < 0
+                    || size != humansOffset + (long) amountOfHumans * HUMAN_BYTES) {
+                throw new IllegalArgumentException("Corrupt scenario file, the size does not match its header: " + path);
+            }
+
+            Elevator[] elevators = new Elevator[amountOfElevators];
+            for (int i = 0; i < amountOfElevators; i++) {
+                int offset = HEADER_BYTES + i * ELEVATOR_BYTES;
+                elevators[i] = new Elevator(buffer.getInt(offset), buffer.getInt(offset + Integer.BYTES),
+                        buffer.getInt(offset + 2 * Integer.BYTES));
+            }
+
+            // Absolute reads do not touch the position of the buffer, so chunks can be read concurrently
+            Human[] humans = new Human[amountOfHumans];
+            int chunks = (amountOfHumans + HUMANS_PER_CHUNK - 1) / HUMANS_PER_CHUNK;
+            IntStream.range(0, chunks).parallel().forEach(chunk -> {
+                int end = Math.min(amountOfHumans, (chunk + 1) * HUMANS_PER_CHUNK);
+                for (int i = chunk * HUMANS_PER_CHUNK; i < end; i++) {
+                    int offset = (int) (humansOffset + (long) i * HUMAN_BYTES);
+                    humans[i] = new Human(buffer.getInt(offset), buffer.getInt(offset + Integer.BYTES));
+                }
+            });
+
+            return new Simulation(Arrays.asList(elevators), Arrays.asList(humans));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read scenario file " + path, e);
+        }
+    }
+
+    /**
+     * Writes a scenario file incrementally, without having to create any elevators or humans.
+     * <p>
+     * All elevators have to be written before the first human. The header is completed when the writer is closed.
+     */
+    public static final class Writer implements Closeable {
+        private static final int BUFFER_BYTES = 1 << 16;
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private int amountOfElevators;
+        private int amountOfHumans;
+
+        /**
+         * Creates a writer for the given file, replacing it if it already exists.
+         *
+         * @param path the file to write to
+         */
+        public Writer(Path path) {
+            try {
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to open scenario file " + path, e);
+            }
+            // Header is written on close, once the counts are known
+            buffer.position(HEADER_BYTES);
+        }
+
+        public void writeElevator(int minFloor, int floorsServed, int currentFloor) {
+            if (amountOfHumans > 0) {
+                throw new IllegalStateException("All elevators have to be written before the first human.");
+            }
+            ensureRemaining(ELEVATOR_BYTES);
+            buffer.putInt(minFloor).putInt(floorsServed).putInt(currentFloor);
+            amountOfElevators++;
+        }
+
+        public void writeHuman(int startingFloor, int destinationFloor) {
+            ensureRemaining(HUMAN_BYTES);
+            buffer.putInt(startingFloor).putInt(destinationFloor);
+            amountOfHumans++;
+        }
+
+        private void ensureRemaining(int bytes) {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to write scenario file", e);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() {
+            try (channel) {
+                flush();
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                        .putInt(MAGIC)
+                        .putInt(VERSION)
+                        .putInt(amountOfElevators)
+                        .putInt(amountOfHumans)
+                        .flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to write scenario file", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package org.togetherjava.event.elevator.scenarios;
+
+import org.togetherjava.event.elevator.elevators.Elevator;
+import org.togetherjava.event.elevator.humans.Human;
+import org.togetherjava.event.elevator.simulation.Simulation;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Deterministic generator for random scenarios with uniformly distributed floors.
+ * <p>
+ * Unlike {@link Simulation#createRandomSimulation(long, int, int, int)}, the generator does not draw from a shared
+ * sequential random number generator. Instead, it is counter-based: every value is a pure function of the seed and
+ * the index of the generated elevator or human. Hence, any human can be created on its own and on demand, and
+ * generation can be split across threads while still producing the exact same scenario for a given seed.
+ * <p>
+ * Note that the generated scenarios differ from the ones created by
+ * {@link Simulation#createRandomSimulation(long, int, int, int)} for the same seed.
+ */
+public final class ScenarioGenerator {
+    /**
+     * Increment of the SplitMix64 generator, the odd integer closest to 2^64 divided by the golden ratio.
+     */
+    private static final long GOLDEN_GAMMA = 0x9E37_79B9_7F4A_7C15L;
+    private static final long ELEVATOR_STREAM = 0x2545_F491_4F6C_DD1DL;
+    private static final long HUMAN_STREAM = 0x5851_F42D_4C95_7F2DL;
+    private static final int MIN_FLOOR = 1;
+
+    private final long seed;
+    private final int amountOfElevators;
+    private final int amountOfHumans;
+    private final int floorsServed;
+
+    /**
+     * Creates a new generator. Generators with equal arguments produce equal scenarios.
+     *
+     * @param seed              the seed of the scenario
+     * @param amountOfElevators the amount of elevators to generate
+     * @param amountOfHumans    the amount of humans to generate
+     * @param floorsServed      the amount of floors of the building, all elevators serve all floors
+     */
+    public ScenarioGenerator(long seed, int amountOfElevators, int amountOfHumans, int floorsServed) {
+        if (amountOfElevators < 1 || amountOfHumans < 0 || floorsServed < 2) {
+            throw new IllegalArgumentException(
+                    "Requires at least 1 elevator, a non-negative amount of humans and at least 2 floors.");
+        }
+        this.seed = seed;
+        this.amountOfElevators = amountOfElevators;
+        this.amountOfHumans = amountOfHumans;
+        this.floorsServed = floorsServed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getAmountOfElevators() {
+        return amountOfElevators;
+    }
+
+    public int getAmountOfHumans() {
+        return amountOfHumans;
+    }
+
+    public int getFloorsServed() {
+        return floorsServed;
+    }
+
+    /**
+     * The floor the elevator with the given index starts at.
+     *
+     * @param index the index of the elevator, between 0 (inclusive) and the amount of elevators (exclusive)
+     * @return the starting floor of the elevator
+     */
+    public int elevatorStartingFloor(int index) {
+        return floor(ELEVATOR_STREAM, index);
+    }
+
+    /**
+     * The floor the human with the given index starts at.
+     *
+     * @param index the index of the human, between 0 (inclusive) and the amount of humans (exclusive)
+     * @return the starting floor of the human
+     */
+    public int humanStartingFloor(int index) {
+        return floor(HUMAN_STREAM, 2L * index);
+    }
+
+    /**
+     * The floor the human with the given index wants to reach.
+     *
+     * @param index the index of the human, between 0 (inclusive) and the amount of humans (exclusive)
+     * @return the destination floor of the human
+     */
+    public int humanDestinationFloor(int index) {
+        return floor(HUMAN_STREAM, 2L * index + 1);
+    }
+
+    public Elevator createElevator(int index) {
+        return new Elevator(MIN_FLOOR, floorsServed, elevatorStartingFloor(index));
+    }
+
+    public Human createHuman(int index) {
+        return new Human(humanStartingFloor(index), humanDestinationFloor(index));
+    }
+
+    /**
+     * All elevators of the scenario, in index order.
+     *
+     * @return a lazy stream of all elevators
+     */
+    public Stream<Elevator> elevators() {
+        return IntStream.range(0, amountOfElevators).mapToObj(this::createElevator);
+    }
+
+    /**
+     * All humans of the scenario, in index order. The stream can be made parallel without changing its content.
+     *
+     * @return a lazy stream of all humans
+     */
+    public Stream<Human> humans() {
+        return IntStream.range(0, amountOfHumans).mapToObj(this::createHuman);
+    }
+
+    /**
+     * Generates the scenario, creating the humans in parallel.
+     *
+     * @return a new simulation of the scenario, not started yet
+     */
+    public Simulation createSimulation() {
+        List<Elevator> elevators = elevators().toList();
+        List<Human> humans = humans().parallel().toList();
+        return new Simulation(elevators, humans);
+    }
+
+    /**
+     * Generates the scenario directly into a scenario file, without creating any elevators or humans.
+     *
+     * @param writer the writer to write the scenario to, no elevators or humans must have been written to it yet
+     */
+    public void writeTo(ScenarioFile.Writer writer) {
+        for (int i = 0; i < amountOfElevators; i++) {
+            writer.writeElevator(MIN_FLOOR, floorsServed, elevatorStartingFloor(i));
+        }
+        for (int i = 0; i < amountOfHumans; i++) {
+            writer.writeHuman(humanStartingFloor(i), humanDestinationFloor(i));
+        }
+    }
+
+    private int floor(long stream, long counter) {
+        long bits = mix64(seed ^ stream) + (counter + 1) * GOLDEN_GAMMA;
+        // Maps the upper 32 random bits onto [0, floorsServed) without division
+        long offset = ((mix64(bits) >>> 32) * floorsServed) >>> 32;
+        return MIN_FLOOR + (int) offset;
+    }
+
+    /**
+     * The output function of SplitMix64, a bijective mixer with good avalanche behavior.
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58_476D_1CE4_E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D0_49BB_1331_11EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,327 @@
+package org.togetherjava.event.elevator.scenarios;
+
+import org.togetherjava.event.elevator.elevators.Elevator;
+import org.togetherjava.event.elevator.humans.Human;
+import org.togetherjava.event.elevator.simulation.Simulation;
+import org.togetherjava.event.elevator.simulation.Workload;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Workload replaying a recorded log of calls, each a human arriving at a floor and traveling to another.
+ * <p>
+ * The log is streamed through a small buffer, so reading it takes constant memory however large it is.
+ * Only the next call is kept in memory, until the simulation reaches its step. The simulation does not forget
+ * humans though: every replayed call stays a human of it, with its statistics, until the end of the run.
+ * Memory therefore grows with the amount of calls replayed, as does the time of a step, which updates the statistics
+ * of every human. Calls have to be ordered by their timestamp, the first call arrives at step 0.
+ * Logs are either CSV or binary, detected by their start.
+ * <p>
+ * CSV logs have a line per call, {@code timestamp,startingFloor,destinationFloor}. A first line that does not
+ * start with a digit is a header and skipped, as are empty lines. Binary logs are written by {@link Writer}:
+ * <pre>
+ * int magic, int version
+ * (long timestamp, int startingFloor, int destinationFloor) per call
+ * </pre>
+ * All values are stored big-endian. Timestamps can have any unit, as long as it is the same for all calls.
+ * The log file is closed once the workload is exhausted, or by {@link #close()}.
+ */
+public final class TraceWorkload implements Workload, Closeable {
+    private static final int MAGIC = 0x454C_5452; // "ELTR"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int CALL_BYTES = Long.BYTES + 2 * Integer.BYTES;
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final long timeUnitsPerStep;
+    private final boolean binary;
+    private boolean endOfFile;
+    private long line = 1;
+    private long firstTimestamp;
+    private long previousTimestamp = Long.MIN_VALUE;
+
+    private boolean hasNextCall;
+    private long nextCallStep;
+    private int nextCallStartingFloor;
+    private int nextCallDestinationFloor;
+
+    /**
+     * Opens the given log for replaying.
+     *
+     * @param path             the log to replay, CSV or binary
+     * @param timeUnitsPerStep how many units of the timestamps of the log make up one step of the simulation
+     */
+    public TraceWorkload(Path path, long timeUnitsPerStep) {
+        if (timeUnitsPerStep < 1) {
+            throw new IllegalArgumentException("Time units per step must be positive, but was " + timeUnitsPerStep);
+        }
+        this.path = path;
+        this.timeUnitsPerStep = timeUnitsPerStep;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open trace " + path, e);
+        }
+        buffer.limit(0);
+
+        fill();
+        binary = buffer.remaining() >= HEADER_BYTES && buffer.getInt(buffer.position()) == MAGIC;
+        if (binary) {
+            buffer.getInt();
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                close();
+                throw new IllegalArgumentException("Unsupported trace version %d, expected %d: %s"
+                        .formatted(version, VERSION, path));
+            }
+        } else if (peek() != -1 && !Character.isDigit(peek())) {
+            skipLine();
+        }
+        readNextCall();
+    }
+
+    /**
+     * Creates a simulation without any initial humans, driven by the calls of the given log.
+     *
+     * @param elevators        the elevators of the building, serving all floors of the log
+     * @param path             the log to replay, CSV or binary
+     * @param timeUnitsPerStep how many units of the timestamps of the log make up one step of the simulation
+     * @return a new simulation, not started yet
+     */
+    public static Simulation createSimulation(List<Elevator> elevators, Path path, long timeUnitsPerStep) {
+        Simulation simulation = new Simulation(elevators, List.of());
+        simulation.addWorkload(new TraceWorkload(path, timeUnitsPerStep));
+        return simulation;
+    }
+
+    @Override
+    public void injectArrivals(long step, Consumer<Human> arrivals) {
+        while (hasNextCall && nextCallStep <= step) {
+            arrivals.accept(new Human(nextCallStartingFloor, nextCallDestinationFloor));
+            readNextCall();
+        }
+    }
+
+    @Override
+    public boolean isExhausted() {
+        return !hasNextCall;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to close trace " + path, e);
+        }
+    }
+
+    private void readNextCall() {
+        hasNextCall = binary ? readBinaryCall() : readCsvCall();
+        if (!hasNextCall) {
+            close();
+        }
+    }
+
+    private boolean readBinaryCall() {
+        if (buffer.remaining() < CALL_BYTES) {
+            fill();
+            if (!buffer.hasRemaining()) {
+                return false;
+            }
+            if (buffer.remaining() < CALL_BYTES) {
+                throw corrupt("the last call is truncated");
+            }
+        }
+        setNextCall(buffer.getLong(), buffer.getInt(), buffer.getInt());
+        return true;
+    }
+
+    private boolean readCsvCall() {
+        while (peek() == '\n' || peek() == '\r') {
+            skipLine();
+        }
+        if (peek() == -1) {
+            return false;
+        }
+        long timestamp;
+        int startingFloor;
+        int destinationFloor;
+        try {
+            timestamp = readNumber();
+            expect(',');
+            startingFloor = Math.toIntExact(readNumber());
+            expect(',');
+            destinationFloor = Math.toIntExact(readNumber());
+        } catch (ArithmeticException e) {
+            throw corrupt("a number is out of range");
+        }
+        skipSpaces();
+        if (peek() != -1 && peek() != '\n' && peek() != '\r') {
+            throw corrupt("expected the end of the line");
+        }
+        skipLine();
+        setNextCall(timestamp, startingFloor, destinationFloor);
+        return true;
+    }
+
+    private void setNextCall(long timestamp, int startingFloor, int destinationFloor) {
+        if (previousTimestamp == Long.MIN_VALUE) {
+            firstTimestamp = timestamp;
+        } else if (timestamp < previousTimestamp) {
+            throw corrupt("calls are not ordered by timestamp, %d follows %d".formatted(timestamp, previousTimestamp));
+        }
+        previousTimestamp = timestamp;
+        nextCallStep = (timestamp - firstTimestamp) / timeUnitsPerStep;
+        nextCallStartingFloor = startingFloor;
+        nextCallDestinationFloor = destinationFloor;
+    }
+
+    private long readNumber() {
+        skipSpaces();
+        boolean negative = peek() == '-';
+        if (negative) {
+            buffer.get();
+        }
+        if (peek() == -1 || !Character.isDigit(peek())) {
+            throw corrupt("expected a number");
+        }
+        long value = 0;
+        while (peek() != -1 && Character.isDigit(peek())) {
+            value = Math.addExact(Math.multiplyExact(value, 10), buffer.get() - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    private void expect(char separator) {
+        skipSpaces();
+        if (peek() != separator) {
+            throw corrupt("expected '" + separator + "'");
+        }
+        buffer.get();
+    }
+
+    private void skipSpaces() {
+        while (peek() == ' ' || peek() == '\t') {
+            buffer.get();
+        }
+    }
+
+    private void skipLine() {
+        while (peek() != -1 && buffer.get() != '\n') {
+            // Skipping the rest of the line
+        }
+        line++;
+    }
+
+    /**
+     * The next byte of the log without consuming it, refilling the buffer if needed.
+     *
+     * @return the byte, or -1 at the end of the log
+     */
+    private int peek() {
+        if (!buffer.hasRemaining()) {
+            fill();
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+        }
+        return buffer.get(buffer.position()) & 0xFF;
+    }
+
+    /**
+     * Reads as much of the log as fits into the buffer, keeping what was not consumed yet.
+     */
+    private void fill() {
+        if (endOfFile) {
+            return;
+        }
+        buffer.compact();
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) == -1) {
+                    endOfFile = true;
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read trace " + path, e);
+        }
+        buffer.flip();
+    }
+
+    private IllegalArgumentException corrupt(String reason) {
+        close();
+        String location = binary ? "" : " in line " + line;
+        return new IllegalArgumentException("Corrupt trace, %s%s: %s".formatted(reason, location, path));
+    }
+
+    /**
+     * Writes a binary log incrementally.
+     */
+    public static final class Writer implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+        /**
+         * Creates a writer for the given file, replacing it if it already exists.
+         *
+         * @param path the file to write to
+         */
+        public Writer(Path path) {
+            try {
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to open trace " + path, e);
+            }
+            buffer.putInt(MAGIC).putInt(VERSION);
+        }
+
+        /**
+         * Appends a call, which must not be older than the previous one.
+         *
+         * @param timestamp        when the human arrived
+         * @param startingFloor    the floor the human arrived at
+         * @param destinationFloor the floor the human travels to
+         */
+        public void writeCall(long timestamp, int startingFloor, int destinationFloor) {
+            if (buffer.remaining() < CALL_BYTES) {
+                flush();
+            }
+            buffer.putLong(timestamp).putInt(startingFloor).putInt(destinationFloor);
+        }
+
+        private void flush() {
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to write trace", e);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() {
+            try (channel) {
+                flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to write trace", e);
+            }
+        }
+    }
+}
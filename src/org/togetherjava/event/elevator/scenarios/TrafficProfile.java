@@ -0,0 +1,138 @@
+package org.togetherjava.event.elevator.scenarios;
+
+import java.util.List;
+
+/**
+ * Time-varying shape of the traffic in a building, as a sequence of phases.
+ * <p>
+ * Each phase has its own arrival rate and splits the arriving humans into the classic traffic types:
+ * <ul>
+ *     <li>incoming, traveling from the lobby to an upper floor,</li>
+ *     <li>outgoing, traveling from an upper floor to the lobby and</li>
+ *     <li>interfloor, traveling between two upper floors.</li>
+ * </ul>
+ * The lobby is the lowest floor of the building.
+ *
+ * @param phases the phases of the profile, executed one after another
+ */
+public record TrafficProfile(List<Phase> phases) {
+    public TrafficProfile {
+        if (phases.isEmpty()) {
+            throw new IllegalArgumentException("A traffic profile needs at least one phase.");
+        }
+        phases = List.copyOf(phases);
+    }
+
+    public TrafficProfile(Phase... phases) {
+        this(List.of(phases));
+    }
+
+    /**
+     * Morning traffic, almost everyone arrives at the lobby and travels up.
+     *
+     * @param durationSteps   how many steps the peak lasts
+     * @param arrivalsPerStep the average amount of humans arriving per step
+     * @return the profile
+     */
+    public static TrafficProfile upPeak(long durationSteps, double arrivalsPerStep) {
+        return new TrafficProfile(upPeakPhase(durationSteps, arrivalsPerStep));
+    }
+
+    /**
+     * Lunch traffic, humans leave and return through the lobby in equal parts, with some interfloor traffic.
+     *
+     * @param durationSteps   how many steps the lunch traffic lasts
+     * @param arrivalsPerStep the average amount of humans arriving per step
+     * @return the profile
+     */
+    public static TrafficProfile lunch(long durationSteps, double arrivalsPerStep) {
+        return new TrafficProfile(lunchPhase(durationSteps, arrivalsPerStep));
+    }
+
+    /**
+     * Evening traffic, almost everyone travels down to the lobby.
+     *
+     * @param durationSteps   how many steps the peak lasts
+     * @param arrivalsPerStep the average amount of humans arriving per step
+     * @return the profile
+     */
+    public static TrafficProfile downPeak(long durationSteps, double arrivalsPerStep) {
+        return new TrafficProfile(downPeakPhase(durationSteps, arrivalsPerStep));
+    }
+
+    /**
+     * A full office day: morning up-peak, light interfloor traffic, lunch, light interfloor traffic
+     * and evening down-peak.
+     *
+     * @param stepsPerPhase       how many steps each of the five phases lasts
+     * @param peakArrivalsPerStep the average amount of humans arriving per step during the peaks,
+     *                            the traffic between the peaks is lighter
+     * @return the profile
+     */
+    public static TrafficProfile officeDay(long stepsPerPhase, double peakArrivalsPerStep) {
+        Phase betweenPeaks = new Phase(stepsPerPhase, peakArrivalsPerStep / 4, 0.1, 0.1);
+        return new TrafficProfile(upPeakPhase(stepsPerPhase, peakArrivalsPerStep),
+                betweenPeaks,
+                lunchPhase(stepsPerPhase, peakArrivalsPerStep * 2 / 3),
+                betweenPeaks,
+                downPeakPhase(stepsPerPhase, peakArrivalsPerStep));
+    }
+
+    private static Phase upPeakPhase(long durationSteps, double arrivalsPerStep) {
+        return new Phase(durationSteps, arrivalsPerStep, 0.85, 0.05);
+    }
+
+    private static Phase lunchPhase(long durationSteps, double arrivalsPerStep) {
+        return new Phase(durationSteps, arrivalsPerStep, 0.4, 0.4);
+    }
+
+    private static Phase downPeakPhase(long durationSteps, double arrivalsPerStep) {
+        return new Phase(durationSteps, arrivalsPerStep, 0.05, 0.85);
+    }
+
+    /**
+     * The total duration of the profile.
+     *
+     * @return the sum of the durations of all phases, in steps
+     */
+    public long durationSteps() {
+        return phases.stream().mapToLong(Phase::durationSteps).sum();
+    }
+
+    /**
+     * The phase that is active at the given step.
+     *
+     * @param step the step, relative to the start of the profile
+     * @return the phase at that step, or {@code null} if the profile is already over
+     */
+    public Phase phaseAt(long step) {
+        long phaseStart = 0;
+        for (Phase phase : phases) {
+            phaseStart += phase.durationSteps();
+            if (step < phaseStart) {
+                return phase;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A span of time with constant traffic characteristics.
+     *
+     * @param durationSteps   how many steps the phase lasts, must be positive
+     * @param arrivalsPerStep the average amount of humans arriving per step, must not be negative
+     * @param incomingShare   the share of humans traveling from the lobby upwards, between 0 and 1
+     * @param outgoingShare   the share of humans traveling down to the lobby, between 0 and 1.
+     *                        The remaining share of humans travels between upper floors.
+     */
+    public record Phase(long durationSteps, double arrivalsPerStep, double incomingShare, double outgoingShare) {
+        public Phase {
+            if (durationSteps <= 0 || arrivalsPerStep < 0) {
+                throw new IllegalArgumentException("Duration must be positive and arrival rate not negative.");
+            }
+            if (incomingShare < 0 || outgoingShare < 0 || incomingShare + outgoingShare > 1) {
+                throw new IllegalArgumentException("Traffic shares must not be negative and add up to at most 1.");
+            }
+        }
+    }
+}
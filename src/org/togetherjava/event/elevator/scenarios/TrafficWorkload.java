@@ -0,0 +1,130 @@
+package org.togetherjava.event.elevator.scenarios;
+
+import org.togetherjava.event.elevator.elevators.Elevator;
+import org.togetherjava.event.elevator.humans.Human;
+import org.togetherjava.event.elevator.simulation.Simulation;
+import org.togetherjava.event.elevator.simulation.Workload;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * Workload that lets humans arrive over time according to a {@link TrafficProfile}.
+ * <p>
+ * The amount of humans arriving per step is Poisson distributed with the arrival rate of the current phase.
+ * Each human is then assigned a trip according to the traffic shares of the phase, with the lobby being
+ * the lowest floor. Workloads with equal arguments produce equal arrivals.
+ */
+public final class TrafficWorkload implements Workload {
+    private static final int LOBBY = 1;
+    /**
+     * Above this rate, Poisson samples are approximated by a normal distribution.
+     */
+    private static final double NORMAL_APPROXIMATION_RATE = 30;
+
+    private final TrafficProfile profile;
+    private final int floorsServed;
+    private final SplittableRandom random;
+    private final long durationSteps;
+    private long nextStep;
+
+    /**
+     * Creates a new workload.
+     *
+     * @param profile      the traffic to generate
+     * @param floorsServed the amount of floors of the building, starting at the lobby on floor 1
+     * @param seed         the seed for the random arrivals
+     */
+    public TrafficWorkload(TrafficProfile profile, int floorsServed, long seed) {
+        if (floorsServed < 2) {
+            throw new IllegalArgumentException("A building needs at least 2 floors.");
+        }
+        this.profile = profile;
+        this.floorsServed = floorsServed;
+        random = new SplittableRandom(seed);
+        durationSteps = profile.durationSteps();
+    }
+
+    /**
+     * Creates a simulation without any initial humans, driven by traffic of the given profile.
+     *
+     * @param seed              the seed for the elevator positions and the arrivals
+     * @param amountOfElevators the amount of elevators, all serving all floors
+     * @param floorsServed      the amount of floors of the building
+     * @param profile           the traffic to generate
+     * @return a new simulation, not started yet
+     */
+    public static Simulation createSimulation(long seed, int amountOfElevators, int floorsServed,
+            TrafficProfile profile) {
+        List<Elevator> elevators = new ScenarioGenerator(seed, amountOfElevators, 0, floorsServed)
+                .elevators()
+                .toList();
+        Simulation simulation = new Simulation(elevators, List.of());
+        simulation.addWorkload(new TrafficWorkload(profile, floorsServed, seed));
+        return simulation;
+    }
+
+    @Override
+    public void injectArrivals(long step, Consumer<Human> arrivals) {
+        // Steps that were not asked for are skipped, so that the profile stays aligned with the simulation
+        nextStep = step + 1;
+        TrafficProfile.Phase phase = profile.phaseAt(step);
+        if (phase == null) {
+            return;
+        }
+
+        int amount = samplePoisson(phase.arrivalsPerStep());
+        for (int i = 0; i < amount; i++) {
+            arrivals.accept(createHuman(phase));
+        }
+    }
+
+    @Override
+    public boolean isExhausted() {
+        return nextStep >= durationSteps;
+    }
+
+    private Human createHuman(TrafficProfile.Phase phase) {
+        double tripType = random.nextDouble();
+        if (tripType < phase.incomingShare()) {
+            return new Human(LOBBY, randomUpperFloor());
+        }
+        if (tripType < phase.incomingShare() + phase.outgoingShare()) {
+            return new Human(randomUpperFloor(), LOBBY);
+        }
+        if (floorsServed < 3) {
+            // No two distinct upper floors, interfloor traffic is impossible
+            return random.nextBoolean() ? new Human(LOBBY, randomUpperFloor()) : new Human(randomUpperFloor(), LOBBY);
+        }
+        int startingFloor = randomUpperFloor();
+        int destinationFloor = randomUpperFloor();
+        while (destinationFloor == startingFloor) {
+            destinationFloor = randomUpperFloor();
+        }
+        return new Human(startingFloor, destinationFloor);
+    }
+
+    private int randomUpperFloor() {
+        return random.nextInt(LOBBY + 1, floorsServed + 1);
+    }
+
+    private int samplePoisson(double rate) {
+        if (rate <= 0) {
+            return 0;
+        }
+        if (rate > NORMAL_APPROXIMATION_RATE) {
+            double sample = rate + Math.sqrt(rate) * random.nextGaussian();
+            return (int) Math.max(0, Math.round(sample));
+        }
+        // Knuth's algorithm, multiplying uniform samples until they drop below e^-rate
+        double limit = Math.exp(-rate);
+        double product = random.nextDouble();
+        int count = 0;
+        while (product > limit) {
+            product *= random.nextDouble();
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,93 @@
+package org.togetherjava.event.elevator.simulation;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Runs a simulation on an executor in time slices, see {@link Simulation#runAsync(int, Executor, int, Consumer)}.
+ * <p>
+ * After each slice, the run submits itself to the executor again instead of looping, so a pool can interleave
+ * many simulations, and none of them blocks a thread while waiting. Slices execute one after another,
+ * the executor hands the simulation from one thread to the next safely.
+ */
+final class AsyncRun implements Runnable {
+    /**
+     * How long a slice runs before giving the executor a chance to run other tasks.
+     */
+    private static final long SLICE_NANOS = 10_000_000;
+
+    private final Simulation simulation;
+    private final int stepLimit;
+    private final Executor executor;
+    private final int progressIntervalSteps;
+    private final Consumer<SimulationProgress> progressListener;
+    private final CompletableFuture<SimulationResult> result = new CompletableFuture<>();
+    private long startNanos;
+    private boolean started;
+
+    AsyncRun(Simulation simulation, int stepLimit, Executor executor, int progressIntervalSteps,
+            Consumer<SimulationProgress> progressListener) {
+        this.simulation = simulation;
+        this.stepLimit = stepLimit;
+        this.executor = executor;
+        this.progressIntervalSteps = progressIntervalSteps;
+        this.progressListener = progressListener;
+    }
+
+    CompletableFuture<SimulationResult> submit() {
+        startNanos = System.nanoTime();
+        schedule();
+        return result;
+    }
+
+    private void schedule() {
+        try {
+            executor.execute(this);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            if (!started) {
+                simulation.start();
+                started = true;
+            }
+            long sliceEnd = System.nanoTime() + SLICE_NANOS;
+            while (!simulation.isDone()) {
+                // Cancelling completes the future, the run stops at the next step
+                if (result.isDone()) {
+                    return;
+                }
+                if (simulation.getStepCount() >= stepLimit) {
+                    complete(SimulationResult.Outcome.STEP_LIMIT_REACHED);
+                    return;
+                }
+                simulation.step();
+                if (simulation.getStepCount() % progressIntervalSteps == 0) {
+                    progressListener.accept(new SimulationProgress(simulation.getStepCount(),
+                            simulation.getAmountOfHumans(), simulation.getHumanTravelingCount(), elapsed()));
+                }
+                if (System.nanoTime() - sliceEnd > 0) {
+                    schedule();
+                    return;
+                }
+            }
+            complete(SimulationResult.Outcome.DONE);
+        } catch (RuntimeException | Error e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private void complete(SimulationResult.Outcome outcome) {
+        result.complete(SimulationResult.of(simulation, outcome, elapsed()));
+    }
+
+    private Duration elapsed() {
+        return Duration.ofNanos(System.nanoTime() - startNanos);
+    }
+}
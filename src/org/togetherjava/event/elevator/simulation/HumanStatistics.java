@@ -2,23 +2,29 @@ package org.togetherjava.event.elevator.simulation;
 
 import org.togetherjava.event.elevator.humans.Human;
 
-import java.util.EnumMap;
-import java.util.Map;
-
 final class HumanStatistics {
+    private static final int STATES = Human.State.values().length;
+
     private final Human human;
-    private final Map<Human.State, Long> stateToStepCount = new EnumMap<>(Human.State.class);
+    private final long[] stateToStepCount = new long[STATES];
 
     HumanStatistics(Human human) {
         this.human = human;
     }
 
     void step() {
-        Human.State state = human.getCurrentState();
-        stateToStepCount.put(state, stateToStepCount.getOrDefault(state, 0L) + 1);
+        stateToStepCount[human.getCurrentState().ordinal()]++;
+    }
+
+    int cohortSize() {
+        return human.getCohortSize();
     }
 
     long stepsForState(Human.State state) {
-        return stateToStepCount.getOrDefault(state, 0L);
+        return stateToStepCount[state.ordinal()];
+    }
+
+    void restoreStepsForState(Human.State state, long steps) {
+        stateToStepCount[state.ordinal()] = steps;
     }
 }
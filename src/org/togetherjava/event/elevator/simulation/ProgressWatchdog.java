@@ -0,0 +1,177 @@
+package org.togetherjava.event.elevator.simulation;
+
+import org.togetherjava.event.elevator.elevators.Elevator;
+import org.togetherjava.event.elevator.humans.Human;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Detects a simulation that will never be done, long before its step limit.
+ * <p>
+ * Checks run once per window of steps, so the watchdog costs nothing noticeable in between. A simulation stalled if
+ * <ul>
+ *     <li>an elevator moved more steps than it serves floors without reaching any of its requested floors,
+ *     for example oscillating between two floors,</li>
+ *     <li>a human waited at a floor no elevator is going to, or traveled with an elevator not going to their
+ *     destination, at two checks in a row, or</li>
+ *     <li>nobody arrived for a number of windows in a row, while humans were still traveling.</li>
+ * </ul>
+ * The simulation is then aborted with a {@link SimulationStalledException}, listing the stuck humans and
+ * the requests of all busy elevators. Usage:
+ * <pre>{@code
+ * ProgressWatchdog watchdog = new ProgressWatchdog(simulation);
+ * while (!simulation.isDone()) {
+ *     simulation.step();
+ *     watchdog.check();
+ * }
+ * }</pre>
+ */
+public final class ProgressWatchdog {
+    private static final int MAX_HUMANS_IN_DUMP = 20;
+    private static final int MAX_ELEVATORS_IN_DUMP = 50;
+
+    private final Simulation simulation;
+    private final long windowSteps;
+    private final int windowsWithoutArrival;
+    private long nextCheckStep;
+    private long arrivedAtLastArrival = -1;
+    private int windowsSinceLastArrival;
+    /**
+     * Humans that were stuck at the previous check, by their index in the simulation.
+     */
+    private BitSet stuckHumans = new BitSet();
+
+    /**
+     * Creates a watchdog with windows long enough for a trip through the tallest elevator, and at least 1000 steps.
+     * Nobody arriving is tolerated for 50 windows.
+     *
+     * @param simulation the simulation to watch
+     */
+    public ProgressWatchdog(Simulation simulation) {
+        this(simulation, Math.max(1_000, 4L * simulation.getElevators().stream()
+                .mapToInt(Elevator::getFloorsServed)
+                .max()
+                .orElse(0)), 50);
+    }
+
+    /**
+     * Creates a watchdog.
+     *
+     * @param simulation            the simulation to watch
+     * @param windowSteps           after how many steps to check the simulation each time, at least 1
+     * @param windowsWithoutArrival for how many windows in a row nobody arriving is tolerated, at least 1
+     */
+    public ProgressWatchdog(Simulation simulation, long windowSteps, int windowsWithoutArrival) {
+        if (windowSteps < 1 || windowsWithoutArrival < 1) {
+            throw new IllegalArgumentException("Windows must be at least 1 step and tolerated at least once.");
+        }
+        this.simulation = simulation;
+        this.windowSteps = windowSteps;
+        this.windowsWithoutArrival = windowsWithoutArrival;
+        nextCheckStep = simulation.getStepCount() + windowSteps;
+    }
+
+    /**
+     * Checks the simulation if a window is over, to be called after every step.
+     *
+     * @throws SimulationStalledException if the simulation stalled
+     */
+    public void check() {
+        long step = simulation.getStepCount();
+        if (step < nextCheckStep) {
+            return;
+        }
+        nextCheckStep = step + windowSteps;
+
+        for (Elevator elevator : simulation.getElevators()) {
+            if (elevator.getStepsWithoutReachingRequest() > elevator.getFloorsServed()) {
+                throw stalled("elevator %d moved %d steps without reaching any of its requested floors"
+                        .formatted(elevator.getId(), elevator.getStepsWithoutReachingRequest()), new BitSet());
+            }
+        }
+
+        BitSet stuck = findStuckHumans();
+        BitSet stuckAgain = (BitSet) stuck.clone();
+        stuckAgain.and(stuckHumans);
+        if (!stuckAgain.isEmpty()) {
+            throw stalled("%d humans are waiting for or traveling to floors no elevator is going to"
+                    .formatted(stuckAgain.cardinality()), stuckAgain);
+        }
+        stuckHumans = stuck;
+
+        long travelingCount = simulation.getHumanTravelingCount();
+        long arrived = simulation.getAmountOfHumans() - travelingCount;
+        if (arrived != arrivedAtLastArrival || travelingCount == 0) {
+            arrivedAtLastArrival = arrived;
+            windowsSinceLastArrival = 0;
+        } else if (++windowsSinceLastArrival >= windowsWithoutArrival) {
+            throw stalled("nobody arrived for %d steps while %d humans are traveling"
+                    .formatted(windowsSinceLastArrival * windowSteps, travelingCount), stuck);
+        }
+    }
+
+    /**
+     * Humans waiting at a floor no elevator is requested to, or traveling with an elevator not requested to go to
+     * their destination.
+     */
+    private BitSet findStuckHumans() {
+        BitSet pendingFloors = new BitSet();
+        Map<Integer, List<Integer>> requestsPerElevatorId = new HashMap<>();
+        for (Elevator elevator : simulation.getElevators()) {
+            List<Integer> requests = elevator.getFloorRequests();
+            requests.forEach(pendingFloors::set);
+            requestsPerElevatorId.put(elevator.getId(), requests);
+        }
+
+        BitSet stuck = new BitSet();
+        List<Human> humans = simulation.getHumans();
+        for (int i = 0; i < humans.size(); i++) {
+            Human human = humans.get(i);
+            boolean isStuck = switch (human.getCurrentState()) {
+                case WAITING_FOR_ELEVATOR -> !pendingFloors.get(human.getLegStartingFloor());
+                case TRAVELING_WITH_ELEVATOR -> !requestsPerElevatorId
+                        .getOrDefault(human.getCurrentEnteredElevatorId().orElseThrow(), List.of())
+                        .contains(human.getLegDestinationFloor());
+                case IDLE, ARRIVED -> false;
+            };
+            if (isStuck) {
+                stuck.set(i);
+            }
+        }
+        return stuck;
+    }
+
+    private SimulationStalledException stalled(String reason, BitSet stuck) {
+        StringBuilder diagnostics = new StringBuilder();
+        List<Human> humans = simulation.getHumans();
+        diagnostics.append("Stuck humans (").append(stuck.cardinality()).append("):");
+        int listed = 0;
+        for (int i = stuck.nextSetBit(0); i >= 0 && listed < MAX_HUMANS_IN_DUMP; i = stuck.nextSetBit(i + 1)) {
+            diagnostics.append(System.lineSeparator()).append("\t#").append(i).append(' ').append(humans.get(i));
+            listed++;
+        }
+        if (stuck.cardinality() > listed) {
+            diagnostics.append(System.lineSeparator()).append("\t...");
+        }
+
+        diagnostics.append(System.lineSeparator()).append("Busy elevators:");
+        listed = 0;
+        for (Elevator elevator : simulation.getElevators()) {
+            List<Integer> requests = elevator.getFloorRequests();
+            if (requests.isEmpty()) {
+                continue;
+            }
+            if (listed++ == MAX_ELEVATORS_IN_DUMP) {
+                diagnostics.append(System.lineSeparator()).append("\t...");
+                break;
+            }
+            diagnostics.append(System.lineSeparator()).append('\t').append(elevator)
+                    .append(" requests ").append(requests)
+                    .append(", steps without reaching a request ").append(elevator.getStepsWithoutReachingRequest());
+        }
+        return new SimulationStalledException(reason, simulation.getStepCount(), diagnostics.toString());
+    }
+}
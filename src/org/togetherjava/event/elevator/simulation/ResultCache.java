@@ -0,0 +1,479 @@
+package org.togetherjava.event.elevator.simulation;
+
+import org.togetherjava.event.elevator.elevators.ElevatorSystem;
+import org.togetherjava.event.elevator.humans.Human;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UTFDataFormatException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the results of simulations on disk, so that runs of unchanged scenarios return immediately.
+ * <p>
+ * Results are keyed by the scenario with its dispatch settings, the step limit and the version of the engine, a hash over
+ * all of its class files by default. Any change to the engine thus invalidates all results computed before.
+ * Each result is a small file of its own, named by the hash of its key. Cached results report the wall time of the
+ * run that computed them.
+ * <p>
+ * The cache is bounded by the total size of its files. Reading a result marks it as used, and once the bound is
+ * exceeded, the least recently used results are deleted.
+ * <p>
+ * Several threads and processes can share a cache directory. Results are written to a temporary file first and
+ * then moved into place atomically, so readers never see partial results, and results that were evicted while being
+ * read are treated as missing. Within one cache, parallel runs of the same key simulate only once.
+ */
+public final class ResultCache {
+    private static final int MAGIC = 0x454C_5243; // "ELRC"
+    private static final int VERSION = 1;
+    private static final String SUFFIX = ".result";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    /**
+     * Temporary files older than this were left behind by processes that died while writing.
+     */
+    private static final Duration ABANDONED_AFTER = Duration.ofHours(1);
+    private static final Human.State[] STATES = Human.State.values();
+    private static final SimulationResult.Outcome[] OUTCOMES = SimulationResult.Outcome.values();
+    private static final String ENGINE_PACKAGE = "org/togetherjava/event/elevator/";
+    /**
+     * Hashed once, when first needed.
+     */
+    private static String currentEngineVersion;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final String engineVersion;
+    private final Map<String, CompletableFuture<SimulationResult>> runningKeys = new ConcurrentHashMap<>();
+
+    /**
+     * Opens the cache in the given directory for the current engine, creating the directory if needed.
+     *
+     * @param directory the directory to keep the results in
+     * @param maxBytes  how large all results together may get
+     */
+    public ResultCache(Path directory, long maxBytes) {
+        this(directory, maxBytes, engineVersion());
+    }
+
+    /**
+     * Opens the cache in the given directory for an explicitly versioned engine, creating the directory if needed.
+     *
+     * @param directory     the directory to keep the results in
+     * @param maxBytes      how large all results together may get
+     * @param engineVersion identifies the engine, results of other versions are not used
+     */
+    public ResultCache(Path directory, long maxBytes, String engineVersion) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("Max bytes must be positive, but was " + maxBytes);
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.engineVersion = engineVersion;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create the result cache " + directory, e);
+        }
+    }
+
+    /**
+     * The version of the engine that results are computed with by default, a hash over all of its class files.
+     *
+     * @return the hash in hexadecimal
+     * @throws IllegalStateException if the class files can not be located
+     */
+    public static synchronized String engineVersion() {
+        if (currentEngineVersion == null) {
+            currentEngineVersion = hashEngineClassFiles();
+        }
+        return currentEngineVersion;
+    }
+
+    /**
+     * Returns the cached result of the scenario, or runs it on the calling thread and caches the result.
+     *
+     * @param key       the scenario, only simulated on a miss
+     * @param stepLimit after how many steps the run is stopped
+     * @return the result of running the scenario
+     */
+    public SimulationResult run(Key key, int stepLimit) {
+        if (stepLimit < 0) {
+            throw new IllegalArgumentException("Step limit must not be negative, but was " + stepLimit);
+        }
+        String description = describe(key, stepLimit);
+        CompletableFuture<SimulationResult> own = new CompletableFuture<>();
+        CompletableFuture<SimulationResult> running = runningKeys.putIfAbsent(description, own);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            Path path = pathOf(description);
+            SimulationResult result = read(path, description).orElseGet(() -> {
+                SimulationResult computed = simulate(key.scenario.get(), stepLimit);
+                write(path, description, computed);
+                evict();
+                return computed;
+            });
+            own.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            runningKeys.remove(description, own);
+        }
+    }
+
+    /**
+     * The cached result of the scenario, without running it.
+     *
+     * @param key       the scenario
+     * @param stepLimit the step limit the scenario was run with
+     * @return the result, empty if it is not cached
+     */
+    public Optional<SimulationResult> get(Key key, int stepLimit) {
+        String description = describe(key, stepLimit);
+        return read(pathOf(description), description);
+    }
+
+    /**
+     * The total size of all cached results.
+     *
+     * @return the size in bytes
+     */
+    public long sizeBytes() {
+        return entries().stream().mapToLong(Entry::bytes).sum();
+    }
+
+    private static SimulationResult simulate(Simulation simulation, int stepLimit) {
+        long startNanos = System.nanoTime();
+        simulation.start();
+        while (!simulation.isDone() && simulation.getStepCount() < stepLimit) {
+            simulation.step();
+        }
+        SimulationResult.Outcome outcome = simulation.isDone()
+                ? SimulationResult.Outcome.DONE
+                : SimulationResult.Outcome.STEP_LIMIT_REACHED;
+        return SimulationResult.of(simulation, outcome, Duration.ofNanos(System.nanoTime() - startNanos));
+    }
+
+    private String describe(Key key, int stepLimit) {
+        return "%s stepLimit=%d engine=%s".formatted(key, stepLimit, engineVersion);
+    }
+
+    private Path pathOf(String description) {
+        return directory.resolve(HexFormat.of().formatHex(sha256(description.getBytes(StandardCharsets.UTF_8)))
+                + SUFFIX);
+    }
+
+    /**
+     * Reads a cached result and marks it as used. Results that are missing, corrupt or hash collisions are misses.
+     */
+    private Optional<SimulationResult> read(Path path, String description) {
+        SimulationResult result;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION || !input.readUTF().equals(description)) {
+                return Optional.empty();
+            }
+            SimulationResult.Outcome outcome = OUTCOMES[input.readByte()];
+            long steps = input.readLong();
+            long humans = input.readLong();
+            long humansTraveling = input.readLong();
+            Duration wallTime = Duration.ofNanos(input.readLong());
+            Map<Human.State, SimulationResult.Percentiles> stepsPerState = new EnumMap<>(Human.State.class);
+            for (Human.State state : STATES) {
+                stepsPerState.put(state, new SimulationResult.Percentiles(input.readLong(), input.readLong(),
+                        input.readLong(), input.readLong()));
+            }
+            result = new SimulationResult(outcome, steps, humans, humansTraveling, wallTime, stepsPerState);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (EOFException | UTFDataFormatException | ArrayIndexOutOfBoundsException e) {
+            // Written by a different version of this class, replaced by the next run
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read cached result " + path, e);
+        }
+
+        try {
+            Files.setLastModifiedTime(path, FileTime.from(Instant.now()));
+        } catch (NoSuchFileException e) {
+            // Evicted by another process in the meantime, the result is still valid
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to mark cached result as used " + path, e);
+        }
+        return Optional.of(result);
+    }
+
+    private void write(Path path, String description, SimulationResult result) {
+        Path temporary = null;
+        try {
+            temporary = Files.createTempFile(directory, path.getFileName().toString(), TEMPORARY_SUFFIX);
+            try (DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeUTF(description);
+                output.writeByte(result.outcome().ordinal());
+                output.writeLong(result.steps());
+                output.writeLong(result.humans());
+                output.writeLong(result.humansTraveling());
+                output.writeLong(result.wallTime().toNanos());
+                for (Human.State state : STATES) {
+                    SimulationResult.Percentiles percentiles = result.stepsPerState().get(state);
+                    output.writeLong(percentiles.p50());
+                    output.writeLong(percentiles.p90());
+                    output.writeLong(percentiles.p99());
+                    output.writeLong(percentiles.max());
+                }
+            }
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write cached result " + path, e);
+        } finally {
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException e) {
+                    // Cleaned up by a later eviction once abandoned
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the least recently used results until the cache fits into its bound again.
+     */
+    private void evict() {
+        List<Entry> entries = entries();
+        long bytes = entries.stream().mapToLong(Entry::bytes).sum();
+        if (bytes <= maxBytes) {
+            return;
+        }
+        entries.sort(Comparator.comparing(Entry::lastUsed));
+        for (int i = 0; i < entries.size() && bytes > maxBytes; i++) {
+            try {
+                Files.deleteIfExists(entries.get(i).path());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to evict cached result " + entries.get(i).path(), e);
+            }
+            bytes -= entries.get(i).bytes();
+        }
+    }
+
+    private List<Entry> entries() {
+        List<Entry> entries = new ArrayList<>();
+        FileTime abandoned = FileTime.from(Instant.now().minus(ABANDONED_AFTER));
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                String name = path.getFileName().toString();
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    continue; // Evicted by another process in the meantime
+                }
+                if (name.endsWith(SUFFIX)) {
+                    entries.add(new Entry(path, attributes.size(), attributes.lastModifiedTime()));
+                } else if (name.endsWith(TEMPORARY_SUFFIX) && attributes.lastModifiedTime().compareTo(abandoned) < 0) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to list the result cache " + directory, e);
+        }
+        return entries;
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("Every Java platform supports SHA-256", e);
+        }
+    }
+
+    private static String hashEngineClassFiles() {
+        CodeSource source = ResultCache.class.getProtectionDomain().getCodeSource();
+        if (source == null) {
+            throw new IllegalStateException("Unable to locate the class files of the engine.");
+        }
+        try {
+            Path location = Path.of(source.getLocation().toURI());
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            if (Files.isDirectory(location)) {
+                List<Path> classFiles;
+                try (Stream<Path> files = Files.walk(location.resolve(ENGINE_PACKAGE))) {
+                    classFiles = files.filter(file -> file.toString().endsWith(".class")).sorted().toList();
+                }
+                for (Path classFile : classFiles) {
+                    digest.update(location.relativize(classFile).toString().getBytes(StandardCharsets.UTF_8));
+                    digest.update(Files.readAllBytes(classFile));
+                }
+            } else {
+                try (JarFile jar = new JarFile(location.toFile())) {
+                    List<JarEntry> classFiles = jar.stream()
+                            .filter(entry -> entry.getName().startsWith(ENGINE_PACKAGE)
+                                    && entry.getName().endsWith(".class"))
+                            .sorted(Comparator.comparing(JarEntry::getName))
+                            .toList();
+                    for (JarEntry classFile : classFiles) {
+                        digest.update(classFile.getName().getBytes(StandardCharsets.UTF_8));
+                        try (InputStream input = jar.getInputStream(classFile)) {
+                            digest.update(input.readAllBytes());
+                        }
+                    }
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException | URISyntaxException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Unable to hash the class files of the engine.", e);
+        }
+    }
+
+    private record Entry(Path path, long bytes, FileTime lastUsed) {
+    }
+
+    /**
+     * A scenario and the dispatch settings it is run with. The key creates the simulation it describes, so runs with
+     * equal keys always simulate equal scenarios.
+     */
+    public static final class Key {
+        private final String description;
+        private final Supplier<Simulation> scenario;
+
+        private Key(String description, Supplier<Simulation> scenario) {
+            this.description = description;
+            this.scenario = scenario;
+        }
+
+        /**
+         * A scenario of {@link Simulation#createRandomSimulation(long, int, int, int)} with the default dispatch
+         * settings.
+         *
+         * @param seed              the seed of the scenario
+         * @param amountOfElevators the amount of elevators
+         * @param amountOfHumans    the amount of humans
+         * @param floorsServed      the amount of floors of the building
+         * @return the key
+         */
+        public static Key random(long seed, int amountOfElevators, int amountOfHumans, int floorsServed) {
+            return new Key("random seed=%d elevators=%d humans=%d floors=%d"
+                    .formatted(seed, amountOfElevators, amountOfHumans, floorsServed),
+                    () -> Simulation.createRandomScenario(seed, amountOfElevators, amountOfHumans, floorsServed,
+                            Simulation::new));
+        }
+
+        /**
+         * A scenario of {@link Simulation#createRandomCohortSimulation(long, int, int, int)} with the default
+         * dispatch settings.
+         *
+         * @param seed              the seed of the scenario
+         * @param amountOfElevators the amount of elevators
+         * @param amountOfHumans    the amount of humans
+         * @param floorsServed      the amount of floors of the building
+         * @return the key
+         */
+        public static Key randomCohorts(long seed, int amountOfElevators, int amountOfHumans, int floorsServed) {
+            return new Key("randomCohorts seed=%d elevators=%d humans=%d floors=%d"
+                    .formatted(seed, amountOfElevators, amountOfHumans, floorsServed),
+                    () -> Simulation.createRandomScenario(seed, amountOfElevators, amountOfHumans, floorsServed,
+                            Simulation::withCohorts));
+        }
+
+        /**
+         * The same scenario with idle parking disabled, see {@link ElevatorSystem#setIdleParking(boolean)}.
+         *
+         * @return the key
+         */
+        public Key withoutIdleParking() {
+            return configured(" idleParking=false", system -> system.setIdleParking(false));
+        }
+
+        /**
+         * The same scenario with hall call reassignment disabled,
+         * see {@link ElevatorSystem#setHallCallReassignment(boolean)}.
+         *
+         * @return the key
+         */
+        public Key withoutHallCallReassignment() {
+            return configured(" hallCallReassignment=false", system -> system.setHallCallReassignment(false));
+        }
+
+        /**
+         * The same scenario with a maximum hall call wait, see {@link ElevatorSystem#setMaxHallCallWait(int)}.
+         *
+         * @param maxHallCallWait the maximum wait in steps, or 0 to let calls wait for their turn
+         * @return the key
+         */
+        public Key withMaxHallCallWait(int maxHallCallWait) {
+            if (maxHallCallWait < 0) {
+                throw new IllegalArgumentException(
+                        "Max hall call wait must not be negative, but was " + maxHallCallWait);
+            }
+            return configured(" maxHallCallWait=" + maxHallCallWait,
+                    system -> system.setMaxHallCallWait(maxHallCallWait));
+        }
+
+        private Key configured(String setting, Consumer<ElevatorSystem> configuration) {
+            return new Key(description + setting, () -> {
+                Simulation simulation = scenario.get();
+                configuration.accept(simulation.getElevatorSystem());
+                return simulation;
+            });
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key && description.equals(key.description);
+        }
+
+        @Override
+        public int hashCode() {
+            return description.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.togetherjava.event.elevator.simulation;
+
+import org.togetherjava.event.elevator.elevators.DispatchPolicy;
+import org.togetherjava.event.elevator.elevators.Elevator;
+import org.togetherjava.event.elevator.elevators.ElevatorSystem;
+import org.togetherjava.event.elevator.elevators.TravelDirection;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * {@link DispatchPolicy} that simulates a few steps ahead before sending an elevator to a hall call.
+ * <p>
+ * The nearest elevators are the candidates. For each of them, the simulation is forked from a single
+ * {@link SimulationSnapshot}, the candidate is sent to the hall call and the fork is run for a short horizon.
+ * The candidate whose fork has the least humans traveling, summed over all steps of the horizon, wins.
+ * That covers the wait of the calling human as well as delays caused for everybody else.
+ * Ties go to the nearer candidate.
+ * <p>
+ * Candidates are rolled out in parallel. Rollouts give up once the time budget of the decision is used up,
+ * candidates that did not finish are not considered. If none finished, the nearest elevator is sent,
+ * as without this policy. Decisions therefore depend on the speed of the machine if the budget is tight.
+ * <p>
+ * Every decision copies the whole simulation, so this is meant for simulations of moderate size. Humans that will
+ * only arrive later on via workloads are not part of the rollouts. While the simulation is starting, humans that did not
+ * request an elevator yet are sent the nearest one in the rollouts. Usage:
+ * <pre>{@code
+ * simulation.getElevatorSystem().setDispatchPolicy(new RolloutDispatcher(simulation, 4, 20, Duration.ofMillis(5)));
+ * }</pre>
+ */
+public final class RolloutDispatcher implements DispatchPolicy {
+    private static final long UNFINISHED = Long.MAX_VALUE;
+
+    private final Simulation simulation;
+    private final int candidates;
+    private final int horizonSteps;
+    private final long budgetNanos;
+
+    /**
+     * Creates a new dispatcher for the given simulation, which still has to be set at its elevator system.
+     *
+     * @param simulation   the simulation to dispatch for
+     * @param candidates   how many of the nearest elevators to roll out per decision, at least 1
+     * @param horizonSteps how many steps to simulate ahead per candidate, at least 1
+     * @param budget       how long a decision may take at most, positive
+     */
+    public RolloutDispatcher(Simulation simulation, int candidates, int horizonSteps, Duration budget) {
+        if (candidates < 1 || horizonSteps < 1) {
+            throw new IllegalArgumentException("At least one candidate has to be rolled out for at least one step.");
+        }
+        if (budget.isNegative() || budget.isZero()) {
+            throw new IllegalArgumentException("The budget must be positive, but was " + budget);
+        }
+        this.simulation = simulation;
+        this.candidates = candidates;
+        this.horizonSteps = horizonSteps;
+        this.budgetNanos = budget.toNanos();
+    }
+
+    @Override
+    public Elevator selectElevator(ElevatorSystem system, int atFloor, TravelDirection desiredTravelDirection) {
+        if (system != simulation.getElevatorSystem()) {
+            throw new IllegalArgumentException("The dispatcher can only be used for the system of its simulation.");
+        }
+        long deadline = System.nanoTime() + budgetNanos;
+        List<Elevator> elevators = simulation.getElevators();
+        Elevator nearest = system.nearestElevator(atFloor);
+        int[] candidateIndices = candidateIndices(elevators, nearest, atFloor);
+        if (candidateIndices.length == 1) {
+            return nearest;
+        }
+
+        SimulationSnapshot snapshot = simulation.snapshot();
+        long[] costs = IntStream.range(0, candidateIndices.length)
+                .parallel()
+                .mapToLong(i -> rollout(snapshot, candidateIndices[i], atFloor, desiredTravelDirection, deadline))
+                .toArray();
+
+        int best = 0;
+        for (int i = 1; i < costs.length; i++) {
+            if (costs[i] < costs[best]) {
+                best = i;
+            }
+        }
+        return costs[best] == UNFINISHED ? nearest : elevators.get(candidateIndices[best]);
+    }
+
+    /**
+     * The indices of the elevators to roll out, the nearest elevator first and then by distance.
+     */
+    private int[] candidateIndices(List<Elevator> elevators, Elevator nearest, int atFloor) {
+        int nearestIndex = elevators.indexOf(nearest);
+        return IntStream.concat(IntStream.of(nearestIndex), IntStream.range(0, elevators.size())
+                        .filter(i -> i != nearestIndex)
+                        .boxed()
+                        .sorted(Comparator.comparingInt(i -> ElevatorSystem.floorAndElevatorDistance(atFloor,
+                                elevators.get(i))))
+                        .mapToInt(Integer::intValue))
+                .limit(candidates)
+                .toArray();
+    }
+
+    private long rollout(SimulationSnapshot snapshot, int elevatorIndex, int atFloor,
+            TravelDirection desiredTravelDirection, long deadline) {
+        Simulation fork = snapshot.restore();
+        fork.getElevatorSystem().requestElevator(fork.getElevators().get(elevatorIndex), atFloor,
+                desiredTravelDirection);
+        // Humans that did not request an elevator yet, as the simulation is still starting, request theirs now
+        fork.start();
+
+        long humanStepsTraveling = 0;
+        for (int step = 0; step < horizonSteps && !fork.isDone(); step++) {
+            if (System.nanoTime() - deadline > 0) {
+                return UNFINISHED;
+            }
+            fork.step();
+            humanStepsTraveling += fork.getHumanTravelingCount();
+        }
+        return humanStepsTraveling;
+    }
+}
@@ -2,14 +2,21 @@ package org.togetherjava.event.elevator.simulation;
 
 import org.togetherjava.event.elevator.elevators.Elevator;
 import org.togetherjava.event.elevator.elevators.ElevatorSystem;
+import org.togetherjava.event.elevator.humans.Cohorts;
 import org.togetherjava.event.elevator.humans.Human;
 import org.togetherjava.event.elevator.humans.HumanArrivedListener;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
@@ -21,6 +28,20 @@ public final class Simulation implements HumanArrivedListener {
     private long stepCount;
     private long humanTravelingCount;
     private final List<HumanStatistics> humanStatistics;
+    private final List<Workload> workloads = new ArrayList<>();
+    /**
+     * Whether humans arriving in the same step are aggregated into cohorts, see {@link #withCohorts(List, List)}.
+     */
+    private final boolean cohorts;
+    /**
+     * The humans that arrived during the current step, only used with {@link #cohorts}.
+     */
+    private final List<Human> pendingArrivals = new ArrayList<>();
+    /**
+     * Created once instead of on every step, so stepping does not allocate.
+     */
+    private final Consumer<Human> arrivals;
+    private SimulationEventPublisher eventPublisher;
 
     public static Simulation createSingleElevatorSingleHumanSimulation() {
         return new Simulation(List.of(new Elevator(1, 10, 5)),
@@ -48,7 +69,70 @@ public final class Simulation implements HumanArrivedListener {
     }
 
     public static Simulation createRandomSimulation(long seed, int amountOfElevators, int amountOfHumans, int floorsServed) {
+        return createRandomSimulation(seed, amountOfElevators, amountOfHumans, floorsServed, false);
+    }
+
+    /**
+     * Same as {@link #createRandomSimulation(long, int, int, int)}, but with humans of identical trips aggregated
+     * into cohorts, see {@link #withCohorts(List, List)}.
+     */
+    public static Simulation createRandomCohortSimulation(long seed, int amountOfElevators, int amountOfHumans,
+            int floorsServed) {
+        return createRandomSimulation(seed, amountOfElevators, amountOfHumans, floorsServed, true);
+    }
+
+    /**
+     * Creates a tower split into zones stacked on top of each other, where each zone shares its lowest floor with the
+     * top floor of the zone below. Humans travel between random floors of the whole tower, so most of them have to
+     * change elevators at the shared floors, see {@link org.togetherjava.event.elevator.elevators.TripPlanner}.
+     *
+     * @param seed             the seed of the random floors
+     * @param zones            the amount of zones
+     * @param elevatorsPerZone the amount of elevators serving each zone
+     * @param floorsPerZone    the amount of floors each zone serves, at least 2
+     * @param amountOfHumans   the amount of humans
+     * @return a new simulation, not started yet
+     */
+    public static Simulation createZonedSimulation(long seed, int zones, int elevatorsPerZone, int floorsPerZone,
+            int amountOfHumans) {
+        Random random = new Random(seed);
+        List<Elevator> elevators = new ArrayList<>(zones * elevatorsPerZone);
+        for (int zone = 0; zone < zones; zone++) {
+            int minFloor = 1 + zone * (floorsPerZone - 1);
+            for (int i = 0; i < elevatorsPerZone; i++) {
+                elevators.add(new Elevator(minFloor, floorsPerZone, minFloor + random.nextInt(floorsPerZone)));
+            }
+        }
+
+        int floors = zones * (floorsPerZone - 1) + 1;
+        List<Human> humans = Stream.generate(() -> new Human(1 + random.nextInt(floors), 1 + random.nextInt(floors)))
+                .limit(amountOfHumans)
+                .toList();
+        return new Simulation(elevators, humans);
+    }
+
+    private static Simulation createRandomSimulation(long seed, int amountOfElevators, int amountOfHumans,
+            int floorsServed, boolean cohorts) {
         System.out.println("Seed for random simulation is: " + seed);
+        return createRandomScenario(seed, amountOfElevators, amountOfHumans, floorsServed,
+                cohorts ? Simulation::withCohorts : Simulation::new);
+    }
+
+    /**
+     * Creates the elevators and humans of {@link #createRandomSimulation(long, int, int, int)} for the given seed,
+     * without printing the seed, and hands them to the given factory. Tools deriving their own scenarios from
+     * the random simulations use this, so they always draw the same floors.
+     *
+     * @param seed              the seed of the random floors
+     * @param amountOfElevators the amount of elevators, all serving all floors
+     * @param amountOfHumans    the amount of humans
+     * @param floorsServed      the amount of floors
+     * @param factory           creates the result from the elevators and humans
+     * @param <T>               the type of the result
+     * @return the result of the factory
+     */
+    public static <T> T createRandomScenario(long seed, int amountOfElevators, int amountOfHumans, int floorsServed,
+            BiFunction<List<Elevator>, List<Human>, T> factory) {
         Random random = new Random(seed);
 
         int minFloor = 1;
@@ -64,10 +148,34 @@ public final class Simulation implements HumanArrivedListener {
             return new Human(startingFloor, destinationFloor);
         }).limit(amountOfHumans).toList();
 
-        return new Simulation(elevators, humans);
+        return factory.apply(elevators, humans);
+    }
+
+    /**
+     * Creates a simulation that aggregates humans of identical trips into cohorts, see {@link Human#getCohortSize()}.
+     * <p>
+     * The given humans are aggregated, as well as humans arriving via workloads during the same step.
+     * Each cohort is simulated and notified as a single human, so the cost of a step depends on the amount
+     * of distinct trips instead of the amount of humans. Statistics still count every human.
+     * <p>
+     * Results can differ from a simulation of the individual humans, as the hall calls of a cohort are made
+     * one after another and its members can not split up if several elevators wait at their floor.
+     *
+     * @param elevators the elevators of the building
+     * @param humans    the humans to aggregate, none of them requested an elevator yet
+     * @return a new simulation, not started yet
+     */
+    public static Simulation withCohorts(List<Elevator> elevators, List<Human> humans) {
+        return new Simulation(elevators, Cohorts.aggregate(humans), true);
     }
 
     public Simulation(List<Elevator> elevators, List<Human> humans) {
+        this(elevators, humans, false);
+    }
+
+    private Simulation(List<Elevator> elevators, List<Human> humans, boolean cohorts) {
+        this.cohorts = cohorts;
+        arrivals = cohorts ? pendingArrivals::add : this::registerHuman;
         this.elevators = new ArrayList<>(elevators);
         this.humans = new ArrayList<>(humans);
 
@@ -78,17 +186,29 @@ public final class Simulation implements HumanArrivedListener {
             human.addListener(this);
         });
 
-        humanStatistics = this.humans.stream().map(HumanStatistics::new).toList();
+        humanStatistics = this.humans.stream()
+                .map(HumanStatistics::new)
+                .collect(Collectors.toCollection(ArrayList::new));
         view = new View(this);
 
-        this.humanTravelingCount = humans.size();
+        this.humanTravelingCount = this.humans.stream().mapToLong(Human::getCohortSize).sum();
     }
 
+    /**
+     * Starts this simulation and steps it until done, on the calling thread.
+     * A {@link ProgressWatchdog} aborts the simulation early if it stalled.
+     *
+     * @param stepLimit after how many steps to abort if the simulation is not done by then
+     * @throws SimulationStalledException if the simulation stopped making progress
+     * @throws IllegalStateException      if the simulation is not done after the step limit
+     */
     public void startAndExecuteUntilDone(int stepLimit) {
         start();
 
+        ProgressWatchdog watchdog = new ProgressWatchdog(this);
         while (!isDone()) {
             step();
+            watchdog.check();
 
             if (stepCount >= stepLimit) {
                 throw new IllegalStateException("Simulation aborted. All humans should have arrived"
@@ -97,32 +217,192 @@ public final class Simulation implements HumanArrivedListener {
         }
     }
 
+    /**
+     * Runs this simulation until done on the given executor, without blocking the calling thread.
+     * See {@link #runAsync(int, Executor, int, Consumer)}.
+     *
+     * @param stepLimit after how many steps to stop if the simulation is not done by then
+     * @param executor  the executor to run the simulation on
+     * @return the result, completed once the simulation is done or reached the step limit
+     */
+    public CompletableFuture<SimulationResult> runAsync(int stepLimit, Executor executor) {
+        return runAsync(stepLimit, executor, Integer.MAX_VALUE, progress -> {
+        });
+    }
+
+    /**
+     * Starts this simulation and runs it until done on the given executor, without blocking the calling thread.
+     * <p>
+     * The simulation runs in slices of a few milliseconds, each submitted to the executor after the previous one,
+     * so a small pool can run many simulations side by side. Until the returned future is completed,
+     * the simulation must not be used by any other thread.
+     * <p>
+     * Reaching the step limit completes the future with {@link SimulationResult.Outcome#STEP_LIMIT_REACHED}
+     * instead of failing it. Cancelling the future stops the simulation after its current step.
+     * If the simulation or the progress listener throws, the future completes exceptionally.
+     *
+     * @param stepLimit             after how many steps to stop if the simulation is not done by then
+     * @param executor              the executor to run the simulation on
+     * @param progressIntervalSteps after how many steps the progress listener is called each time, at least 1
+     * @param progressListener      called with the progress on the thread running the simulation
+     * @return the result, completed once the simulation is done or reached the step limit
+     */
+    public CompletableFuture<SimulationResult> runAsync(int stepLimit, Executor executor, int progressIntervalSteps,
+            Consumer<SimulationProgress> progressListener) {
+        if (progressIntervalSteps < 1) {
+            throw new IllegalArgumentException("Progress interval must be positive, but was " + progressIntervalSteps);
+        }
+        return new AsyncRun(this, stepLimit, executor, progressIntervalSteps, progressListener).submit();
+    }
+
     public void start() {
         elevatorSystem.ready();
     }
 
     public void step() {
+        for (int i = 0; i < workloads.size(); i++) {
+            workloads.get(i).injectArrivals(stepCount, arrivals);
+        }
+        if (!pendingArrivals.isEmpty()) {
+            Cohorts.aggregate(pendingArrivals).forEach(this::registerHuman);
+            pendingArrivals.clear();
+        }
         elevatorSystem.moveOneFloor();
 
         humanStatistics.forEach(HumanStatistics::step);
         stepCount++;
+
+        if (eventPublisher != null && eventPublisher.hasSubscribers()) {
+            int[] elevatorFloors = elevators.stream().mapToInt(Elevator::getCurrentFloor).toArray();
+            eventPublisher.publish(new SimulationEvent.StepCompleted(stepCount, humanTravelingCount, elevatorFloors));
+        }
     }
 
     public boolean isDone() {
-        return humanTravelingCount == 0;
+        if (humanTravelingCount > 0) {
+            return false;
+        }
+        for (int i = 0; i < workloads.size(); i++) {
+            if (!workloads.get(i).isExhausted()) {
+                return false;
+            }
+        }
+        return true;
     }
 
+    /**
+     * Registers a workload that adds humans to the simulation while it is running.
+     * The simulation is not done before the workload is exhausted.
+     *
+     * @param workload the workload to add
+     */
+    public void addWorkload(Workload workload) {
+        workloads.add(workload);
+    }
+
+    /**
+     * Opens an inbox through which other threads can add humans and hall calls while this simulation is running,
+     * see {@link SimulationInbox}. Like all other methods, this has to be called on the thread stepping the simulation.
+     * The simulation is not done before the inbox is closed.
+     *
+     * @return the new inbox, drained before every step
+     */
+    public SimulationInbox openInbox() {
+        SimulationInbox inbox = new SimulationInbox(elevatorSystem, elevators);
+        addWorkload(inbox);
+        return inbox;
+    }
+
+    /**
+     * Starts publishing the events of this simulation, such as completed steps, dispatched elevators,
+     * humans entering elevators and arriving at their destination.
+     * <p>
+     * Subscribers are served on other threads, so they do not slow down stepping the simulation,
+     * unless the publisher was created with {@link SimulationEventPublisher.BackpressurePolicy#BLOCK}.
+     * Events are only created while the publisher has subscribers.
+     *
+     * @param publisher the publisher to publish events to, it should be closed once the simulation is done
+     */
+    public void publishEvents(SimulationEventPublisher publisher) {
+        if (eventPublisher != null) {
+            throw new IllegalStateException("Events of this simulation are already published.");
+        }
+        eventPublisher = publisher;
+        elevatorSystem.registerDispatchListener((elevator, atFloor) -> {
+            if (eventPublisher.hasSubscribers()) {
+                eventPublisher.publish(new SimulationEvent.ElevatorDispatched(stepCount, elevator.getId(), atFloor));
+            }
+        });
+    }
+
+    /**
+     * Adds a human that requests an elevator right away. Has to be called on the thread stepping the simulation,
+     * other threads can use {@link #openInbox()}.
+     *
+     * @param human the human to add, which did not request an elevator yet
+     * @throws SimulationFinishedException if the simulation is done already
+     */
     public void addHuman(Human human) {
         if (isDone()) {
             throw new SimulationFinishedException("Can't add new human after simulation is finished!");
         }
+        registerHuman(human);
+    }
+
+    private void registerHuman(Human human) {
         humans.add(human);
+        humanStatistics.add(new HumanStatistics(human));
         elevatorSystem.registerElevatorListener(human);
         human.addListener(this);
+        // Counted before it gets ready, as it may arrive right away
+        humanTravelingCount += human.getCohortSize();
         human.onElevatorSystemReady(elevatorSystem);
-        if (human.getCurrentState() != Human.State.ARRIVED) {
-            humanTravelingCount++;
-        }
+    }
+
+    /**
+     * Writes the current state of this simulation to the given file, see {@link SimulationCheckpoint}.
+     *
+     * @param path the file to write to, replaced if it already exists
+     */
+    public void checkpoint(Path path) {
+        SimulationCheckpoint.write(this, path);
+    }
+
+    /**
+     * Continues a simulation from a checkpoint written by {@link #checkpoint(Path)}.
+     *
+     * @param path the checkpoint to read
+     * @return the simulation in the state of the checkpoint, started already if it was started when written
+     */
+    public static Simulation resume(Path path) {
+        return SimulationCheckpoint.read(path);
+    }
+
+    /**
+     * Takes a copy of the current state of this simulation, see {@link SimulationSnapshot}.
+     * Must not be called while the simulation is stepping, but may be called while humans request elevators.
+     *
+     * @return the snapshot, which can be restored any number of times
+     */
+    public SimulationSnapshot snapshot() {
+        return new SimulationSnapshot(this);
+    }
+
+    boolean hasWorkloads() {
+        return !workloads.isEmpty();
+    }
+
+    long getHumanTravelingCount() {
+        return humanTravelingCount;
+    }
+
+    HumanStatistics getHumanStatistics(int humanIndex) {
+        return humanStatistics.get(humanIndex);
+    }
+
+    void restoreProgress(long stepCount, long humanTravelingCount) {
+        this.stepCount = stepCount;
+        this.humanTravelingCount = humanTravelingCount;
     }
 
     public long getStepCount() {
@@ -157,23 +437,85 @@ public final class Simulation implements HumanArrivedListener {
             double averagePercentage = getAverageTimePercentageSpendForState(state);
             System.out.printf("\t%s: %f%%%n", state, averagePercentage);
         }
+        System.out.printf("Steps waiting for an elevator: p99 %d, max %d%n",
+                getStepsForStatePercentile(Human.State.WAITING_FOR_ELEVATOR, 99),
+                getStepsForStatePercentile(Human.State.WAITING_FOR_ELEVATOR, 100));
     }
 
     public double getAverageTimePercentageSpendForState(Human.State state) {
-        LongStream sortedSteps = humanStatistics.stream()
-                .mapToLong(stats -> stats.stepsForState(state))
-                .sorted();
-        long medianSteps = humanStatistics.size() % 2 == 0
-                ? (long) sortedSteps.skip(humanStatistics.size() / 2 - 1).limit(2).average().orElseThrow()
-                : sortedSteps.skip(humanStatistics.size() / 2).findFirst().orElseThrow();
+        LongStream sortedSteps = stepsPerHuman(state).sorted();
+        long amountOfHumans = getAmountOfHumans();
+        long medianSteps = amountOfHumans % 2 == 0
+                ? (long) sortedSteps.skip(amountOfHumans / 2 - 1).limit(2).average().orElseThrow()
+                : sortedSteps.skip(amountOfHumans / 2).findFirst().orElseThrow();
 
         return (double) (100 * medianSteps) / stepCount;
     }
 
+    /**
+     * The amount of steps that the given share of humans spent at most in the given state, using the nearest rank.
+     *
+     * @param state      the state to look at
+     * @param percentile the share of humans in percent, from 0 to 100, for example 50 for the median
+     * @return the steps spent in the state, 0 if there are no humans
+     */
+    public long getStepsForStatePercentile(Human.State state, double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100, but was " + percentile);
+        }
+        if (humanStatistics.isEmpty()) {
+            return 0;
+        }
+        long[] sortedSteps = getSortedStepsForState(state);
+        int rank = (int) Math.ceil(percentile / 100 * sortedSteps.length);
+        return sortedSteps[Math.max(rank, 1) - 1];
+    }
+
+    /**
+     * The steps every human spent in the given state, for computing several percentiles without sorting again.
+     * Members of a cohort are counted individually.
+     *
+     * @param state the state to look at
+     * @return the steps spent in the state, in ascending order
+     */
+    public long[] getSortedStepsForState(Human.State state) {
+        return stepsPerHuman(state).sorted().toArray();
+    }
+
+    /**
+     * The amount of humans in this simulation, counting every member of a cohort.
+     *
+     * @return the amount of humans
+     */
+    public long getAmountOfHumans() {
+        return humanStatistics.stream().mapToLong(HumanStatistics::cohortSize).sum();
+    }
+
+    /**
+     * The steps spent in the given state, once for every human, so members of a cohort are counted individually.
+     */
+    private LongStream stepsPerHuman(Human.State state) {
+        return humanStatistics.stream().flatMapToLong(stats -> stats.cohortSize() == 1
+                ? LongStream.of(stats.stepsForState(state))
+                : LongStream.generate(() -> stats.stepsForState(state)).limit(stats.cohortSize()));
+    }
+
     @Override
     public synchronized void onHumanArrived(Human human) {
         if (humanTravelingCount > 0) {
-            humanTravelingCount--; //We trust that the human hasnt notified us twice.
+            humanTravelingCount -= human.getCohortSize(); //We trust that the human hasnt notified us twice.
+        }
+        if (eventPublisher != null && eventPublisher.hasSubscribers()) {
+            eventPublisher.publish(new SimulationEvent.HumanArrived(stepCount, human.getStartingFloor(),
+                    human.getDestinationFloor()));
+        }
+    }
+
+    @Override
+    public void onHumanEnteredElevator(Human human, int elevatorId) {
+        if (eventPublisher != null && eventPublisher.hasSubscribers()) {
+            eventPublisher.publish(new SimulationEvent.HumanBoarded(stepCount, elevatorId,
+                    human.getLegStartingFloor()));
         }
     }
 }
@@ -0,0 +1,294 @@
+package org.togetherjava.event.elevator.simulation;
+
+import org.togetherjava.event.elevator.elevators.Elevator;
+import org.togetherjava.event.elevator.humans.Human;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.stream.IntStream;
+
+/**
+ * Binary format for storing a running simulation, such that it can be paused and resumed later on.
+ * <p>
+ * A checkpoint consists of a fixed size header, all elevators, the state of the elevator system and all humans:
+ * <pre>
+ * int magic, int version, int amountOfElevators, int amountOfHumans,
+ * long stepCount, long humansTraveling, int elevatorSystemStateBytes
+ * amountOfElevators * (int minFloor, int floorsServed, int currentFloor)
+ * elevatorSystemStateBytes of {@link org.togetherjava.event.elevator.elevators.ElevatorSystem#writeState(ByteBuffer)}
+ * amountOfHumans    * (int startingFloor, int destinationFloor, int cohortSize, byte state, int elevatorIndex,
+ *                      int legStartingFloor, int legDestinationFloor, long stepsPerState for every state)
+ * </pre>
+ * All values are stored big-endian. Humans have a fixed size, so the file is written and read by memory mapping
+ * chunks of humans in parallel, without any intermediate objects. Elevators are referred to by their index.
+ * <p>
+ * Workloads and event publishers are not part of a checkpoint, simulations with workloads can not be stored.
+ * The same format backs the in-memory {@link SimulationSnapshot}, which ignores workloads instead.
+ */
+public final class SimulationCheckpoint {
+    private static final int MAGIC = 0x454C_434B; // "ELCK"
+    private static final int VERSION = 5;
+    private static final int HEADER_BYTES = 5 * Integer.BYTES + 2 * Long.BYTES;
+    private static final int ELEVATOR_BYTES = 3 * Integer.BYTES;
+    private static final Human.State[] STATES = Human.State.values();
+    private static final int HUMAN_BYTES = 6 * Integer.BYTES + 1 + STATES.length * Long.BYTES;
+    private static final int NO_ELEVATOR = -1;
+    /**
+     * Humans are mapped, written and read in chunks of this size.
+     */
+    private static final int HUMANS_PER_CHUNK = 1 << 16;
+
+    private SimulationCheckpoint() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * Writes the current state of the given simulation to the given file, replacing it if it already exists.
+     * Must not be called while the simulation is stepping.
+     *
+     * @param simulation the simulation to store
+     * @param path       the file to write to
+     * @throws IllegalStateException if the simulation has workloads
+     */
+    public static void write(Simulation simulation, Path path) {
+        if (simulation.hasWorkloads()) {
+            throw new IllegalStateException("Simulations with workloads can not be stored in a checkpoint.");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            encode(simulation, (offset, length) -> channel.map(FileChannel.MapMode.READ_WRITE, offset, length));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write checkpoint " + path, e);
+        }
+    }
+
+    /**
+     * Loads the simulation stored in the given file.
+     *
+     * @param path the file to read from, must have been written by {@link #write(Simulation, Path)}
+     * @return a simulation in the stored state, started already if it was started when stored
+     * @throws IllegalArgumentException if the file is not a valid checkpoint
+     */
+    public static Simulation read(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return decode(channel.size(), (offset, length) -> channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                    length), path.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read checkpoint " + path, e);
+        }
+    }
+
+    /**
+     * Encodes the current state of the given simulation in memory, using the same format as files.
+     * Workloads are ignored. Must not be called while the simulation is stepping.
+     *
+     * @param simulation the simulation to store
+     * @return the encoded state
+     * @throws IllegalStateException if the state does not fit into an array
+     */
+    static byte[] toBytes(Simulation simulation) {
+        long size = humansOffset(simulation) + (long) simulation.getHumans().size() * HUMAN_BYTES;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("The simulation is too large to be stored in memory: " + size + " bytes");
+        }
+        byte[] bytes = new byte[(int) size];
+        try {
+            encode(simulation, (offset, length) -> ByteBuffer.wrap(bytes, (int) offset, (int) length).slice());
+        } catch (IOException e) {
+            throw new AssertionError("Arrays are not doing any IO", e);
+        }
+        return bytes;
+    }
+
+    /**
+     * Decodes a simulation encoded by {@link #toBytes(Simulation)}.
+     *
+     * @param bytes the encoded state
+     * @return a new simulation in the encoded state
+     */
+    static Simulation fromBytes(byte[] bytes) {
+        try {
+            return decode(bytes.length, (offset, length) -> ByteBuffer.wrap(bytes, (int) offset, (int) length)
+                    .slice(), "in memory");
+        } catch (IOException e) {
+            throw new AssertionError("Arrays are not doing any IO", e);
+        }
+    }
+
+    private static long humansOffset(Simulation simulation) {
+        return HEADER_BYTES + (long) simulation.getElevators().size() * ELEVATOR_BYTES
+                + simulation.getElevatorSystem().stateBytes();
+    }
+
+    private static void encode(Simulation simulation, Region region) throws IOException {
+        List<Elevator> elevators = simulation.getElevators();
+        List<Human> humans = simulation.getHumans();
+        int systemStateBytes = simulation.getElevatorSystem().stateBytes();
+        long humansOffset = humansOffset(simulation);
+
+        Map<Integer, Integer> elevatorIdToIndex = new HashMap<>();
+        for (int i = 0; i < elevators.size(); i++) {
+            elevatorIdToIndex.put(elevators.get(i).getId(), i);
+        }
+
+        ByteBuffer head = region.get(0, humansOffset);
+        head.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(elevators.size())
+                .putInt(humans.size())
+                .putLong(simulation.getStepCount())
+                .putLong(simulation.getHumanTravelingCount())
+                .putInt(systemStateBytes);
+        for (Elevator elevator : elevators) {
+            head.putInt(elevator.getMinFloor()).putInt(elevator.getFloorsServed()).putInt(elevator.getCurrentFloor());
+        }
+        simulation.getElevatorSystem().writeState(head);
+        force(head);
+
+        IntStream.range(0, chunks(humans.size())).parallel().forEach(chunk -> {
+            int start = chunk * HUMANS_PER_CHUNK;
+            int end = Math.min(humans.size(), start + HUMANS_PER_CHUNK);
+            ByteBuffer buffer = mapHumans(region, humansOffset, start, end);
+            for (int i = start; i < end; i++) {
+                Human human = humans.get(i);
+                OptionalInt elevatorId = human.getCurrentEnteredElevatorId();
+                buffer.putInt(human.getStartingFloor())
+                        .putInt(human.getDestinationFloor())
+                        .putInt(human.getCohortSize())
+                        .put((byte) human.getCurrentState().ordinal())
+                        .putInt(elevatorId.isPresent() ? elevatorIdToIndex.get(elevatorId.getAsInt()) : NO_ELEVATOR)
+                        .putInt(human.getLegStartingFloor())
+                        .putInt(human.getLegDestinationFloor());
+                HumanStatistics statistics = simulation.getHumanStatistics(i);
+                for (Human.State state : STATES) {
+                    buffer.putLong(statistics.stepsForState(state));
+                }
+            }
+            force(buffer);
+        });
+    }
+
+    private static Simulation decode(long size, Region region, String source) throws IOException {
+        if (size < HEADER_BYTES) {
+            throw new IllegalArgumentException("Not a checkpoint, it is too small: " + source);
+        }
+        ByteBuffer header = region.get(0, HEADER_BYTES);
+        if (header.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a checkpoint, the magic number does not match: " + source);
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported checkpoint version %d, expected %d: %s"
+                    .formatted(version, VERSION, source));
+        }
+        int amountOfElevators = header.getInt();
+        int amountOfHumans = header.getInt();
+        long stepCount = header.getLong();
+        long humansTraveling = header.getLong();
+        int systemStateBytes = header.getInt();
+        long humansOffset = HEADER_BYTES + (long) amountOfElevators * ELEVATOR_BYTES + systemStateBytes;
+        if (amountOfElevators < 0 || amountOfHumans < 0 || systemStateBytes < 0
+                || size != humansOffset + (long) amountOfHumans * HUMAN_BYTES) {
+            throw new IllegalArgumentException("Corrupt checkpoint, the size does not match its header: " + source);
+        }
+
+        ByteBuffer head = region.get(HEADER_BYTES, humansOffset - HEADER_BYTES);
+        Elevator[] elevators = new Elevator[amountOfElevators];
+        for (int i = 0; i < amountOfElevators; i++) {
+            elevators[i] = new Elevator(head.getInt(), head.getInt(), head.getInt());
+        }
+
+        Human[] humans = new Human[amountOfHumans];
+        ByteBuffer[] chunks = new ByteBuffer[chunks(amountOfHumans)];
+        IntStream.range(0, chunks.length).parallel().forEach(chunk -> {
+            int start = chunk * HUMANS_PER_CHUNK;
+            int end = Math.min(amountOfHumans, start + HUMANS_PER_CHUNK);
+            chunks[chunk] = mapHumans(region, humansOffset, start, end);
+            for (int i = start; i < end; i++) {
+                int offset = (i - start) * HUMAN_BYTES;
+                humans[i] = new Human(chunks[chunk].getInt(offset), chunks[chunk].getInt(offset + Integer.BYTES),
+                        chunks[chunk].getInt(offset + 2 * Integer.BYTES));
+            }
+        });
+
+        Simulation simulation = new Simulation(Arrays.asList(elevators), Arrays.asList(humans));
+        try {
+            simulation.getElevatorSystem().readState(head.slice(head.position(), systemStateBytes));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Corrupt checkpoint, invalid elevator system state: " + source, e);
+        }
+        simulation.restoreProgress(stepCount, humansTraveling);
+
+        IntStream.range(0, chunks.length).parallel().forEach(chunk -> {
+            int start = chunk * HUMANS_PER_CHUNK;
+            int end = Math.min(amountOfHumans, start + HUMANS_PER_CHUNK);
+            ByteBuffer buffer = chunks[chunk];
+            for (int i = start; i < end; i++) {
+                buffer.position((i - start) * HUMAN_BYTES + 3 * Integer.BYTES);
+                restoreHuman(humans[i], simulation, i, buffer, elevators);
+            }
+        });
+        return simulation;
+    }
+
+    private static void restoreHuman(Human human, Simulation simulation, int humanIndex, ByteBuffer buffer,
+            Elevator[] elevators) {
+        int stateOrdinal = buffer.get();
+        int elevatorIndex = buffer.getInt();
+        int legStartingFloor = buffer.getInt();
+        int legDestinationFloor = buffer.getInt();
+        if (stateOrdinal < 0 || stateOrdinal >= STATES.length
+                || elevatorIndex < NO_ELEVATOR || elevatorIndex >= elevators.length
+                || legStartingFloor <= 0 || legDestinationFloor <= 0) {
+            throw new IllegalArgumentException("Corrupt checkpoint, invalid state of " + human);
+        }
+        Human.State state = STATES[stateOrdinal];
+        if (state != Human.State.IDLE) {
+            human.restoreState(state, elevatorIndex == NO_ELEVATOR ? null : elevators[elevatorIndex],
+                    simulation.getElevatorSystem(), legStartingFloor, legDestinationFloor);
+        }
+        HumanStatistics statistics = simulation.getHumanStatistics(humanIndex);
+        for (Human.State countedState : STATES) {
+            statistics.restoreStepsForState(countedState, buffer.getLong());
+        }
+    }
+
+    private static int chunks(int amountOfHumans) {
+        return (amountOfHumans + HUMANS_PER_CHUNK - 1) / HUMANS_PER_CHUNK;
+    }
+
+    private static ByteBuffer mapHumans(Region region, long humansOffset, int start, int end) {
+        try {
+            return region.get(humansOffset + (long) start * HUMAN_BYTES, (long) (end - start) * HUMAN_BYTES);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to map humans %d to %d".formatted(start, end), e);
+        }
+    }
+
+    private static void force(ByteBuffer buffer) {
+        if (buffer instanceof MappedByteBuffer mapped) {
+            mapped.force();
+        }
+    }
+
+    /**
+     * Where a checkpoint is stored, either a file or an array.
+     */
+    @FunctionalInterface
+    private interface Region {
+        /**
+         * A big-endian buffer covering the given part of the checkpoint, positioned at its start.
+         */
+        ByteBuffer get(long offset, long length) throws IOException;
+    }
+}
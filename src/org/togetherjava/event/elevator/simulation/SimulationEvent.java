@@ -0,0 +1,51 @@
+package org.togetherjava.event.elevator.simulation;
+
+/**
+ * Events published by a {@link Simulation} through its {@link SimulationEventPublisher}.
+ * <p>
+ * Events only carry plain values, so they can safely be consumed on other threads while the simulation continues.
+ * The step of an event is the amount of steps that were completed when it happened.
+ */
+public sealed interface SimulationEvent {
+    long step();
+
+    /**
+     * A step of the simulation was completed.
+     *
+     * @param step            the amount of steps completed now
+     * @param humansTraveling the amount of humans that did not arrive yet
+     * @param elevatorFloors  the current floor of every elevator, in registration order
+     */
+    record StepCompleted(long step, long humansTraveling, int[] elevatorFloors) implements SimulationEvent {
+    }
+
+    /**
+     * An elevator was sent to a floor to pick up a human.
+     *
+     * @param step       the amount of steps completed when the elevator was dispatched
+     * @param elevatorId the unique ID of the elevator
+     * @param atFloor    the floor the elevator was sent to
+     */
+    record ElevatorDispatched(long step, int elevatorId, int atFloor) implements SimulationEvent {
+    }
+
+    /**
+     * A human entered an elevator.
+     *
+     * @param step          the amount of steps completed when the human entered
+     * @param elevatorId    the unique ID of the elevator
+     * @param startingFloor the floor the human entered at
+     */
+    record HumanBoarded(long step, int elevatorId, int startingFloor) implements SimulationEvent {
+    }
+
+    /**
+     * A human reached their destination.
+     *
+     * @param step             the amount of steps completed when the human arrived
+     * @param startingFloor    the floor the human started at
+     * @param destinationFloor the floor the human arrived at
+     */
+    record HumanArrived(long step, int startingFloor, int destinationFloor) implements SimulationEvent {
+    }
+}
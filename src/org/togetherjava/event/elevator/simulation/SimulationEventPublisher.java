@@ -0,0 +1,295 @@
+package org.togetherjava.event.elevator.simulation;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the events of a simulation to subscribers running on other threads.
+ * <p>
+ * Every subscriber gets its own bounded buffer, which is drained on the executor of the publisher
+ * according to the demand of the subscriber. What happens once a buffer is full is decided by the
+ * {@link BackpressurePolicy} of the publisher. Unless {@link BackpressurePolicy#BLOCK} is used, a slow
+ * subscriber never slows down the simulation.
+ * <p>
+ * Closing the publisher completes all subscribers once they consumed their buffered events.
+ */
+public final class SimulationEventPublisher implements Flow.Publisher<SimulationEvent>, AutoCloseable {
+    private final int bufferCapacity;
+    private final BackpressurePolicy policy;
+    private final Executor executor;
+    private final List<BufferedSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * Creates a publisher delivering events on its own daemon threads, which end once they are idle for a while.
+     *
+     * @param bufferCapacity the maximal amount of events buffered per subscriber, must be positive
+     * @param policy         what to do once the buffer of a subscriber is full
+     */
+    public SimulationEventPublisher(int bufferCapacity, BackpressurePolicy policy) {
+        this(bufferCapacity, policy, Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "simulation-events");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * Creates a publisher delivering events on the given executor.
+     * <p>
+     * When using {@link BackpressurePolicy#BLOCK}, the executor must not run on the threads stepping the simulation.
+     *
+     * @param bufferCapacity the maximal amount of events buffered per subscriber, must be positive
+     * @param policy         what to do once the buffer of a subscriber is full
+     * @param executor       the executor to deliver events on
+     */
+    public SimulationEventPublisher(int bufferCapacity, BackpressurePolicy policy, Executor executor) {
+        if (bufferCapacity <= 0) {
+            throw new IllegalArgumentException("Buffer capacity must be positive.");
+        }
+        this.bufferCapacity = bufferCapacity;
+        this.policy = Objects.requireNonNull(policy);
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super SimulationEvent> subscriber) {
+        Objects.requireNonNull(subscriber);
+        BufferedSubscription subscription = new BufferedSubscription(subscriber);
+        subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+        if (closed) {
+            subscription.complete();
+        }
+    }
+
+    /**
+     * Whether anyone is listening. Used to avoid creating events nobody consumes.
+     *
+     * @return {@code true} if there is at least one subscriber, {@code false} otherwise
+     */
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    /**
+     * The amount of events that did not reach a subscriber because its buffer was full.
+     *
+     * @return the total amount of dropped events, over all subscribers
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    void publish(SimulationEvent event) {
+        if (closed) {
+            return;
+        }
+        for (BufferedSubscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        subscriptions.forEach(BufferedSubscription::complete);
+    }
+
+    /**
+     * What a publisher does with a new event once the buffer of a subscriber is full.
+     */
+    public enum BackpressurePolicy {
+        /**
+         * The new event is discarded, the subscriber keeps the older events.
+         */
+        DROP,
+        /**
+         * The oldest buffered {@link SimulationEvent.StepCompleted} is discarded in favor of the new event,
+         * so a lagging subscriber skips ahead to the latest state. Other events are never discarded for room,
+         * if no step is buffered, the new event is discarded as with {@link #DROP}.
+         */
+        CONFLATE,
+        /**
+         * The simulation waits until the subscriber made room in its buffer.
+         */
+        BLOCK
+    }
+
+    private final class BufferedSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super SimulationEvent> subscriber;
+        private final ArrayDeque<SimulationEvent> buffer = new ArrayDeque<>();
+        private long demand;
+        private boolean cancelled;
+        private boolean completing;
+        private boolean completed;
+        /**
+         * An error to signal instead of further events, delivered by the drain so signals never overlap.
+         */
+        private Throwable error;
+        /**
+         * Whether a drain is scheduled or running on the executor. At most one drain runs at a time,
+         * so events are delivered sequentially and in order.
+         */
+        private boolean draining;
+
+        BufferedSubscription(Flow.Subscriber<? super SimulationEvent> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void offer(SimulationEvent event) {
+            synchronized (this) {
+                if (cancelled || completing || error != null) {
+                    return;
+                }
+                if (buffer.size() >= bufferCapacity) {
+                    switch (policy) {
+                        case DROP -> {
+                            droppedEvents.incrementAndGet();
+                            return;
+                        }
+                        case CONFLATE -> {
+                            droppedEvents.incrementAndGet();
+                            if (!discardOldestStep()) {
+                                return;
+                            }
+                        }
+                        case BLOCK -> {
+                            if (!awaitRoom()) {
+                                droppedEvents.incrementAndGet();
+                                return;
+                            }
+                        }
+                    }
+                }
+                buffer.add(event);
+            }
+            scheduleDrain();
+        }
+
+        /**
+         * Discards the oldest buffered step, which is superseded by the steps after it.
+         */
+        private boolean discardOldestStep() {
+            Iterator<SimulationEvent> events = buffer.iterator();
+            while (events.hasNext()) {
+                if (events.next() instanceof SimulationEvent.StepCompleted) {
+                    events.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean awaitRoom() {
+            while (buffer.size() >= bufferCapacity && !cancelled && error == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return !cancelled && error == null;
+        }
+
+        void complete() {
+            synchronized (this) {
+                completing = true;
+            }
+            scheduleDrain();
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (n <= 0) {
+                    if (error == null) {
+                        error = new IllegalArgumentException("Requested amount must be positive, but was " + n);
+                    }
+                    buffer.clear();
+                    // Wakes up the simulation if it is blocked on a full buffer
+                    notifyAll();
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+            }
+            scheduleDrain();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                buffer.clear();
+                notifyAll();
+            }
+            subscriptions.remove(this);
+        }
+
+        private void scheduleDrain() {
+            synchronized (this) {
+                if (draining || cancelled || completed) {
+                    return;
+                }
+                draining = true;
+            }
+            executor.execute(this);
+        }
+
+        @Override
+        public void run() {
+            Throwable failure;
+            while (true) {
+                SimulationEvent event;
+                synchronized (this) {
+                    if (cancelled) {
+                        draining = false;
+                        return;
+                    }
+                    failure = error;
+                    if (failure != null) {
+                        cancelled = true;
+                        draining = false;
+                        subscriptions.remove(this);
+                        break;
+                    }
+                    if (buffer.isEmpty() && completing) {
+                        completed = true;
+                        draining = false;
+                        subscriptions.remove(this);
+                        break;
+                    }
+                    if (buffer.isEmpty() || demand == 0) {
+                        draining = false;
+                        return;
+                    }
+                    event = buffer.poll();
+                    demand--;
+                    // Wakes up the simulation if it is blocked on a full buffer
+                    notifyAll();
+                }
+                try {
+                    subscriber.onNext(event);
+                } catch (RuntimeException e) {
+                    cancel();
+                    subscriber.onError(e);
+                    return;
+                }
+            }
+            if (failure != null) {
+                subscriber.onError(failure);
+                return;
+            }
+            subscriber.onComplete();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.togetherjava.event.elevator.simulation;
+
+import org.togetherjava.event.elevator.elevators.Elevator;
+import org.togetherjava.event.elevator.elevators.ElevatorSystem;
+import org.togetherjava.event.elevator.elevators.TravelDirection;
+import org.togetherjava.event.elevator.humans.Human;
+
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Lets any thread submit humans and hall calls to a simulation, while the simulation keeps owning all of its state
+ * on the single thread stepping it.
+ * <p>
+ * Submissions are appended to a lock-free multi-producer single-consumer queue, costing one compare-and-set each,
+ * retried only while other threads append at the same time. Before every step, the simulation drains everything
+ * submitted so far in one batch and in submission order, so neither the engine nor the producers ever take a lock
+ * for them. A submission that is still being appended while the queue is drained is picked up at the next step.
+ * <p>
+ * Closing appends a marker to the same queue. A submission either gets in before the marker and is drained,
+ * or finds the marker and is rejected, so none can get lost while the inbox is closed concurrently.
+ * <p>
+ * Opened via {@link Simulation#openInbox()}. The simulation is not done before the inbox was closed and drained.
+ */
+public final class SimulationInbox implements Workload, AutoCloseable {
+    private final ElevatorSystem elevatorSystem;
+    /**
+     * The floors at least one elevator serves, only read after construction.
+     */
+    private final BitSet servedFloors = new BitSet();
+    /**
+     * The last submission, producers replace it with theirs and link the previous one to it afterwards.
+     * Once it is the {@link #closedMarker}, it never changes anymore.
+     */
+    private final AtomicReference<Submission> newest;
+    private final Submission closedMarker = new Submission(null, 0, null);
+    /**
+     * The last drained submission, only accessed by the stepping thread. Its {@code next} is the oldest pending one.
+     */
+    private Submission drained;
+
+    SimulationInbox(ElevatorSystem elevatorSystem, Iterable<Elevator> elevators) {
+        this.elevatorSystem = elevatorSystem;
+        for (Elevator elevator : elevators) {
+            servedFloors.set(elevator.getMinFloor(), elevator.getTopFloor() + 1);
+        }
+        drained = new Submission(null, 0, null);
+        newest = new AtomicReference<>(drained);
+    }
+
+    /**
+     * Adds a human to the simulation before its next step. Can be called from any thread.
+     *
+     * @param human the human to add, which did not request an elevator yet
+     * @throws IllegalStateException if the inbox is closed already
+     */
+    public void submitHuman(Human human) {
+        Objects.requireNonNull(human);
+        submit(new Submission(human, 0, null));
+    }
+
+    /**
+     * Requests an elevator to the given floor before the next step, without a human waiting for it.
+     * Can be called from any thread.
+     *
+     * @param atFloor                the floor to send an elevator to, served by at least one elevator
+     * @param desiredTravelDirection the direction the caller wants to travel into
+     * @throws IllegalArgumentException if no elevator serves the floor
+     * @throws IllegalStateException    if the inbox is closed already
+     */
+    public void submitHallCall(int atFloor, TravelDirection desiredTravelDirection) {
+        // Checked here, as the stepping thread would only fail once the call is drained
+        if (atFloor < 0 || !servedFloors.get(atFloor)) {
+            throw new IllegalArgumentException("Floor %d is not served by any elevator".formatted(atFloor));
+        }
+        submit(new Submission(null, atFloor, Objects.requireNonNull(desiredTravelDirection)));
+    }
+
+    private void submit(Submission submission) {
+        Submission previous;
+        do {
+            previous = newest.get();
+            if (previous == closedMarker) {
+                throw new IllegalStateException("The inbox is closed, nothing can be submitted anymore.");
+            }
+        } while (!newest.compareAndSet(previous, submission));
+        // Until this is linked, the consumer stops at the previous submission
+        previous.next = submission;
+    }
+
+    /**
+     * Stops accepting submissions. The simulation still drains the ones submitted before.
+     * Can be called from any thread, also concurrently to submissions.
+     */
+    @Override
+    public void close() {
+        Submission previous = newest.getAndSet(closedMarker);
+        if (previous != closedMarker) {
+            previous.next = closedMarker;
+        }
+    }
+
+    @Override
+    public void injectArrivals(long step, Consumer<Human> arrivals) {
+        Submission submission = drained.next;
+        while (submission != null && submission != closedMarker) {
+            if (submission.human != null) {
+                arrivals.accept(submission.human);
+            } else {
+                elevatorSystem.requestElevator(submission.atFloor, submission.desiredTravelDirection);
+            }
+            // The drained submission stays as the head of the queue, it must not keep its human alive
+            submission.human = null;
+            drained = submission;
+            submission = submission.next;
+        }
+    }
+
+    @Override
+    public boolean isExhausted() {
+        // Everything before the marker was drained, nothing can follow it
+        return drained.next == closedMarker;
+    }
+
+    private static final class Submission {
+        private Human human;
+        private final int atFloor;
+        private final TravelDirection desiredTravelDirection;
+        private volatile Submission next;
+
+        private Submission(Human human, int atFloor, TravelDirection desiredTravelDirection) {
+            this.human = human;
+            this.atFloor = atFloor;
+            this.desiredTravelDirection = desiredTravelDirection;
+        }
+    }
+}
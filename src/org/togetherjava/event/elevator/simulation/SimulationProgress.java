@@ -0,0 +1,15 @@
+package org.togetherjava.event.elevator.simulation;
+
+import java.time.Duration;
+
+/**
+ * Progress of a simulation running via
+ * {@link Simulation#runAsync(int, java.util.concurrent.Executor, int, java.util.function.Consumer)}.
+ *
+ * @param steps           the amount of steps executed so far
+ * @param humans          the amount of humans in the simulation so far, counting every member of a cohort
+ * @param humansTraveling the amount of humans that did not arrive yet
+ * @param elapsed         the time since the run started
+ */
+public record SimulationProgress(long steps, long humans, long humansTraveling, Duration elapsed) {
+}
@@ -0,0 +1,71 @@
+package org.togetherjava.event.elevator.simulation;
+
+import org.togetherjava.event.elevator.humans.Human;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The outcome of running a simulation via {@link Simulation#runAsync(int, java.util.concurrent.Executor)}.
+ *
+ * @param outcome         whether the simulation finished or was stopped at the step limit
+ * @param steps           the amount of steps executed
+ * @param humans          the amount of humans in the simulation, counting every member of a cohort
+ * @param humansTraveling the amount of humans that did not arrive, 0 if the simulation finished
+ * @param wallTime        the time from starting the run until it ended, including waiting for the executor
+ * @param stepsPerState   for every state of a human, how many steps humans spent in it
+ */
+public record SimulationResult(Outcome outcome, long steps, long humans, long humansTraveling, Duration wallTime,
+        Map<Human.State, Percentiles> stepsPerState) {
+    public SimulationResult {
+        stepsPerState = Map.copyOf(stepsPerState);
+    }
+
+    static SimulationResult of(Simulation simulation, Outcome outcome, Duration wallTime) {
+        Map<Human.State, Percentiles> stepsPerState = new EnumMap<>(Human.State.class);
+        for (Human.State state : Human.State.values()) {
+            stepsPerState.put(state, Percentiles.of(simulation.getSortedStepsForState(state)));
+        }
+        return new SimulationResult(outcome, simulation.getStepCount(), simulation.getAmountOfHumans(),
+                simulation.getHumanTravelingCount(), wallTime, stepsPerState);
+    }
+
+    /**
+     * How a run ended.
+     */
+    public enum Outcome {
+        /**
+         * All humans arrived and all workloads are exhausted.
+         */
+        DONE,
+        /**
+         * The step limit was reached before the simulation was done.
+         */
+        STEP_LIMIT_REACHED
+    }
+
+    /**
+     * The distribution of the steps humans spent in a state, using the nearest rank.
+     * All values are 0 if there are no humans.
+     *
+     * @param p50 the steps half of the humans spent in the state at most
+     * @param p90 the steps 90% of the humans spent in the state at most
+     * @param p99 the steps 99% of the humans spent in the state at most
+     * @param max the most steps any human spent in the state
+     */
+    public record Percentiles(long p50, long p90, long p99, long max) {
+        static Percentiles of(long[] sortedSteps) {
+            return new Percentiles(percentile(sortedSteps, 50), percentile(sortedSteps, 90),
+                    percentile(sortedSteps, 99), percentile(sortedSteps, 100));
+        }
+
+        private static long percentile(long[] sortedSteps, double percentile) {
+            if (sortedSteps.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * sortedSteps.length);
+            return sortedSteps[Math.max(rank, 1) - 1];
+        }
+    }
+}
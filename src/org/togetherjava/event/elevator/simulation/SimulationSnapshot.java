@@ -0,0 +1,44 @@
+package org.togetherjava.event.elevator.simulation;
+
+/**
+ * Compact, immutable copy of the state of a {@link Simulation}, taken via {@link Simulation#snapshot()}.
+ * <p>
+ * The state is encoded into a single array in the format of {@link SimulationCheckpoint}, so taking a snapshot
+ * costs a few bytes per human and elevator, regardless of how many times it is restored afterwards.
+ * Every {@link #restore()} creates an independent simulation, which allows forking a running simulation to try
+ * out decisions without affecting the original one.
+ * <p>
+ * Workloads, event publishers and listeners are not part of a snapshot. Humans that will only arrive later on
+ * do not exist in restored simulations.
+ */
+public final class SimulationSnapshot {
+    private final byte[] state;
+    private final long stepCount;
+
+    SimulationSnapshot(Simulation simulation) {
+        state = SimulationCheckpoint.toBytes(simulation);
+        stepCount = simulation.getStepCount();
+    }
+
+    /**
+     * Creates a new simulation in the state of this snapshot. Can be called any number of times, also concurrently.
+     *
+     * @return a new simulation, independent of the original one and of other restored ones
+     */
+    public Simulation restore() {
+        return SimulationCheckpoint.fromBytes(state);
+    }
+
+    public long getStepCount() {
+        return stepCount;
+    }
+
+    /**
+     * The amount of memory the encoded state takes.
+     *
+     * @return the size of the snapshot in bytes
+     */
+    public int sizeInBytes() {
+        return state.length;
+    }
+}
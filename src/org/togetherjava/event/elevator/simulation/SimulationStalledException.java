@@ -0,0 +1,30 @@
+package org.togetherjava.event.elevator.simulation;
+
+import java.io.Serial;
+
+/**
+ * Thrown by a {@link ProgressWatchdog} once a simulation stopped making progress and will never be done.
+ * <p>
+ * The message contains the reason followed by a dump of the stuck humans and the requests of all busy elevators.
+ */
+public final class SimulationStalledException extends IllegalStateException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final String reason;
+    private final long step;
+
+    public SimulationStalledException(String reason, long step, String diagnostics) {
+        super("Simulation stalled at step %d: %s%n%s".formatted(step, reason, diagnostics));
+        this.reason = reason;
+        this.step = step;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public long getStep() {
+        return step;
+    }
+}
@@ -0,0 +1,293 @@
+package org.togetherjava.event.elevator.simulation;
+
+import org.togetherjava.event.elevator.elevators.Elevator;
+import org.togetherjava.event.elevator.humans.Human;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+
+/**
+ * Records how a simulation evolves over time, for plotting queues and elevator positions offline.
+ * <p>
+ * Every few steps, a sample of these series is taken:
+ * <ul>
+ *     <li>the humans that arrived since the previous sample,</li>
+ *     <li>for every floor, the humans waiting there,</li>
+ *     <li>for every elevator, its floor, the humans riding it and its amount of pending floor requests.</li>
+ * </ul>
+ * Members of a cohort are counted individually. Elevators are referred to by their registration order.
+ * Taking a sample scans all humans once, so the interval bounds what exporting adds to each step.
+ * <p>
+ * Samples are written through a small buffer. CSV files have a header line and a line per sample with a column per
+ * series. Binary files store the series column by column in blocks of samples, so a single series is read without
+ * touching the others:
+ * <pre>
+ * int magic, int version, int minFloor, int floors, int elevators, int sampleInterval
+ * per block: int samples,
+ *            samples * long step, samples * int arrivals,
+ *            for every floor: samples * int waitingHumans,
+ *            for every elevator: samples * int floor,
+ *            for every elevator: samples * int riders,
+ *            for every elevator: samples * int floorRequests
+ * </pre>
+ * All values are stored big-endian. Usage:
+ * <pre>{@code
+ * try (TimeSeriesExporter exporter = new TimeSeriesExporter(simulation, path, Format.BINARY, 10)) {
+ *     simulation.start();
+ *     exporter.sample();
+ *     while (!simulation.isDone()) {
+ *         simulation.step();
+ *         exporter.sample();
+ *     }
+ * }
+ * }</pre>
+ */
+public final class TimeSeriesExporter implements Closeable {
+    private static final int MAGIC = 0x454C_5453; // "ELTS"
+    private static final int VERSION = 1;
+    private static final int BUFFER_BYTES = 1 << 16;
+    /**
+     * Blocks of binary files are sized to keep about this many bytes in memory.
+     */
+    private static final int BLOCK_BYTES = 1 << 20;
+    private static final int MAX_BLOCK_SAMPLES = 4_096;
+    private static final long NOT_SAMPLED = -1;
+
+    private final Simulation simulation;
+    private final Path path;
+    private final Format format;
+    private final int sampleInterval;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final List<Elevator> elevators;
+    private final Map<Integer, Integer> elevatorIdToIndex = new HashMap<>();
+    private final int minFloor;
+    private final int floors;
+
+    /**
+     * The series of the current block, indexed by column and sample. Columns are arrivals, then waiting humans
+     * per floor, then floors, riders and floor requests per elevator. CSV files use blocks of a single sample.
+     */
+    private final long[] blockSteps;
+    private final int[][] blockColumns;
+    private int blockSamples;
+    private long lastSampledStep = NOT_SAMPLED;
+    private long arrivedAtLastSample;
+    private final StringBuilder line = new StringBuilder();
+
+    /**
+     * Creates an exporter for the given simulation, replacing the file if it already exists.
+     *
+     * @param simulation     the simulation to record, its elevators must not change anymore
+     * @param path           the file to write to
+     * @param format         the format of the file
+     * @param sampleInterval every how many steps a sample is taken, at least 1
+     */
+    public TimeSeriesExporter(Simulation simulation, Path path, Format format, int sampleInterval) {
+        if (sampleInterval < 1) {
+            throw new IllegalArgumentException("Sample interval must be positive, but was " + sampleInterval);
+        }
+        this.simulation = simulation;
+        this.path = path;
+        this.format = format;
+        this.sampleInterval = sampleInterval;
+        elevators = List.copyOf(simulation.getElevators());
+        int lowest = Integer.MAX_VALUE;
+        int highest = Integer.MIN_VALUE;
+        for (int i = 0; i < elevators.size(); i++) {
+            elevatorIdToIndex.put(elevators.get(i).getId(), i);
+            lowest = Math.min(lowest, elevators.get(i).getMinFloor());
+            highest = Math.max(highest, elevators.get(i).getTopFloor());
+        }
+        minFloor = elevators.isEmpty() ? 1 : lowest;
+        floors = elevators.isEmpty() ? 0 : highest - lowest + 1;
+
+        int columns = 1 + floors + 3 * elevators.size();
+        int samplesPerBlock = format == Format.CSV
+                ? 1
+                : Math.clamp(BLOCK_BYTES / (Integer.BYTES * columns), 1, MAX_BLOCK_SAMPLES);
+        blockSteps = new long[samplesPerBlock];
+        blockColumns = new int[columns][samplesPerBlock];
+
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open time series " + path, e);
+        }
+        if (format == Format.CSV) {
+            writeCsvHeader();
+        } else {
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(minFloor).putInt(floors).putInt(elevators.size())
+                    .putInt(sampleInterval);
+        }
+    }
+
+    /**
+     * Takes a sample if the current step is due and was not sampled yet. Meant to be called after every step,
+     * on the thread stepping the simulation.
+     */
+    public void sample() {
+        long step = simulation.getStepCount();
+        if (step % sampleInterval != 0 || step == lastSampledStep) {
+            return;
+        }
+        takeSample(step);
+    }
+
+    private void takeSample(long step) {
+        lastSampledStep = step;
+        int sample = blockSamples++;
+        blockSteps[sample] = step;
+        for (int column = 1; column <= floors; column++) {
+            blockColumns[column][sample] = 0;
+        }
+        int ridersColumn = 1 + floors + elevators.size();
+        for (int i = 0; i < elevators.size(); i++) {
+            blockColumns[ridersColumn + i][sample] = 0;
+        }
+
+        long arrived = 0;
+        List<Human> humans = simulation.getHumans();
+        for (int i = 0; i < humans.size(); i++) {
+            Human human = humans.get(i);
+            switch (human.getCurrentState()) {
+                case WAITING_FOR_ELEVATOR -> {
+                    int floor = human.getLegStartingFloor() - minFloor;
+                    if (floor >= 0 && floor < floors) {
+                        blockColumns[1 + floor][sample] += human.getCohortSize();
+                    }
+                }
+                case TRAVELING_WITH_ELEVATOR -> {
+                    OptionalInt elevatorId = human.getCurrentEnteredElevatorId();
+                    Integer index = elevatorId.isPresent() ? elevatorIdToIndex.get(elevatorId.getAsInt()) : null;
+                    if (index != null) {
+                        blockColumns[ridersColumn + index][sample] += human.getCohortSize();
+                    }
+                }
+                case ARRIVED -> arrived += human.getCohortSize();
+                case IDLE -> {
+                    // Not part of any queue yet
+                }
+            }
+        }
+        blockColumns[0][sample] = Math.toIntExact(arrived - arrivedAtLastSample);
+        arrivedAtLastSample = arrived;
+
+        for (int i = 0; i < elevators.size(); i++) {
+            Elevator elevator = elevators.get(i);
+            blockColumns[1 + floors + i][sample] = elevator.getCurrentFloor();
+            blockColumns[1 + floors + 2 * elevators.size() + i][sample] = elevator.getFloorRequestCount();
+        }
+
+        if (blockSamples == blockSteps.length) {
+            writeBlock();
+        }
+    }
+
+    private void writeBlock() {
+        if (format == Format.CSV) {
+            line.setLength(0);
+            line.append(blockSteps[0]);
+            for (int[] column : blockColumns) {
+                line.append(',').append(column[0]);
+            }
+            writeLine();
+        } else {
+            ensureRemaining(Integer.BYTES);
+            buffer.putInt(blockSamples);
+            for (int sample = 0; sample < blockSamples; sample++) {
+                ensureRemaining(Long.BYTES);
+                buffer.putLong(blockSteps[sample]);
+            }
+            for (int[] column : blockColumns) {
+                for (int sample = 0; sample < blockSamples; sample++) {
+                    ensureRemaining(Integer.BYTES);
+                    buffer.putInt(column[sample]);
+                }
+            }
+        }
+        blockSamples = 0;
+    }
+
+    private void writeCsvHeader() {
+        line.append("step,arrivals");
+        for (int floor = minFloor; floor < minFloor + floors; floor++) {
+            line.append(",waiting_floor_").append(floor);
+        }
+        for (String series : new String[] {"floor", "riders", "floor_requests"}) {
+            for (int i = 0; i < elevators.size(); i++) {
+                line.append(",elevator_").append(i).append('_').append(series);
+            }
+        }
+        writeLine();
+    }
+
+    private void writeLine() {
+        line.append('\n');
+        for (int i = 0; i < line.length(); i++) {
+            ensureRemaining(1);
+            buffer.put((byte) line.charAt(i));
+        }
+    }
+
+    private void ensureRemaining(int bytes) {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write time series " + path, e);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Takes a last sample of the current step if it was not sampled yet, so the end of the simulation is always
+     * recorded, and closes the file.
+     */
+    @Override
+    public void close() {
+        try (channel) {
+            if (lastSampledStep != simulation.getStepCount()) {
+                takeSample(simulation.getStepCount());
+            }
+            if (blockSamples > 0) {
+                writeBlock();
+            }
+            flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write time series " + path, e);
+        }
+    }
+
+    /**
+     * The file formats of the exporter.
+     */
+    public enum Format {
+        /**
+         * A line per sample with a column per series, readable by spreadsheets and plotting tools.
+         */
+        CSV,
+        /**
+         * The series column by column, see {@link TimeSeriesExporter}, compact and fast to read.
+         */
+        BINARY
+    }
+}
@@ -21,7 +21,7 @@ public final class View {
     }
 
     public void printSummary() {
-        System.out.printf("Simulation with %d elevators and %d humans.%n", simulation.getElevators().size(), simulation.getHumans().size());
+        System.out.printf("Simulation with %d elevators and %d humans.%n", simulation.getElevators().size(), simulation.getAmountOfHumans());
         System.out.println("\tElevators: " + simulation.getElevators());
         System.out.println("\tHumans: " + simulation.getHumans());
     }
@@ -33,7 +33,7 @@ public final class View {
                 .orElseThrow();
         Map<OptionalInt, Long> elevatorIdToHumansCount = simulation.getHumans().stream()
                 .collect(Collectors.groupingBy(Human::getCurrentEnteredElevatorId,
-                        Collectors.counting()));
+                        Collectors.summingLong(Human::getCohortSize)));
 
         printRoof();
         for (int floor = totalFloors; floor >= 1; floor--) {
@@ -97,14 +97,15 @@ public final class View {
     private List<String> corridorForFloorToLines(int floor) {
         long humansArrived = simulation.getHumans().stream()
                 .filter(human -> human.getDestinationFloor() == floor)
-                .map(Human::getCurrentState)
-                .filter(Human.State.ARRIVED::equals)
-                .count();
+                .filter(human -> human.getCurrentState() == Human.State.ARRIVED)
+                .mapToLong(Human::getCohortSize)
+                .sum();
         long humansWaiting = simulation.getHumans().stream()
                 .filter(human -> human.getStartingFloor() == floor)
-                .map(Human::getCurrentState)
-                .filter(state -> state.equals(Human.State.IDLE) || state.equals(Human.State.WAITING_FOR_ELEVATOR))
-                .count();
+                .filter(human -> human.getCurrentState() == Human.State.IDLE
+                        || human.getCurrentState() == Human.State.WAITING_FOR_ELEVATOR)
+                .mapToLong(Human::getCohortSize)
+                .sum();
 
         return List.of(" %3s A | ".formatted(humansArrived),
                 " %3s W   ".formatted(humansWaiting),
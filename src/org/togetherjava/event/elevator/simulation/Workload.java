@@ -0,0 +1,33 @@
+package org.togetherjava.event.elevator.simulation;
+
+import org.togetherjava.event.elevator.humans.Human;
+
+import java.util.function.Consumer;
+
+/**
+ * Source of humans that join a simulation while it is running.
+ * <p>
+ * Workloads are registered via {@link Simulation#addWorkload(Workload)}. Before every step, the simulation asks
+ * each workload for the humans arriving at that step and registers them right away, like
+ * {@link Simulation#addHuman(Human)} does but without its check whether the simulation is done. Simulations of
+ * {@link Simulation#withCohorts cohorts} first aggregate the arrivals of a step into cohorts.
+ * A simulation is not done as long as any of its workloads is not exhausted yet.
+ */
+public interface Workload {
+    /**
+     * Provides all humans that arrive at the building at the given step.
+     * <p>
+     * Called once per step, with increasing steps.
+     *
+     * @param step     the step that is about to be executed
+     * @param arrivals consumer to hand each arriving human to
+     */
+    void injectArrivals(long step, Consumer<Human> arrivals);
+
+    /**
+     * Whether the workload will not provide any humans anymore.
+     *
+     * @return {@code true} if no more humans will arrive, {@code false} otherwise
+     */
+    boolean isExhausted();
+}
@@ -0,0 +1,328 @@
+package org.togetherjava.event.elevator.sizing;
+
+import org.togetherjava.event.elevator.humans.Human;
+import org.togetherjava.event.elevator.scenarios.TrafficProfile;
+import org.togetherjava.event.elevator.scenarios.TrafficWorkload;
+import org.togetherjava.event.elevator.simulation.Simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+/**
+ * Finds the smallest amount of elevators a building needs to keep the wait of its humans below a target.
+ * <p>
+ * Every fleet size is judged by simulating the traffic a few times with different seeds, in parallel.
+ * A size meets the target if every one of these replications finished within the step limit and kept the
+ * percentile of the wait below the target. All sizes use the same seeds, so they face the same humans.
+ * <p>
+ * The search assumes that adding elevators does not make waiting worse. It first doubles the fleet until
+ * the target is met and then narrows down the range between the largest failing and the smallest meeting size.
+ * Each round evaluates as many sizes as there are processors at once. Evaluations are kept,
+ * so later searches, for example with a stricter target, only simulate sizes that were not evaluated yet.
+ * <p>
+ * All elevators serve all floors. Zones are not searched, as how to split a building into zones is a decision of
+ * its own, see {@link org.togetherjava.event.elevator.elevators.TripPlanner} for simulating zoned buildings.
+ */
+public final class FleetSizer {
+    private final int floorsServed;
+    private final Traffic traffic;
+    private final int replications;
+    private final int maxElevators;
+    private final int stepLimit;
+    private final int parallelism;
+    private final Map<Integer, Evaluation> evaluations = new TreeMap<>();
+
+    /**
+     * Creates a new sizer for a building.
+     *
+     * @param floorsServed the amount of floors of the building, at least 2
+     * @param traffic      the traffic of the building
+     * @param replications how many seeds each fleet size is simulated with, at least 1
+     * @param maxElevators the largest fleet to consider
+     * @param stepLimit    after how many steps a simulation is considered to be overwhelmed
+     */
+    public FleetSizer(int floorsServed, Traffic traffic, int replications, int maxElevators, int stepLimit) {
+        if (floorsServed < 2) {
+            throw new IllegalArgumentException("A building needs at least 2 floors.");
+        }
+        if (replications < 1 || maxElevators < 1 || stepLimit < 1) {
+            throw new IllegalArgumentException("Replications, max elevators and step limit must be positive.");
+        }
+        this.floorsServed = floorsServed;
+        this.traffic = traffic;
+        this.replications = replications;
+        this.maxElevators = maxElevators;
+        this.stepLimit = stepLimit;
+        parallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    public static void main(final String[] args) {
+        int floors = 50;
+        Traffic traffic = Traffic.population(1_000);
+        Target target = new Target(95, 30);
+        int replications = 3;
+        int maxElevators = 100;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--floors" -> floors = Integer.parseInt(valueOf(args, ++i));
+                case "--humans" -> traffic = Traffic.population(Integer.parseInt(valueOf(args, ++i)));
+                case "--office-day" -> traffic = Traffic.profile(
+                        TrafficProfile.officeDay(500, Double.parseDouble(valueOf(args, ++i))));
+                case "--percentile" -> target = new Target(Double.parseDouble(valueOf(args, ++i)),
+                        target.maxWaitSteps());
+                case "--max-wait" -> target = new Target(target.percentile(), Long.parseLong(valueOf(args, ++i)));
+                case "--replications" -> replications = Integer.parseInt(valueOf(args, ++i));
+                case "--max-elevators" -> maxElevators = Integer.parseInt(valueOf(args, ++i));
+                default -> throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+
+        FleetSizer sizer = new FleetSizer(floors, traffic, replications, maxElevators, 200_000);
+        Optional<Evaluation> smallest = sizer.findSmallestFleet(target);
+        sizer.getEvaluations().forEach(System.out::println);
+        System.out.println(smallest.map(evaluation -> "Smallest fleet meeting the target: " + evaluation)
+                .orElse("No fleet of at most " + maxElevators + " elevators meets the target."));
+    }
+
+    private static String valueOf(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+        return args[index];
+    }
+
+    /**
+     * Searches the smallest fleet meeting the target.
+     *
+     * @param target the service the humans should get
+     * @return the evaluation of the smallest fleet meeting the target, empty if even the largest fleet does not
+     */
+    public Optional<Evaluation> findSmallestFleet(Target target) {
+        // Sizes below are known to fail, sizes at or above are known to meet the target
+        int failing = 0;
+        int meeting = maxElevators + 1;
+        for (Evaluation evaluation : evaluations.values()) {
+            if (evaluation.meets(target)) {
+                meeting = Math.min(meeting, evaluation.getAmountOfElevators());
+            }
+        }
+        for (Evaluation evaluation : evaluations.values()) {
+            if (!evaluation.meets(target) && evaluation.getAmountOfElevators() < meeting) {
+                failing = Math.max(failing, evaluation.getAmountOfElevators());
+            }
+        }
+
+        while (meeting - failing > 1) {
+            List<Integer> sizes = nextSizes(failing, meeting);
+            evaluate(sizes);
+            for (int size : sizes) {
+                if (evaluations.get(size).meets(target)) {
+                    meeting = Math.min(meeting, size);
+                } else if (size < meeting) {
+                    failing = Math.max(failing, size);
+                }
+            }
+            // Sizes above a meeting one may have failed, which breaks the assumption, the smallest meeting one counts
+            failing = Math.min(failing, meeting - 1);
+        }
+        return Optional.ofNullable(evaluations.get(meeting));
+    }
+
+    /**
+     * The sizes to evaluate next, strictly between the given bounds.
+     */
+    private List<Integer> nextSizes(int failing, int meeting) {
+        List<Integer> sizes = new ArrayList<>(parallelism);
+        if (meeting > maxElevators) {
+            // Nothing met the target yet, keep doubling
+            int size = failing;
+            for (int i = 0; i < parallelism && size < maxElevators; i++) {
+                size = Math.min(Math.max(2 * size, 1), maxElevators);
+                sizes.add(size);
+            }
+            return sizes;
+        }
+        int gap = meeting - failing;
+        int amount = Math.min(parallelism, gap - 1);
+        for (int i = 1; i <= amount; i++) {
+            sizes.add(failing + (int) ((long) gap * i / (amount + 1)));
+        }
+        return sizes;
+    }
+
+    /**
+     * Simulates all replications of the given sizes that were not evaluated yet, in parallel.
+     */
+    private void evaluate(List<Integer> sizes) {
+        int[] newSizes = sizes.stream()
+                .filter(size -> !evaluations.containsKey(size))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        Run[] runs = IntStream.range(0, newSizes.length * replications)
+                .parallel()
+                .mapToObj(i -> simulate(newSizes[i / replications], i % replications))
+                .toArray(Run[]::new);
+
+        for (int i = 0; i < newSizes.length; i++) {
+            List<Run> replicationRuns = List.of(runs).subList(i * replications, (i + 1) * replications);
+            evaluations.put(newSizes[i], new Evaluation(newSizes[i], replicationRuns));
+        }
+    }
+
+    private Run simulate(int amountOfElevators, int replication) {
+        Simulation simulation = traffic.createSimulation(replication + 1, amountOfElevators, floorsServed);
+        simulation.start();
+        while (!simulation.isDone() && simulation.getStepCount() < stepLimit) {
+            simulation.step();
+        }
+        return new Run(simulation.isDone(), simulation.getStepCount(),
+                simulation.getSortedStepsForState(Human.State.WAITING_FOR_ELEVATOR));
+    }
+
+    /**
+     * All fleet sizes evaluated so far.
+     *
+     * @return the evaluations, ordered by fleet size
+     */
+    public List<Evaluation> getEvaluations() {
+        return List.copyOf(evaluations.values());
+    }
+
+    /**
+     * A single replication of a fleet size.
+     *
+     * @param finished        whether all humans arrived within the step limit
+     * @param steps           how many steps were simulated
+     * @param sortedWaitSteps the steps every human waited for an elevator, in ascending order
+     */
+    private record Run(boolean finished, long steps, long[] sortedWaitSteps) {
+        long waitSteps(double percentile) {
+            if (sortedWaitSteps.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * sortedWaitSteps.length);
+            return sortedWaitSteps[Math.max(rank, 1) - 1];
+        }
+    }
+
+    /**
+     * Creates the simulations of the traffic of a building.
+     */
+    @FunctionalInterface
+    public interface Traffic {
+        /**
+         * Creates a simulation of the traffic, not started yet. Equal arguments have to create equal simulations.
+         *
+         * @param seed              the seed of the replication
+         * @param amountOfElevators the size of the fleet, all elevators serving all floors
+         * @param floorsServed      the amount of floors of the building
+         * @return the simulation
+         */
+        Simulation createSimulation(long seed, int amountOfElevators, int floorsServed);
+
+        /**
+         * Traffic of humans that are all present at the start and travel between random floors.
+         *
+         * @param amountOfHumans the amount of humans
+         * @return the traffic
+         */
+        static Traffic population(int amountOfHumans) {
+            return (seed, amountOfElevators, floorsServed) -> Simulation.createRandomSimulation(seed,
+                    amountOfElevators, amountOfHumans, floorsServed);
+        }
+
+        /**
+         * Traffic of humans arriving over time.
+         *
+         * @param profile the arrivals
+         * @return the traffic
+         */
+        static Traffic profile(TrafficProfile profile) {
+            return (seed, amountOfElevators, floorsServed) -> TrafficWorkload.createSimulation(seed,
+                    amountOfElevators, floorsServed, profile);
+        }
+    }
+
+    /**
+     * The service humans should get.
+     *
+     * @param percentile   the share of humans in percent, from 0 to 100, whose wait counts
+     * @param maxWaitSteps how many steps that share of humans may wait for an elevator at most
+     */
+    public record Target(double percentile, long maxWaitSteps) {
+        public Target {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Percentile must be between 0 and 100, but was " + percentile);
+            }
+            if (maxWaitSteps < 0) {
+                throw new IllegalArgumentException("Wait must not be negative, but was " + maxWaitSteps);
+            }
+        }
+    }
+
+    /**
+     * How a fleet size performed over all replications.
+     */
+    public static final class Evaluation {
+        private final int amountOfElevators;
+        private final List<Run> runs;
+
+        private Evaluation(int amountOfElevators, List<Run> runs) {
+            this.amountOfElevators = amountOfElevators;
+            this.runs = List.copyOf(runs);
+        }
+
+        public int getAmountOfElevators() {
+            return amountOfElevators;
+        }
+
+        /**
+         * Whether all replications finished within the step limit.
+         *
+         * @return {@code true} if all humans arrived in every replication
+         */
+        public boolean isFinished() {
+            return runs.stream().allMatch(Run::finished);
+        }
+
+        /**
+         * The most steps any replication took.
+         *
+         * @return the steps
+         */
+        public long getMaxSteps() {
+            return runs.stream().mapToLong(Run::steps).max().orElseThrow();
+        }
+
+        /**
+         * The most steps the given share of humans waited for an elevator in any replication, using the nearest rank.
+         *
+         * @param percentile the share of humans in percent, from 0 to 100
+         * @return the wait in steps
+         */
+        public long getWaitSteps(double percentile) {
+            return runs.stream().mapToLong(run -> run.waitSteps(percentile)).max().orElseThrow();
+        }
+
+        /**
+         * Whether this fleet size met the target in all replications.
+         *
+         * @param target the target
+         * @return {@code true} if all replications finished and kept the wait below the target
+         */
+        public boolean meets(Target target) {
+            return isFinished() && getWaitSteps(target.percentile()) <= target.maxWaitSteps();
+        }
+
+        @Override
+        public String toString() {
+            return "%d elevators: p50 wait %d, p95 wait %d, p99 wait %d, %d steps%s".formatted(amountOfElevators,
+                    getWaitSteps(50), getWaitSteps(95), getWaitSteps(99), getMaxSteps(),
+                    isFinished() ? "" : ", unfinished");
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package org.togetherjava.event.elevator.verification;
+
+import org.togetherjava.event.elevator.elevators.Elevator;
+import org.togetherjava.event.elevator.humans.Human;
+import org.togetherjava.event.elevator.scenarios.ScenarioGenerator;
+import org.togetherjava.event.elevator.simulation.Simulation;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+/**
+ * Runs a reference engine and a candidate engine side by side and reports where their results differ.
+ * <p>
+ * Both engines create a simulation for the same seed, which are then started and stepped in lockstep.
+ * After every step, a fingerprint of the state of both simulations (the floor of every elevator, the state of every
+ * human and the elevator they are in) is compared. Once both are done, their step counts and statistics are compared.
+ * This allows optimizing the engine while making sure that results do not change silently.
+ * <p>
+ * Elevators and humans are compared by their position in {@link Simulation#getElevators()} and
+ * {@link Simulation#getHumans()}, since elevator IDs are unique across simulations.
+ */
+public final class DifferentialHarness {
+    private static final long HASH_MULTIPLIER = 0x9E37_79B9_7F4A_7C15L;
+
+    private final SimulationFactory reference;
+    private final SimulationFactory candidate;
+    private final long stepLimit;
+
+    /**
+     * Creates a new harness.
+     *
+     * @param reference the engine whose results are considered correct
+     * @param candidate the engine to verify
+     * @param stepLimit after how many steps to give up if the simulations do not finish
+     */
+    public DifferentialHarness(SimulationFactory reference, SimulationFactory candidate, long stepLimit) {
+        this.reference = reference;
+        this.candidate = candidate;
+        this.stepLimit = stepLimit;
+    }
+
+    /**
+     * Factory for random scenarios of the given size, which do not log their seed.
+     *
+     * @param amountOfElevators the amount of elevators per scenario
+     * @param amountOfHumans    the amount of humans per scenario
+     * @param floorsServed      the amount of floors per scenario
+     * @return the factory, creating the scenario of {@link ScenarioGenerator} for a seed
+     */
+    public static SimulationFactory randomScenarios(int amountOfElevators, int amountOfHumans, int floorsServed) {
+        return seed -> new ScenarioGenerator(seed, amountOfElevators, amountOfHumans, floorsServed).createSimulation();
+    }
+
+    /**
+     * Compares both engines on all the given seeds, in parallel.
+     *
+     * @param firstSeed     the first seed to compare
+     * @param amountOfSeeds the amount of consecutive seeds to compare
+     * @return the divergences found, ordered by seed, empty if both engines agree on all seeds
+     */
+    public List<Divergence> compare(long firstSeed, int amountOfSeeds) {
+        return LongStream.range(firstSeed, firstSeed + amountOfSeeds)
+                .parallel()
+                .mapToObj(this::compare)
+                .flatMap(Optional::stream)
+                .sorted(Comparator.comparingLong(Divergence::seed))
+                .toList();
+    }
+
+    /**
+     * Compares both engines on the given seed.
+     *
+     * @param seed the seed to create the simulations with
+     * @return the first divergence, if any
+     */
+    public Optional<Divergence> compare(long seed) {
+        Simulation expected = reference.create(seed);
+        Simulation actual;
+        try {
+            actual = candidate.create(seed);
+        } catch (RuntimeException e) {
+            return Optional.of(new Divergence(seed, 0, "Candidate failed to create the simulation: " + e));
+        }
+
+        Optional<String> difference = compareState(expected, actual);
+        if (difference.isPresent()) {
+            return Optional.of(new Divergence(seed, 0, "Initial state differs, " + difference.get()));
+        }
+
+        expected.start();
+        try {
+            actual.start();
+        } catch (RuntimeException e) {
+            return Optional.of(new Divergence(seed, 0, "Candidate failed to start: " + e));
+        }
+        while (!expected.isDone() || !actual.isDone()) {
+            long step = expected.getStepCount();
+            difference = compareState(expected, actual);
+            if (difference.isPresent()) {
+                return Optional.of(new Divergence(seed, step, difference.get()));
+            }
+            if (step >= stepLimit) {
+                return Optional.of(new Divergence(seed, step, "Did not finish within the step limit"));
+            }
+
+            expected.step();
+            try {
+                actual.step();
+            } catch (RuntimeException e) {
+                return Optional.of(new Divergence(seed, step, "Candidate failed to step: " + e));
+            }
+        }
+
+        return compareStatistics(expected, actual)
+                .map(description -> new Divergence(seed, expected.getStepCount(), description));
+    }
+
+    /**
+     * Runs the given simulation until it is done and summarizes how it got there, so that an engine can be compared
+     * against results recorded earlier, when the reference engine is not available anymore.
+     *
+     * @param simulation the simulation to run, not started yet
+     * @param stepLimit  after how many steps to give up if the simulation does not finish
+     * @return the summary of the run
+     * @throws IllegalStateException if the simulation does not finish within the step limit
+     */
+    public static Trace trace(Simulation simulation, long stepLimit) {
+        simulation.start();
+        long fingerprints = fingerprint(simulation);
+        while (!simulation.isDone()) {
+            if (simulation.getStepCount() >= stepLimit) {
+                throw new IllegalStateException("Did not finish within the step limit of " + stepLimit);
+            }
+            simulation.step();
+            fingerprints = fingerprints * HASH_MULTIPLIER + fingerprint(simulation);
+        }
+
+        Human.State[] states = Human.State.values();
+        Double[] medianTimePercentages = new Double[states.length];
+        for (int i = 0; i < states.length; i++) {
+            medianTimePercentages[i] = simulation.getAverageTimePercentageSpendForState(states[i]);
+        }
+        return new Trace(simulation.getStepCount(), fingerprints, List.of(medianTimePercentages));
+    }
+
+    private static Optional<String> compareState(Simulation expected, Simulation actual) {
+        if (expected.isDone() != actual.isDone()) {
+            return Optional.of("done is %b in reference but %b in candidate".formatted(expected.isDone(), actual.isDone()));
+        }
+        if (fingerprint(expected) == fingerprint(actual)) {
+            return Optional.empty();
+        }
+        // Only explain the difference in detail once we know there is one
+        return Optional.of(describeDifference(expected, actual));
+    }
+
+    /**
+     * Hashes the relevant state of the simulation into a single value, such that simulations in the same state
+     * have the same fingerprint.
+     *
+     * @param simulation the simulation to fingerprint
+     * @return the fingerprint
+     */
+    public static long fingerprint(Simulation simulation) {
+        Map<Integer, Integer> elevatorIdToIndex = elevatorIdToIndex(simulation);
+        long hash = simulation.getElevators().size();
+        for (Elevator elevator : simulation.getElevators()) {
+            hash = hash * HASH_MULTIPLIER + elevator.getCurrentFloor();
+        }
+        hash = hash * HASH_MULTIPLIER + simulation.getHumans().size();
+        for (Human human : simulation.getHumans()) {
+            hash = hash * HASH_MULTIPLIER + human.getCurrentState().ordinal();
+            hash = hash * HASH_MULTIPLIER + elevatorIndexOf(human, elevatorIdToIndex);
+        }
+        return hash;
+    }
+
+    private static String describeDifference(Simulation expected, Simulation actual) {
+        List<Elevator> expectedElevators = expected.getElevators();
+        List<Elevator> actualElevators = actual.getElevators();
+        if (expectedElevators.size() != actualElevators.size()) {
+            return "reference has %d elevators but candidate has %d"
+                    .formatted(expectedElevators.size(), actualElevators.size());
+        }
+        for (int i = 0; i < expectedElevators.size(); i++) {
+            int expectedFloor = expectedElevators.get(i).getCurrentFloor();
+            int actualFloor = actualElevators.get(i).getCurrentFloor();
+            if (expectedFloor != actualFloor) {
+                return "elevator #%d is at floor %d in reference but at floor %d in candidate"
+                        .formatted(i, expectedFloor, actualFloor);
+            }
+        }
+
+        List<Human> expectedHumans = expected.getHumans();
+        List<Human> actualHumans = actual.getHumans();
+        if (expectedHumans.size() != actualHumans.size()) {
+            return "reference has %d humans but candidate has %d".formatted(expectedHumans.size(), actualHumans.size());
+        }
+        Map<Integer, Integer> expectedIdToIndex = elevatorIdToIndex(expected);
+        Map<Integer, Integer> actualIdToIndex = elevatorIdToIndex(actual);
+        for (int i = 0; i < expectedHumans.size(); i++) {
+            Human expectedHuman = expectedHumans.get(i);
+            Human actualHuman = actualHumans.get(i);
+            int expectedElevator = elevatorIndexOf(expectedHuman, expectedIdToIndex);
+            int actualElevator = elevatorIndexOf(actualHuman, actualIdToIndex);
+            if (expectedHuman.getCurrentState() != actualHuman.getCurrentState() || expectedElevator != actualElevator) {
+                return "human #%d is %s in elevator #%d in reference but %s in elevator #%d in candidate"
+                        .formatted(i, expectedHuman.getCurrentState(), expectedElevator,
+                                actualHuman.getCurrentState(), actualElevator);
+            }
+        }
+        return "fingerprints differ";
+    }
+
+    private static Optional<String> compareStatistics(Simulation expected, Simulation actual) {
+        if (expected.getStepCount() != actual.getStepCount()) {
+            return Optional.of("reference finished after %d steps but candidate after %d"
+                    .formatted(expected.getStepCount(), actual.getStepCount()));
+        }
+        for (Human.State state : Human.State.values()) {
+            double expectedPercentage = expected.getAverageTimePercentageSpendForState(state);
+            double actualPercentage = actual.getAverageTimePercentageSpendForState(state);
+            if (Double.compare(expectedPercentage, actualPercentage) != 0) {
+                return Optional.of("median time in state %s is %f%% in reference but %f%% in candidate"
+                        .formatted(state, expectedPercentage, actualPercentage));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Map<Integer, Integer> elevatorIdToIndex(Simulation simulation) {
+        Map<Integer, Integer> elevatorIdToIndex = new HashMap<>();
+        List<Elevator> elevators = simulation.getElevators();
+        for (int i = 0; i < elevators.size(); i++) {
+            elevatorIdToIndex.put(elevators.get(i).getId(), i);
+        }
+        return elevatorIdToIndex;
+    }
+
+    private static int elevatorIndexOf(Human human, Map<Integer, Integer> elevatorIdToIndex) {
+        return human.getCurrentEnteredElevatorId().isPresent()
+                ? elevatorIdToIndex.getOrDefault(human.getCurrentEnteredElevatorId().getAsInt(), -2)
+                : -1;
+    }
+
+    /**
+     * Creates the simulation of an engine for a seed. Equal seeds must lead to equal scenarios.
+     */
+    @FunctionalInterface
+    public interface SimulationFactory {
+        Simulation create(long seed);
+    }
+
+    /**
+     * Summary of a finished run, equal for runs that went through the same states.
+     *
+     * @param steps                 the amount of steps until the simulation was done
+     * @param fingerprints          the {@link #fingerprint(Simulation) fingerprints} after starting and after every
+     *                              step, hashed into a single value
+     * @param medianTimePercentages the median time spent per state, in the order of {@link Human.State#values()}
+     */
+    public record Trace(long steps, long fingerprints, List<Double> medianTimePercentages) {
+    }
+
+    /**
+     * The first difference found between the reference and the candidate.
+     *
+     * @param seed        the seed of the simulations
+     * @param step        the amount of steps completed when the difference was found
+     * @param description what differs
+     */
+    public record Divergence(long seed, long step, String description) {
+        @Override
+        public String toString() {
+            return "Seed %d diverged at step %d: %s".formatted(seed, step, description);
+        }
+    }
+}
@@ -0,0 +1,488 @@
+package org.togetherjava.event.elevator.verification;
+
+import org.togetherjava.event.elevator.elevators.Elevator;
+import org.togetherjava.event.elevator.elevators.ElevatorPanel;
+import org.togetherjava.event.elevator.elevators.ElevatorSystem;
+import org.togetherjava.event.elevator.elevators.FloorPanelSystem;
+import org.togetherjava.event.elevator.elevators.TravelDirection;
+import org.togetherjava.event.elevator.humans.ElevatorListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Load generator hammering an {@link ElevatorSystem} from many threads while another thread moves its elevators,
+ * as a controller embedding the system would.
+ * <p>
+ * Producer threads call {@link FloorPanelSystem#requestElevator(int, TravelDirection)} and
+ * {@link ElevatorPanel#requestDestinationFloor(int)} at a fixed total rate. The load is open: every request has
+ * a scheduled time, and a producer that falls behind measures the latency of its requests from their scheduled time,
+ * so waiting for contended calls is not hidden. A separate thread moves the elevators at a fixed interval.
+ * <p>
+ * After the load ends, the elevators keep moving until all requests are served, and every request is checked:
+ * <ul>
+ *     <li>failed if the call threw an exception</li>
+ *     <li>duplicated if a hall call dispatched more than one elevator, or an elevator held the same floor
+ *     twice</li>
+ *     <li>lost if a hall call dispatched no elevator, if no elevator reached its floor afterwards, or if the
+ *     elevator given a destination did not reach it afterwards</li>
+ * </ul>
+ * Hall calls count as served by any elevator, as they may be reassigned. Elevators are not parked while idle,
+ * as parking moves would count as serving floors.
+ * <p>
+ * Hall calls can be routed through a wrapper of the floor panel system, for example a deliberately faulty one
+ * to check that the harness detects lost and duplicated requests.
+ */
+public final class DispatchStressHarness {
+    private final int amountOfElevators;
+    private final int floorsServed;
+    private final long stepIntervalNanos;
+    private final Synchronization synchronization;
+    private final long seed;
+    private final UnaryOperator<FloorPanelSystem> floorPanelWrapper;
+
+    /**
+     * Creates a new harness, each run uses a new building.
+     *
+     * @param amountOfElevators the amount of elevators, all serving all floors
+     * @param floorsServed      the amount of floors of the building, at least 2
+     * @param stepInterval      how long the moving thread waits between moving the elevators
+     * @param synchronization   how calls are protected against each other
+     * @param seed              the seed for the requested floors
+     */
+    public DispatchStressHarness(int amountOfElevators, int floorsServed, Duration stepInterval,
+            Synchronization synchronization, long seed) {
+        this(amountOfElevators, floorsServed, stepInterval, synchronization, seed, UnaryOperator.identity());
+    }
+
+    /**
+     * Creates a new harness whose producers make their hall calls through a wrapper of the floor panel system.
+     *
+     * @param amountOfElevators the amount of elevators, all serving all floors
+     * @param floorsServed      the amount of floors of the building, at least 2
+     * @param stepInterval      how long the moving thread waits between moving the elevators
+     * @param synchronization   how calls are protected against each other
+     * @param seed              the seed for the requested floors
+     * @param floorPanelWrapper creates the floor panel system the producers call from the one of each new building
+     */
+    public DispatchStressHarness(int amountOfElevators, int floorsServed, Duration stepInterval,
+            Synchronization synchronization, long seed, UnaryOperator<FloorPanelSystem> floorPanelWrapper) {
+        if (amountOfElevators < 1 || floorsServed < 2) {
+            throw new IllegalArgumentException("A building needs at least 1 elevator and 2 floors.");
+        }
+        this.amountOfElevators = amountOfElevators;
+        this.floorsServed = floorsServed;
+        this.stepIntervalNanos = stepInterval.toNanos();
+        this.synchronization = synchronization;
+        this.seed = seed;
+        this.floorPanelWrapper = floorPanelWrapper;
+    }
+
+    public static void main(final String[] args) throws InterruptedException {
+        int elevators = 8;
+        int floors = 50;
+        int producers = 16;
+        boolean virtualThreads = false;
+        double rate = 100_000;
+        Duration duration = Duration.ofSeconds(5);
+        double destinationShare = 0.5;
+        Synchronization synchronization = Synchronization.CONTROLLER_LOCK;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--elevators" -> elevators = Integer.parseInt(valueOf(args, ++i));
+                case "--floors" -> floors = Integer.parseInt(valueOf(args, ++i));
+                case "--threads" -> producers = Integer.parseInt(valueOf(args, ++i));
+                case "--virtual" -> virtualThreads = true;
+                case "--rate" -> rate = Double.parseDouble(valueOf(args, ++i));
+                case "--seconds" -> duration = Duration.ofMillis((long) (1_000 * Double.parseDouble(valueOf(args, ++i))));
+                case "--destination-share" -> destinationShare = Double.parseDouble(valueOf(args, ++i));
+                case "--unsynchronized" -> synchronization = Synchronization.NONE;
+                default -> throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+
+        DispatchStressHarness harness = new DispatchStressHarness(elevators, floors, Duration.ofMillis(1),
+                synchronization, 1);
+        Report report = harness.run(new Load(producers, virtualThreads, rate, duration, destinationShare));
+        System.out.println(report);
+        if (!report.isCorrect()) {
+            System.exit(1);
+        }
+    }
+
+    private static String valueOf(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+        return args[index];
+    }
+
+    /**
+     * Runs the given load against a new building and checks all requests once they are served.
+     *
+     * @param load the load to generate
+     * @return the measured latencies and detected problems
+     * @throws InterruptedException if interrupted while waiting for the load to end
+     */
+    public Report run(Load load) throws InterruptedException {
+        return new Run(load).execute();
+    }
+
+    /**
+     * How the calls of the producers and the moving thread are protected against each other.
+     */
+    public enum Synchronization {
+        /**
+         * Calls are made directly, relying on the system alone, which is only meant to be used from one thread.
+         */
+        NONE,
+        /**
+         * Every call and every move holds a single lock, as a controller serializing access would.
+         */
+        CONTROLLER_LOCK
+    }
+
+    /**
+     * The load to generate.
+     *
+     * @param producers               the amount of threads making requests
+     * @param virtualThreads          whether producers are virtual threads instead of platform threads
+     * @param requestsPerSecond       the total rate of requests over all producers
+     * @param duration                how long to generate load
+     * @param destinationRequestShare the share of requests that are destination requests instead of hall calls
+     */
+    public record Load(int producers, boolean virtualThreads, double requestsPerSecond, Duration duration,
+            double destinationRequestShare) {
+        public Load {
+            if (producers < 1 || requestsPerSecond <= 0 || duration.isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException("Load needs at least one producer, a positive rate and duration.");
+            }
+            if (destinationRequestShare < 0 || destinationRequestShare > 1) {
+                throw new IllegalArgumentException("Share must be between 0 and 1, but was " + destinationRequestShare);
+            }
+        }
+    }
+
+    /**
+     * The result of a run.
+     *
+     * @param requests           the amount of requests made
+     * @param requestsPerSecond  the rate actually achieved
+     * @param p50Nanos           the median latency of a request
+     * @param p99Nanos           the latency 99% of the requests stayed below
+     * @param p999Nanos          the latency 99.9% of the requests stayed below
+     * @param maxNanos           the highest latency of a request
+     * @param failedRequests     requests whose call threw an exception, including failed moves
+     * @param lostRequests       requests that were never served
+     * @param duplicatedRequests requests that were dispatched or held more than once
+     * @param steps              how often the elevators were moved, including after the load ended
+     */
+    public record Report(long requests, double requestsPerSecond, long p50Nanos, long p99Nanos, long p999Nanos,
+            long maxNanos, long failedRequests, long lostRequests, long duplicatedRequests, long steps) {
+        /**
+         * Whether no request failed, got lost or was duplicated.
+         *
+         * @return {@code true} if all requests were handled correctly
+         */
+        public boolean isCorrect() {
+            return failedRequests == 0 && lostRequests == 0 && duplicatedRequests == 0;
+        }
+
+        @Override
+        public String toString() {
+            return ("%d requests at %.0f/s, latency p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us,"
+                    + " %d failed, %d lost, %d duplicated, %d steps").formatted(requests, requestsPerSecond,
+                    p50Nanos / 1e3, p99Nanos / 1e3, p999Nanos / 1e3, maxNanos / 1e3, failedRequests, lostRequests,
+                    duplicatedRequests, steps);
+        }
+    }
+
+    /**
+     * State of a single run. Producers only write to their own {@link Producer}, the elevator listener and the
+     * moving thread only to the atomic counters.
+     */
+    private final class Run implements ElevatorListener {
+        private final Load load;
+        private final ElevatorSystem system = new ElevatorSystem();
+        private final FloorPanelSystem floorPanels = floorPanelWrapper.apply(system);
+        private final List<Elevator> elevators = new ArrayList<>();
+        private final Map<Integer, Integer> elevatorIdToIndex = new HashMap<>();
+        private final ReentrantLock controllerLock = new ReentrantLock();
+        /**
+         * How often any elevator arrived at each floor, indexed by floor.
+         */
+        private final AtomicLongArray arrivalsPerFloor = new AtomicLongArray(floorsServed + 1);
+        /**
+         * How often each elevator arrived at each floor, indexed by elevator times floors plus floor.
+         */
+        private final AtomicLongArray arrivalsPerElevatorFloor;
+        /**
+         * The request the current thread is making, to attribute dispatches to it.
+         */
+        private final ThreadLocal<Producer> requesting = new ThreadLocal<>();
+        private final AtomicLong failedMoves = new AtomicLong();
+        private final AtomicLong duplicatedFloors = new AtomicLong();
+        private long steps;
+        private volatile boolean loadEnded;
+
+        private Run(Load load) {
+            this.load = load;
+            arrivalsPerElevatorFloor = new AtomicLongArray(amountOfElevators * (floorsServed + 1));
+            for (int i = 0; i < amountOfElevators; i++) {
+                Elevator elevator = new Elevator(1, floorsServed, 1 + i * floorsServed / amountOfElevators);
+                elevators.add(elevator);
+                elevatorIdToIndex.put(elevator.getId(), i);
+                system.registerElevator(elevator);
+            }
+            system.setIdleParking(false);
+            system.registerElevatorListener(this);
+            system.registerDispatchListener((elevator, atFloor) -> {
+                Producer producer = requesting.get();
+                // Dispatches on the moving thread are reassignments
+                if (producer != null) {
+                    producer.dispatches++;
+                }
+            });
+            system.ready();
+        }
+
+        private Report execute() throws InterruptedException {
+            Thread mover = Thread.ofPlatform().name("stress-mover").start(this::moveUntilLoadEnded);
+
+            long requestsPerProducer = Math.max(1,
+                    Math.round(load.requestsPerSecond() * load.duration().toNanos() / 1e9 / load.producers()));
+            long intervalNanos = (long) (1e9 * load.producers() / load.requestsPerSecond());
+            SplittableRandom random = new SplittableRandom(seed);
+            List<Producer> producers = new ArrayList<>();
+            List<Thread> threads = new ArrayList<>();
+            long start = System.nanoTime() + 10_000_000;
+            for (int i = 0; i < load.producers(); i++) {
+                // Producers are spread over the interval, so requests do not arrive in bursts
+                Producer producer = new Producer((int) requestsPerProducer, random.split(),
+                        start + i * intervalNanos / load.producers(), intervalNanos);
+                producers.add(producer);
+                Thread.Builder builder = load.virtualThreads() ? Thread.ofVirtual() : Thread.ofPlatform();
+                threads.add(builder.name("stress-producer-" + i).start(producer));
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            loadEnded = true;
+            mover.join();
+            moveUntilServed();
+
+            return report(producers, seconds);
+        }
+
+        private void moveUntilLoadEnded() {
+            while (!loadEnded) {
+                move();
+                LockSupport.parkNanos(stepIntervalNanos);
+            }
+        }
+
+        private void moveUntilServed() {
+            // Enough to serve every floor of every elevator one after another
+            long stepLimit = 2L * floorsServed * floorsServed;
+            for (long step = 0; step < stepLimit && elevators.stream().anyMatch(this::hasRequests); step++) {
+                move();
+            }
+        }
+
+        private boolean hasRequests(Elevator elevator) {
+            return !elevator.getFloorRequests().isEmpty();
+        }
+
+        private void move() {
+            lock();
+            try {
+                system.moveOneFloor();
+                for (Elevator elevator : elevators) {
+                    List<Integer> floors = elevator.getFloorRequests();
+                    if (floors.stream().distinct().count() != floors.size()) {
+                        duplicatedFloors.incrementAndGet();
+                    }
+                }
+            } catch (RuntimeException e) {
+                failedMoves.incrementAndGet();
+            } finally {
+                unlock();
+            }
+            steps++;
+        }
+
+        private void lock() {
+            if (synchronization == Synchronization.CONTROLLER_LOCK) {
+                controllerLock.lock();
+            }
+        }
+
+        private void unlock() {
+            if (synchronization == Synchronization.CONTROLLER_LOCK) {
+                controllerLock.unlock();
+            }
+        }
+
+        @Override
+        public void onElevatorSystemReady(FloorPanelSystem floorPanelSystem) {
+            // Requests are made by the producers
+        }
+
+        @Override
+        public void onElevatorArrivedAtFloor(ElevatorPanel elevatorPanel) {
+            int floor = elevatorPanel.getCurrentFloor();
+            arrivalsPerFloor.incrementAndGet(floor);
+            arrivalsPerElevatorFloor.incrementAndGet(elevatorIdToIndex.get(elevatorPanel.getId()) * (floorsServed + 1)
+                    + floor);
+        }
+
+        private Report report(List<Producer> producers, double seconds) {
+            long requests = 0;
+            long failed = failedMoves.get();
+            long lost = 0;
+            long duplicated = duplicatedFloors.get();
+            for (Producer producer : producers) {
+                requests += producer.requests;
+                for (int i = 0; i < producer.requests; i++) {
+                    if (producer.failed[i]) {
+                        failed++;
+                        continue;
+                    }
+                    if (producer.dispatchesPerRequest[i] > 1) {
+                        duplicated++;
+                    }
+                    if (!isServed(producer, i)) {
+                        lost++;
+                    }
+                }
+            }
+
+            long[] latencies = new long[(int) requests];
+            int offset = 0;
+            for (Producer producer : producers) {
+                System.arraycopy(producer.latencyNanos, 0, latencies, offset, producer.requests);
+                offset += producer.requests;
+            }
+            Arrays.sort(latencies);
+            return new Report(requests, requests / seconds, percentile(latencies, 50), percentile(latencies, 99),
+                    percentile(latencies, 99.9), latencies.length == 0 ? 0 : latencies[latencies.length - 1],
+                    failed, lost, duplicated, steps);
+        }
+
+        private boolean isServed(Producer producer, int request) {
+            int floor = producer.floors[request];
+            int elevator = producer.elevators[request];
+            if (elevator == Producer.HALL_CALL) {
+                return producer.dispatchesPerRequest[request] > 0
+                        && arrivalsPerFloor.get(floor) > producer.arrivalsBefore[request];
+            }
+            return arrivalsPerElevatorFloor.get(elevator * (floorsServed + 1) + floor)
+                    > producer.arrivalsBefore[request];
+        }
+
+        /**
+         * Makes requests of a single thread, on schedule. Results are kept in arrays per request.
+         */
+        private final class Producer implements Runnable {
+            private static final int HALL_CALL = -1;
+
+            private final SplittableRandom random;
+            private final long firstScheduledNanos;
+            private final long intervalNanos;
+            private final int[] floors;
+            /**
+             * The elevator given a destination, or {@link #HALL_CALL}.
+             */
+            private final int[] elevators;
+            private final long[] arrivalsBefore;
+            private final int[] dispatchesPerRequest;
+            private final boolean[] failed;
+            private final long[] latencyNanos;
+            private int requests;
+            private int dispatches;
+
+            private Producer(int amountOfRequests, SplittableRandom random, long firstScheduledNanos,
+                    long intervalNanos) {
+                this.random = random;
+                this.firstScheduledNanos = firstScheduledNanos;
+                this.intervalNanos = intervalNanos;
+                floors = new int[amountOfRequests];
+                elevators = new int[amountOfRequests];
+                arrivalsBefore = new long[amountOfRequests];
+                dispatchesPerRequest = new int[amountOfRequests];
+                failed = new boolean[amountOfRequests];
+                latencyNanos = new long[amountOfRequests];
+            }
+
+            @Override
+            public void run() {
+                requesting.set(this);
+                long previousEnd = 0;
+                for (int i = 0; i < floors.length; i++) {
+                    long scheduled = firstScheduledNanos + i * intervalNanos;
+                    long now = System.nanoTime();
+                    while (now < scheduled) {
+                        LockSupport.parkNanos(scheduled - now);
+                        now = System.nanoTime();
+                    }
+                    // Behind schedule, the time waiting for the previous request counts, oversleeping does not
+                    long from = previousEnd > scheduled ? scheduled : now;
+                    request(i);
+                    previousEnd = System.nanoTime();
+                    latencyNanos[i] = previousEnd - from;
+                    requests++;
+                }
+                requesting.remove();
+            }
+
+            private void request(int index) {
+                int floor = random.nextInt(1, floorsServed + 1);
+                floors[index] = floor;
+                boolean destination = random.nextDouble() < load.destinationRequestShare();
+                int elevator = destination ? random.nextInt(amountOfElevators) : HALL_CALL;
+                elevators[index] = elevator;
+                TravelDirection direction = floor == floorsServed || (floor > 1 && random.nextBoolean())
+                        ? TravelDirection.DOWN
+                        : TravelDirection.UP;
+
+                dispatches = 0;
+                lock();
+                try {
+                    // Sampled while holding the lock, so an arrival before the request can not count as serving it
+                    arrivalsBefore[index] = destination
+                            ? arrivalsPerElevatorFloor.get(elevator * (floorsServed + 1) + floor)
+                            : arrivalsPerFloor.get(floor);
+                    if (destination) {
+                        Run.this.elevators.get(elevator).requestDestinationFloor(floor);
+                    } else {
+                        floorPanels.requestElevator(floor, direction);
+                    }
+                } catch (RuntimeException e) {
+                    failed[index] = true;
+                } finally {
+                    unlock();
+                }
+                dispatchesPerRequest[index] = dispatches;
+            }
+        }
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+}
@@ -0,0 +1,343 @@
+package org.togetherjava.event.elevator.verification;
+
+import org.togetherjava.event.elevator.elevators.Elevator;
+import org.togetherjava.event.elevator.humans.Human;
+import org.togetherjava.event.elevator.scenarios.ScenarioFile;
+import org.togetherjava.event.elevator.simulation.Simulation;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Searches seeds of {@link Simulation#createRandomSimulation(long, int, int, int)} that take unusually long,
+ * and shrinks them to small scenarios reproducing the problem.
+ * <p>
+ * A scenario is judged by its step ratio: the steps it took, relative to the steps it would take at least
+ * if every human had an elevator of their own, which is the longest trip of any human including the way
+ * of the nearest elevator to them. This makes scenarios of different sizes comparable, and a scenario that
+ * does not finish within the step limit has an infinite ratio. The wall time of every seed is measured as well,
+ * but only step ratios are shrunk, as they do not depend on the machine.
+ * <p>
+ * Shrinking removes humans in chunks of decreasing size, then single elevators and then floors nobody uses,
+ * keeping every change after which the scenario is still at least as pathological, until nothing can be removed.
+ */
+public final class SeedFuzzer {
+    private final int amountOfElevators;
+    private final int amountOfHumans;
+    private final int floorsServed;
+    private final long stepLimit;
+
+    /**
+     * Creates a new fuzzer for random scenarios of the given size.
+     *
+     * @param amountOfElevators the amount of elevators per scenario
+     * @param amountOfHumans    the amount of humans per scenario
+     * @param floorsServed      the amount of floors per scenario
+     * @param stepLimit         after how many steps to consider a scenario stuck
+     */
+    public SeedFuzzer(int amountOfElevators, int amountOfHumans, int floorsServed, long stepLimit) {
+        if (amountOfElevators < 1 || amountOfHumans < 0 || floorsServed < 2 || stepLimit < 1) {
+            throw new IllegalArgumentException("A scenario needs at least 1 elevator, 2 floors and a positive limit.");
+        }
+        this.amountOfElevators = amountOfElevators;
+        this.amountOfHumans = amountOfHumans;
+        this.floorsServed = floorsServed;
+        this.stepLimit = stepLimit;
+    }
+
+    public static void main(final String[] args) {
+        if (args.length < 5) {
+            System.out.println("Usage: SeedFuzzer <elevators> <humans> <floors> <seeds> <output directory>");
+            return;
+        }
+        SeedFuzzer fuzzer = new SeedFuzzer(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+                Integer.parseInt(args[2]), 200_000);
+        List<Finding> findings = fuzzer.fuzz(0, Integer.parseInt(args[3]));
+        Path directory = Path.of(args[4]);
+
+        System.out.println("Slowest seeds by wall time:");
+        findings.stream()
+                .sorted(Comparator.comparingLong(Finding::wallTimeNanos).reversed())
+                .limit(5)
+                .forEach(System.out::println);
+        System.out.println("Worst seeds by step ratio:");
+        for (Finding finding : findings.subList(0, Math.min(3, findings.size()))) {
+            System.out.println(finding);
+            Scenario shrunk = fuzzer.shrink(fuzzer.scenario(finding.seed()), finding.stepRatio());
+            Path path = directory.resolve("seed-" + finding.seed() + ".bin");
+            shrunk.write(path);
+            System.out.printf("Shrunk to %d elevators, %d humans and %d floors with step ratio %.1f, written to %s%n%s%n",
+                    shrunk.elevatorFloors().size(), shrunk.trips().size(), shrunk.floorsServed(),
+                    fuzzer.stepRatio(shrunk), path, shrunk.toSource());
+        }
+    }
+
+    /**
+     * The scenario {@link Simulation#createRandomSimulation(long, int, int, int)} creates for the given seed.
+     *
+     * @param seed the seed
+     * @return the scenario of the size of this fuzzer
+     */
+    public Scenario scenario(long seed) {
+        return Simulation.createRandomScenario(seed, amountOfElevators, amountOfHumans, floorsServed,
+                (elevators, humans) -> new Scenario(floorsServed,
+                        elevators.stream().map(Elevator::getCurrentFloor).toList(),
+                        humans.stream().map(human -> new Trip(human.getStartingFloor(), human.getDestinationFloor()))
+                                .toList()));
+    }
+
+    /**
+     * Runs the scenarios of all the given seeds, in parallel.
+     *
+     * @param firstSeed     the first seed to run
+     * @param amountOfSeeds the amount of consecutive seeds to run
+     * @return a finding per seed, the highest step ratio first
+     */
+    public List<Finding> fuzz(long firstSeed, int amountOfSeeds) {
+        return LongStream.range(firstSeed, firstSeed + amountOfSeeds)
+                .parallel()
+                .mapToObj(this::run)
+                .sorted(Comparator.comparingDouble(Finding::stepRatio).reversed())
+                .toList();
+    }
+
+    private Finding run(long seed) {
+        Scenario scenario = scenario(seed);
+        long before = System.nanoTime();
+        long steps = steps(scenario);
+        long wallTimeNanos = System.nanoTime() - before;
+        return new Finding(seed, steps, scenario.lowerBoundSteps(), steps >= stepLimit, wallTimeNanos);
+    }
+
+    /**
+     * Runs the given scenario until done or the step limit.
+     *
+     * @param scenario the scenario to run
+     * @return the steps it took, the step limit if it did not finish
+     */
+    public long steps(Scenario scenario) {
+        Simulation simulation = scenario.createSimulation();
+        simulation.start();
+        while (!simulation.isDone() && simulation.getStepCount() < stepLimit) {
+            simulation.step();
+        }
+        return simulation.getStepCount();
+    }
+
+    /**
+     * The steps the given scenario takes, relative to the least steps it could take.
+     *
+     * @param scenario the scenario to run
+     * @return the step ratio, infinite if it did not finish within the step limit
+     */
+    public double stepRatio(Scenario scenario) {
+        long steps = steps(scenario);
+        return steps >= stepLimit ? Double.POSITIVE_INFINITY : (double) steps / scenario.lowerBoundSteps();
+    }
+
+    /**
+     * Shrinks the given scenario as long as its step ratio stays at least the given one.
+     *
+     * @param scenario the scenario to shrink
+     * @param minRatio the step ratio the shrunk scenario must still reach
+     * @return the smallest scenario found, the given one if it could not be shrunk
+     */
+    public Scenario shrink(Scenario scenario, double minRatio) {
+        Scenario current = scenario;
+        boolean changed = true;
+        while (changed) {
+            Scenario shrunk = removeFloors(removeElevators(removeHumans(current, minRatio), minRatio), minRatio);
+            changed = !shrunk.equals(current);
+            current = shrunk;
+        }
+        return current;
+    }
+
+    private boolean isPathological(Scenario scenario, double minRatio) {
+        return stepRatio(scenario) >= minRatio;
+    }
+
+    private Scenario removeHumans(Scenario scenario, double minRatio) {
+        Scenario current = scenario;
+        for (int chunk = Math.max(current.trips().size() / 2, 1); chunk >= 1; chunk /= 2) {
+            int from = 0;
+            while (from < current.trips().size()) {
+                List<Trip> trips = new ArrayList<>(current.trips());
+                trips.subList(from, Math.min(from + chunk, trips.size())).clear();
+                Scenario candidate = new Scenario(current.floorsServed(), current.elevatorFloors(), trips);
+                if (isPathological(candidate, minRatio)) {
+                    current = candidate;
+                } else {
+                    from += chunk;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Scenario removeElevators(Scenario scenario, double minRatio) {
+        Scenario current = scenario;
+        int index = 0;
+        while (index < current.elevatorFloors().size() && current.elevatorFloors().size() > 1) {
+            List<Integer> elevatorFloors = new ArrayList<>(current.elevatorFloors());
+            elevatorFloors.remove(index);
+            Scenario candidate = new Scenario(current.floorsServed(), elevatorFloors, current.trips());
+            if (isPathological(candidate, minRatio)) {
+                current = candidate;
+            } else {
+                index++;
+            }
+        }
+        return current;
+    }
+
+    private Scenario removeFloors(Scenario scenario, double minRatio) {
+        Scenario current = scenario;
+        for (int floor = current.floorsServed(); floor >= 1 && current.floorsServed() > 2; floor--) {
+            if (current.uses(floor)) {
+                continue;
+            }
+            Scenario candidate = current.withoutFloor(floor);
+            if (isPathological(candidate, minRatio)) {
+                current = candidate;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * The result of running the scenario of a seed.
+     *
+     * @param seed            the seed of the scenario
+     * @param steps           the steps it took, the step limit if it did not finish
+     * @param lowerBoundSteps the least steps the scenario could take
+     * @param stuck           whether it did not finish within the step limit
+     * @param wallTimeNanos   how long it took to run, including creating the simulation
+     */
+    public record Finding(long seed, long steps, long lowerBoundSteps, boolean stuck, long wallTimeNanos) {
+        /**
+         * The steps taken relative to the least steps possible.
+         *
+         * @return the ratio, infinite if the scenario is stuck
+         */
+        public double stepRatio() {
+            return stuck ? Double.POSITIVE_INFINITY : (double) steps / lowerBoundSteps;
+        }
+
+        @Override
+        public String toString() {
+            return "seed %d: %d steps%s, at least %d, ratio %.1f, %.1f ms".formatted(seed, steps,
+                    stuck ? " (stuck)" : "", lowerBoundSteps, stepRatio(), wallTimeNanos / 1e6);
+        }
+    }
+
+    /**
+     * A human traveling from one floor to another.
+     *
+     * @param startingFloor    the floor the human starts at
+     * @param destinationFloor the floor the human wants to reach
+     */
+    public record Trip(int startingFloor, int destinationFloor) {
+    }
+
+    /**
+     * The initial state of a building whose elevators all serve all floors, starting at floor 1.
+     *
+     * @param floorsServed   the amount of floors
+     * @param elevatorFloors the starting floor of every elevator
+     * @param trips          the trip of every human
+     */
+    public record Scenario(int floorsServed, List<Integer> elevatorFloors, List<Trip> trips) {
+        public Scenario {
+            elevatorFloors = List.copyOf(elevatorFloors);
+            trips = List.copyOf(trips);
+        }
+
+        /**
+         * Creates a new simulation of this scenario.
+         *
+         * @return the simulation, not started yet
+         */
+        public Simulation createSimulation() {
+            return new Simulation(createElevators(), createHumans());
+        }
+
+        private List<Elevator> createElevators() {
+            return elevatorFloors.stream()
+                    .map(floor -> new Elevator(1, floorsServed, floor))
+                    .toList();
+        }
+
+        private List<Human> createHumans() {
+            return trips.stream()
+                    .map(trip -> new Human(trip.startingFloor(), trip.destinationFloor()))
+                    .toList();
+        }
+
+        /**
+         * Writes this scenario to the given file, which can be loaded with {@link ScenarioFile#read(Path)}.
+         *
+         * @param path the file to write to, replaced if it already exists
+         */
+        public void write(Path path) {
+            ScenarioFile.write(path, createElevators(), createHumans());
+        }
+
+        /**
+         * Java source creating a simulation of this scenario, to paste into a test.
+         *
+         * @return the source of an expression creating the simulation
+         */
+        public String toSource() {
+            String elevators = elevatorFloors.stream()
+                    .map(floor -> "new Elevator(1, %d, %d)".formatted(floorsServed, floor))
+                    .collect(Collectors.joining(",\n                ", "List.of(\n                ", ")"));
+            String humans = trips.stream()
+                    .map(trip -> "new Human(%d, %d)".formatted(trip.startingFloor(), trip.destinationFloor()))
+                    .collect(Collectors.joining(",\n                ", "List.of(\n                ", ")"));
+            return "new Simulation(\n        %s,\n        %s)".formatted(elevators, humans);
+        }
+
+        /**
+         * The least steps this scenario could take, if every human had an elevator of their own.
+         * That is the longest trip of any human, including the way of the nearest elevator to them, at least 1.
+         *
+         * @return the lower bound of the steps
+         */
+        public long lowerBoundSteps() {
+            long longest = 1;
+            for (Trip trip : trips) {
+                int nearest = Integer.MAX_VALUE;
+                for (int elevatorFloor : elevatorFloors) {
+                    nearest = Math.min(nearest, Math.abs(elevatorFloor - trip.startingFloor()));
+                }
+                longest = Math.max(longest, nearest + Math.abs(trip.destinationFloor() - trip.startingFloor()));
+            }
+            return longest;
+        }
+
+        private boolean uses(int floor) {
+            return elevatorFloors.contains(floor) || trips.stream()
+                    .anyMatch(trip -> trip.startingFloor() == floor || trip.destinationFloor() == floor);
+        }
+
+        /**
+         * Removes the given floor, which no elevator or human uses, moving everything above down by one floor.
+         * Elevators need at least 2 floors, so this must not be called with 2 floors left.
+         */
+        private Scenario withoutFloor(int floor) {
+            return new Scenario(floorsServed - 1,
+                    elevatorFloors.stream().map(other -> other > floor ? other - 1 : other).toList(),
+                    trips.stream()
+                            .map(trip -> new Trip(
+                                    trip.startingFloor() > floor ? trip.startingFloor() - 1 : trip.startingFloor(),
+                                    trip.destinationFloor() > floor ? trip.destinationFloor() - 1
+                                            : trip.destinationFloor()))
+                            .toList());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+import org.junit.jupiter.api.Test;
+import org.togetherjava.event.elevator.elevators.Elevator;
+import org.togetherjava.event.elevator.humans.Cohorts;
+import org.togetherjava.event.elevator.humans.Human;
+import org.togetherjava.event.elevator.scenarios.TrafficProfile;
+import org.togetherjava.event.elevator.scenarios.TrafficWorkload;
+import org.togetherjava.event.elevator.simulation.Simulation;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class CohortsTest {
+    @Test
+    void testIdenticalTripsAggregated() {
+        List<Human> cohorts = Cohorts.aggregate(List.of(new Human(1, 5), new Human(3, 2), new Human(1, 5),
+                new Human(3, 2, 4)));
+
+        assertEquals(2, cohorts.size(), "Humans of the same trip are supposed to form a single cohort.");
+        assertEquals(1, cohorts.getFirst().getStartingFloor(), "Cohorts are supposed to keep the order of the trips.");
+        assertEquals(2, cohorts.getFirst().getCohortSize());
+        assertEquals(5, cohorts.getLast().getCohortSize(), "Cohorts are supposed to include members of cohorts.");
+    }
+
+    @Test
+    void testStartedHumanRejected() {
+        Simulation simulation = Simulation.createSingleElevatorSingleHumanSimulation();
+        simulation.start();
+
+        assertThrows(IllegalArgumentException.class, () -> Cohorts.aggregate(simulation.getHumans()));
+    }
+
+    @Test
+    void testCohortsProduceSameStatistics() {
+        List<Human> humans = List.of(new Human(1, 5), new Human(1, 5), new Human(1, 5), new Human(7, 2),
+                new Human(7, 2), new Human(4, 9));
+        Simulation individuals = new Simulation(List.of(new Elevator(1, 10, 3)), humans);
+        Simulation cohorts = Simulation.withCohorts(List.of(new Elevator(1, 10, 3)),
+                humans.stream().map(human -> new Human(human.getStartingFloor(), human.getDestinationFloor())).toList());
+
+        individuals.startAndExecuteUntilDone(100);
+        cohorts.startAndExecuteUntilDone(100);
+
+        assertEquals(3, cohorts.getHumans().size(), "Every distinct trip is supposed to be simulated once.");
+        assertEquals(individuals.getAmountOfHumans(), cohorts.getAmountOfHumans(),
+                "Cohorts are supposed to count every member.");
+        assertEquals(individuals.getStepCount(), cohorts.getStepCount());
+        for (Human.State state : Human.State.values()) {
+            for (double percentile : new double[] {10, 50, 90, 100}) {
+                assertEquals(individuals.getStepsForStatePercentile(state, percentile),
+                        cohorts.getStepsForStatePercentile(state, percentile),
+                        "Cohorts are supposed to produce the same statistics as individual humans for " + state);
+            }
+            assertEquals(individuals.getAverageTimePercentageSpendForState(state),
+                    cohorts.getAverageTimePercentageSpendForState(state));
+        }
+    }
+
+    @Test
+    void testWorkloadArrivalsAggregated() {
+        TrafficProfile profile = TrafficProfile.upPeak(200, 2);
+        Simulation individuals = new Simulation(List.of(new Elevator(1, 5, 1)), List.of());
+        individuals.addWorkload(new TrafficWorkload(profile, 5, 9));
+        Simulation cohorts = Simulation.withCohorts(List.of(new Elevator(1, 5, 1)), List.of());
+        cohorts.addWorkload(new TrafficWorkload(profile, 5, 9));
+
+        individuals.startAndExecuteUntilDone(10_000);
+        cohorts.startAndExecuteUntilDone(10_000);
+
+        assertEquals(individuals.getAmountOfHumans(), cohorts.getAmountOfHumans(),
+                "Every human arriving via the workload is supposed to be part of a cohort.");
+        assertTrue(cohorts.getHumans().size() < individuals.getHumans().size(),
+                "Humans arriving in the same step with the same trip are supposed to form cohorts.");
+    }
+}
@@ -0,0 +1,186 @@
+import org.togetherjava.event.elevator.verification.DifferentialHarness;
+import org.togetherjava.event.elevator.verification.DifferentialHarness.Trace;
+
+import java.util.List;
+
+/**
+ * Traces of the engine from before the simulation step was optimized, recorded with
+ * {@link DifferentialHarness#trace(org.togetherjava.event.elevator.simulation.Simulation, long)} for the scenarios
+ * of {@link DifferentialHarness#randomScenarios(int, int, int) randomScenarios(3, 200, 20)}, by seed starting at 0.
+ * <p>
+ * Reassigning hall calls to idle elevators came later, so it has to be disabled to reproduce them.
+ * Changes that are meant to alter results have to record the traces again.
+ */
+final class DifferentialBaseline {
+    static final List<RecordedTrace> TRACES = List.of(
+            trace(0, 64, 0xBE8AE480C514BDF8L, 0.0, 6.25, 20.3125, 71.875),
+            trace(1, 63, 0x87C6E346AB924494L, 0.0, 3.1746031746031744, 22.22222222222222, 73.01587301587301),
+            trace(2, 73, 0x86233B01859727EFL, 0.0, 4.109589041095891, 20.54794520547945, 68.4931506849315),
+            trace(3, 88, 0xA4F6DAE00397D5C8L, 0.0, 1.1363636363636365, 12.5, 84.0909090909091),
+            trace(4, 80, 0x3CD76BDFD8F3CA2DL, 0.0, 2.5, 17.5, 77.5),
+            trace(5, 42, 0x1A4EAB32210D66E3L, 0.0, 7.142857142857143, 28.571428571428573, 59.523809523809526),
+            trace(6, 72, 0x10E582C1AAF127A5L, 0.0, 2.7777777777777777, 18.055555555555557, 77.77777777777777),
+            trace(7, 58, 0x9666C9910E29D62FL, 0.0, 3.4482758620689653, 20.689655172413794, 70.6896551724138),
+            trace(8, 50, 0x63488D16589EE59BL, 0.0, 6.0, 24.0, 68.0),
+            trace(9, 39, 0x6C1139D333B5A38DL, 0.0, 7.6923076923076925, 28.205128205128204, 56.41025641025641),
+            trace(10, 58, 0xBA2D6B05E1811F90L, 0.0, 3.4482758620689653, 20.689655172413794, 72.41379310344827),
+            trace(11, 68, 0x28FEEB7DC78CF3C5L, 0.0, 2.9411764705882355, 17.647058823529413, 76.47058823529412),
+            trace(12, 56, 0xEB774AF27B9F97CCL, 0.0, 3.5714285714285716, 21.428571428571427, 73.21428571428571),
+            trace(13, 41, 0x21BD95F1AE8FFECEL, 0.0, 12.195121951219512, 21.951219512195124, 63.41463414634146),
+            trace(14, 54, 0x37676CCC3EE73230L, 0.0, 1.8518518518518519, 22.22222222222222, 70.37037037037037),
+            trace(15, 73, 0xD45ACAF72AE545F3L, 0.0, 1.36986301369863, 16.438356164383563, 79.45205479452055),
+            trace(16, 77, 0xE56D48BB4129A535L, 0.0, 2.5974025974025974, 19.48051948051948, 70.12987012987013),
+            trace(17, 79, 0xBF5772A6EA097F81L, 0.0, 2.5316455696202533, 16.455696202531644, 79.74683544303798),
+            trace(18, 55, 0xB2663DF86202AB17L, 0.0, 3.6363636363636362, 27.272727272727273, 67.27272727272727),
+            trace(19, 66, 0x76AF944F4BF232EDL, 0.0, 6.0606060606060606, 18.181818181818183, 72.72727272727273),
+            trace(20, 77, 0xB24D0117DD59458DL, 0.0, 2.5974025974025974, 19.48051948051948, 72.72727272727273),
+            trace(21, 69, 0x70018D859CC7F1B9L, 0.0, 4.3478260869565215, 20.28985507246377, 73.91304347826087),
+            trace(22, 58, 0xDCE566F6770163DBL, 0.0, 3.4482758620689653, 22.413793103448278, 65.51724137931035),
+            trace(23, 36, 0x758A4B353A23D707L, 0.0, 16.666666666666668, 30.555555555555557, 41.666666666666664),
+            trace(24, 47, 0x620D77B48639988BL, 0.0, 4.25531914893617, 27.659574468085108, 57.4468085106383),
+            trace(25, 44, 0xAF244DEBB3C95685L, 0.0, 4.545454545454546, 27.272727272727273, 65.9090909090909),
+            trace(26, 65, 0x8E8511C2DC5A9F78L, 0.0, 3.076923076923077, 21.53846153846154, 73.84615384615384),
+            trace(27, 98, 0x1C24705216F8A9A0L, 0.0, 2.0408163265306123, 14.285714285714286, 81.63265306122449),
+            trace(28, 77, 0x195A47B8F6CD90DDL, 0.0, 2.5974025974025974, 15.584415584415584, 80.51948051948052),
+            trace(29, 45, 0x47B74EB8E7486D34L, 0.0, 8.88888888888889, 26.666666666666668, 57.77777777777778),
+            trace(30, 42, 0xF00B032C2AC36E56L, 0.0, 4.761904761904762, 28.571428571428573, 57.142857142857146),
+            trace(31, 47, 0x4C8F646D058BD868L, 0.0, 2.127659574468085, 23.404255319148938, 68.08510638297872),
+            trace(32, 63, 0x2926C131B39906E8L, 0.0, 3.1746031746031744, 22.22222222222222, 71.42857142857143),
+            trace(33, 62, 0x5147CD78E75EA2F4L, 0.0, 6.451612903225806, 17.741935483870968, 74.19354838709677),
+            trace(34, 71, 0xBA38EA051A11F907L, 0.0, 4.225352112676056, 14.084507042253522, 78.87323943661971),
+            trace(35, 46, 0x31A72BF3782522A8L, 0.0, 4.3478260869565215, 26.08695652173913, 60.869565217391305),
+            trace(36, 41, 0x5A1DF290FC264013L, 0.0, 4.878048780487805, 39.02439024390244, 51.21951219512195),
+            trace(37, 46, 0xB5251C3B3481C357L, 0.0, 4.3478260869565215, 30.434782608695652, 54.34782608695652),
+            trace(38, 46, 0x6AF2DD3E922DE19CL, 0.0, 4.3478260869565215, 32.608695652173914, 54.34782608695652),
+            trace(39, 47, 0xB6766851122EBCB0L, 0.0, 6.382978723404255, 34.04255319148936, 44.680851063829785),
+            trace(40, 52, 0x54E1C403D68E8CCEL, 0.0, 5.769230769230769, 21.153846153846153, 65.38461538461539),
+            trace(41, 54, 0x9DEC5C4A42AE79B1L, 0.0, 5.555555555555555, 27.77777777777778, 55.55555555555556),
+            trace(42, 46, 0x609E25AE15A9815AL, 0.0, 8.695652173913043, 23.91304347826087, 60.869565217391305),
+            trace(43, 70, 0x5E02FBDF7A31291FL, 0.0, 2.857142857142857, 18.571428571428573, 74.28571428571429),
+            trace(44, 43, 0x26FE428538843899L, 0.0, 6.976744186046512, 30.232558139534884, 60.46511627906977),
+            trace(45, 52, 0x307EA4B3189BCD6AL, 0.0, 9.615384615384615, 21.153846153846153, 69.23076923076923),
+            trace(46, 61, 0x2E3B1FD80F2014A8L, 0.0, 1.639344262295082, 21.311475409836067, 72.1311475409836),
+            trace(47, 78, 0x81F291CB3AA0861FL, 0.0, 3.8461538461538463, 15.384615384615385, 78.2051282051282),
+            trace(48, 58, 0x008C7E06B78AC620L, 0.0, 5.172413793103448, 24.137931034482758, 70.6896551724138),
+            trace(49, 66, 0x0997239D31AA75EFL, 0.0, 3.0303030303030303, 21.21212121212121, 74.24242424242425),
+            trace(50, 52, 0x61ADD66880A9E2EFL, 0.0, 3.8461538461538463, 21.153846153846153, 69.23076923076923),
+            trace(51, 41, 0xB185A13FAC861002L, 0.0, 4.878048780487805, 24.390243902439025, 63.41463414634146),
+            trace(52, 55, 0x13306D4C0EE99402L, 0.0, 3.6363636363636362, 21.818181818181817, 69.0909090909091),
+            trace(53, 50, 0x9ADF5658CAEC01A0L, 0.0, 4.0, 22.0, 58.0),
+            trace(54, 40, 0xEF30E5E2A2525EB4L, 0.0, 5.0, 32.5, 62.5),
+            trace(55, 70, 0x24708568B1856B84L, 0.0, 4.285714285714286, 18.571428571428573, 67.14285714285714),
+            trace(56, 38, 0xB0569E858B248E51L, 0.0, 13.157894736842104, 28.94736842105263, 50.0),
+            trace(57, 96, 0x88EDCA7D65EEF155L, 0.0, 2.0833333333333335, 11.458333333333334, 85.41666666666667),
+            trace(58, 68, 0x0D2BBE68DE2993DEL, 0.0, 2.9411764705882355, 17.647058823529413, 77.94117647058823),
+            trace(59, 47, 0xE40F536FDB292DF1L, 0.0, 4.25531914893617, 36.170212765957444, 53.191489361702125),
+            trace(60, 69, 0x84F19FC4AD457BC0L, 0.0, 4.3478260869565215, 21.73913043478261, 68.1159420289855),
+            trace(61, 60, 0x883B85FF843F2074L, 0.0, 5.0, 23.333333333333332, 66.66666666666667),
+            trace(62, 69, 0xC3B5966C2FB27C21L, 0.0, 4.3478260869565215, 20.28985507246377, 72.46376811594203),
+            trace(63, 52, 0x761645AB7AA536BEL, 0.0, 3.8461538461538463, 25.0, 67.3076923076923),
+            trace(64, 53, 0x1BEBFD5B597EC27EL, 0.0, 3.7735849056603774, 26.41509433962264, 66.0377358490566),
+            trace(65, 41, 0xCB84C5488812E62FL, 0.0, 9.75609756097561, 31.70731707317073, 58.53658536585366),
+            trace(66, 64, 0x94429AD2E2E5AD6DL, 0.0, 3.125, 23.4375, 70.3125),
+            trace(67, 92, 0x4BA8B0B00CE2C1D7L, 0.0, 2.1739130434782608, 13.043478260869565, 82.6086956521739),
+            trace(68, 44, 0x29C7B8E3ACA8FA86L, 0.0, 4.545454545454546, 27.272727272727273, 63.63636363636363),
+            trace(69, 60, 0x3A904BC31E88BACAL, 0.0, 5.0, 25.0, 63.333333333333336),
+            trace(70, 81, 0x896A6EC420A6B9BBL, 0.0, 2.4691358024691357, 16.049382716049383, 80.24691358024691),
+            trace(71, 48, 0x787A56173015074FL, 0.0, 6.25, 29.166666666666668, 62.5),
+            trace(72, 55, 0x3B3AB02839CB3EDCL, 0.0, 3.6363636363636362, 29.09090909090909, 63.63636363636363),
+            trace(73, 45, 0x99B097272F500857L, 0.0, 6.666666666666667, 26.666666666666668, 62.22222222222222),
+            trace(74, 38, 0x530BDBCEB0754859L, 0.0, 5.2631578947368425, 34.21052631578947, 55.26315789473684),
+            trace(75, 58, 0xE692B99288A1C654L, 0.0, 5.172413793103448, 22.413793103448278, 68.96551724137932),
+            trace(76, 51, 0x0886CD0F461DA519L, 0.0, 5.882352941176471, 21.568627450980394, 70.58823529411765),
+            trace(77, 52, 0x86B66E59A0CB9041L, 0.0, 3.8461538461538463, 25.0, 69.23076923076923),
+            trace(78, 45, 0xE0537AD2116B0690L, 0.0, 11.11111111111111, 26.666666666666668, 57.77777777777778),
+            trace(79, 48, 0xD8A5FE75795ABA88L, 0.0, 6.25, 29.166666666666668, 60.416666666666664),
+            trace(80, 60, 0x9996FD860E0FC802L, 0.0, 3.3333333333333335, 21.666666666666668, 75.0),
+            trace(81, 66, 0x0F5049B4BB14B193L, 0.0, 4.545454545454546, 19.696969696969695, 75.75757575757575),
+            trace(82, 44, 0xEFC071F0F7DE6917L, 0.0, 2.272727272727273, 31.818181818181817, 61.36363636363637),
+            trace(83, 65, 0x71CB683C0170FD2EL, 0.0, 3.076923076923077, 20.0, 72.3076923076923),
+            trace(84, 54, 0x5E7DFA6541FCDD96L, 0.0, 5.555555555555555, 20.37037037037037, 72.22222222222223),
+            trace(85, 58, 0x3CD5CD67B5189BF5L, 0.0, 5.172413793103448, 22.413793103448278, 62.06896551724138),
+            trace(86, 56, 0x2C1349E530B3D2B2L, 0.0, 3.5714285714285716, 30.357142857142858, 58.92857142857143),
+            trace(87, 32, 0x6F6A843562476810L, 0.0, 3.125, 40.625, 43.75),
+            trace(88, 38, 0x50630FBB1A4D0233L, 0.0, 5.2631578947368425, 31.57894736842105, 57.89473684210526),
+            trace(89, 55, 0x5E502E70A08F4668L, 0.0, 3.6363636363636362, 23.636363636363637, 72.72727272727273),
+            trace(90, 95, 0xDA63984F57496067L, 0.0, 2.1052631578947367, 16.842105263157894, 80.0),
+            trace(91, 44, 0x6847D95E60D18E9AL, 0.0, 6.818181818181818, 34.09090909090909, 54.54545454545455),
+            trace(92, 78, 0x406BCD3B16A62EACL, 0.0, 2.5641025641025643, 19.23076923076923, 75.64102564102564),
+            trace(93, 59, 0x1E9C27B5FAA2F47DL, 0.0, 3.389830508474576, 20.338983050847457, 71.1864406779661),
+            trace(94, 39, 0x7637D39BB0AFD0ECL, 0.0, 5.128205128205129, 28.205128205128204, 64.1025641025641),
+            trace(95, 57, 0x8E9DE895E962AEEAL, 0.0, 5.2631578947368425, 19.29824561403509, 63.1578947368421),
+            trace(96, 65, 0x3237685215EFF1C9L, 0.0, 3.076923076923077, 16.923076923076923, 75.38461538461539),
+            trace(97, 66, 0xBC2BFE8D1113C7E9L, 0.0, 3.0303030303030303, 18.181818181818183, 77.27272727272727),
+            trace(98, 64, 0x993B4EA048AE4E4FL, 0.0, 3.125, 26.5625, 67.1875),
+            trace(99, 35, 0xDE83CF0DFDFF4F8EL, 0.0, 11.428571428571429, 28.571428571428573, 60.0),
+            trace(100, 62, 0x614CF022D39B2B03L, 0.0, 6.451612903225806, 20.967741935483872, 61.29032258064516),
+            trace(101, 38, 0x76C52D257B95E4D5L, 0.0, 7.894736842105263, 31.57894736842105, 52.63157894736842),
+            trace(102, 32, 0x133DC9AF2AC25EC3L, 0.0, 9.375, 31.25, 46.875),
+            trace(103, 45, 0x8B34F8CA9E40501AL, 0.0, 4.444444444444445, 31.11111111111111, 57.77777777777778),
+            trace(104, 39, 0x75C9B23E5ABEBA26L, 0.0, 5.128205128205129, 33.333333333333336, 56.41025641025641),
+            trace(105, 68, 0x1EB8411D3AF1EB0FL, 0.0, 2.9411764705882355, 19.11764705882353, 66.17647058823529),
+            trace(106, 51, 0xC79774406B00C315L, 0.0, 5.882352941176471, 23.529411764705884, 66.66666666666667),
+            trace(107, 51, 0x0A5F9255B1DB5898L, 0.0, 7.8431372549019605, 25.49019607843137, 47.05882352941177),
+            trace(108, 51, 0x27B0942E1EB4893CL, 0.0, 3.9215686274509802, 25.49019607843137, 60.78431372549019),
+            trace(109, 52, 0x5D5814B5920246ABL, 0.0, 3.8461538461538463, 23.076923076923077, 71.15384615384616),
+            trace(110, 67, 0x2406D6FA4F7BF065L, 0.0, 4.477611940298507, 22.388059701492537, 68.65671641791045),
+            trace(111, 61, 0xAD02496C0200ABFFL, 0.0, 3.278688524590164, 24.59016393442623, 68.85245901639344),
+            trace(112, 61, 0x6B2275B2C0FBD37CL, 0.0, 3.278688524590164, 18.0327868852459, 75.40983606557377),
+            trace(113, 69, 0x0F1982812F875F8DL, 0.0, 4.3478260869565215, 21.73913043478261, 71.01449275362319),
+            trace(114, 49, 0x7E1674A6AEF4AB3CL, 0.0, 4.081632653061225, 26.53061224489796, 65.3061224489796),
+            trace(115, 85, 0x939B7D335F0B9248L, 0.0, 2.3529411764705883, 15.294117647058824, 81.17647058823529),
+            trace(116, 55, 0x03DC82E1445EBCB3L, 0.0, 3.6363636363636362, 21.818181818181817, 65.45454545454545),
+            trace(117, 49, 0x973E03AE24F64885L, 0.0, 10.204081632653061, 26.53061224489796, 57.142857142857146),
+            trace(118, 79, 0xF575B6F82BBCD17FL, 0.0, 3.7974683544303796, 16.455696202531644, 75.9493670886076),
+            trace(119, 41, 0xC145DFCC0797226CL, 0.0, 4.878048780487805, 29.26829268292683, 48.78048780487805),
+            trace(120, 53, 0xF9D2B1DAFC77966CL, 0.0, 3.7735849056603774, 28.30188679245283, 62.264150943396224),
+            trace(121, 65, 0x9C5AC50349E112A9L, 0.0, 6.153846153846154, 13.846153846153847, 75.38461538461539),
+            trace(122, 41, 0xBEF26BFE2C670D71L, 0.0, 7.317073170731708, 31.70731707317073, 58.53658536585366),
+            trace(123, 52, 0x4469CC676ACC77D0L, 0.0, 3.8461538461538463, 21.153846153846153, 67.3076923076923),
+            trace(124, 63, 0x854C92EB2D7DA362L, 0.0, 3.1746031746031744, 20.634920634920636, 66.66666666666667),
+            trace(125, 42, 0x45923ED81A050DA1L, 0.0, 4.761904761904762, 30.952380952380953, 59.523809523809526),
+            trace(126, 69, 0x36AE884EE7EC2E23L, 0.0, 4.3478260869565215, 15.942028985507246, 72.46376811594203),
+            trace(127, 47, 0xE0A73484FDD26D75L, 0.0, 4.25531914893617, 25.53191489361702, 61.702127659574465),
+            trace(128, 65, 0x20AC866927C95F12L, 0.0, 4.615384615384615, 18.46153846153846, 72.3076923076923),
+            trace(129, 50, 0xB50DD38F6FAB479FL, 0.0, 8.0, 30.0, 60.0),
+            trace(130, 54, 0x5D228B9E30C12435L, 0.0, 3.7037037037037037, 18.51851851851852, 70.37037037037037),
+            trace(131, 39, 0xF2EBFA978AF0781DL, 0.0, 7.6923076923076925, 28.205128205128204, 58.97435897435897),
+            trace(132, 56, 0xC9475A94374825B4L, 0.0, 3.5714285714285716, 21.428571428571427, 71.42857142857143),
+            trace(133, 54, 0x9C78DE9FFF1280EDL, 0.0, 11.11111111111111, 29.62962962962963, 55.55555555555556),
+            trace(134, 39, 0x35E4EB986B80E7BCL, 0.0, 5.128205128205129, 25.641025641025642, 64.1025641025641),
+            trace(135, 63, 0xC439C638C144CC5FL, 0.0, 4.761904761904762, 25.396825396825395, 60.317460317460316),
+            trace(136, 67, 0x42AA68C1015A7685L, 0.0, 4.477611940298507, 22.388059701492537, 70.14925373134328),
+            trace(137, 81, 0x4D28E7036732347CL, 0.0, 3.7037037037037037, 13.580246913580247, 74.07407407407408),
+            trace(138, 63, 0x8B01A54BA6686EE7L, 0.0, 4.761904761904762, 22.22222222222222, 71.42857142857143),
+            trace(139, 52, 0xA52A613D5066D2E4L, 0.0, 5.769230769230769, 21.153846153846153, 67.3076923076923),
+            trace(140, 37, 0x34F663E97B061C1FL, 0.0, 5.405405405405405, 40.54054054054054, 54.054054054054056),
+            trace(141, 34, 0x2BDEDBDE38EEED34L, 0.0, 8.823529411764707, 35.294117647058826, 50.0),
+            trace(142, 63, 0x4A5761AA3A4A7FAEL, 0.0, 3.1746031746031744, 19.047619047619047, 61.904761904761905),
+            trace(143, 73, 0x39B377BC39E73B2AL, 0.0, 2.73972602739726, 15.068493150684931, 79.45205479452055),
+            trace(144, 59, 0x3B2BFF3F491AB499L, 0.0, 5.084745762711864, 16.949152542372882, 72.88135593220339),
+            trace(145, 48, 0xEE6B0EB39BEA6CE7L, 0.0, 4.166666666666667, 31.25, 60.416666666666664),
+            trace(146, 53, 0x1A571168DF0B5480L, 0.0, 1.8867924528301887, 24.528301886792452, 66.0377358490566),
+            trace(147, 78, 0x5AFA9453D700457AL, 0.0, 2.5641025641025643, 14.102564102564102, 78.2051282051282),
+            trace(148, 63, 0xEB6E29C3E3EDA2D4L, 0.0, 1.5873015873015872, 23.80952380952381, 71.42857142857143),
+            trace(149, 78, 0x63E68E37D53FBEC2L, 0.0, 2.5641025641025643, 12.820512820512821, 80.76923076923077),
+            trace(150, 36, 0x2A05EA9DAEF6BA81L, 0.0, 13.88888888888889, 33.333333333333336, 52.77777777777778),
+            trace(151, 50, 0x01E47D1438CEA5C0L, 0.0, 8.0, 28.0, 56.0),
+            trace(152, 47, 0x8FABB2963EFEAB58L, 0.0, 6.382978723404255, 21.27659574468085, 70.2127659574468),
+            trace(153, 65, 0xC78FFD920C4E0DEFL, 0.0, 3.076923076923077, 24.615384615384617, 67.6923076923077),
+            trace(154, 50, 0xFD4AACC9DD6A4DEAL, 0.0, 4.0, 28.0, 64.0),
+            trace(155, 67, 0xDD5B271FE27815B2L, 0.0, 2.985074626865672, 16.417910447761194, 77.61194029850746),
+            trace(156, 52, 0x55187618056F5606L, 0.0, 3.8461538461538463, 25.0, 63.46153846153846),
+            trace(157, 82, 0x1E5463B77AD67655L, 0.0, 2.4390243902439024, 20.73170731707317, 73.17073170731707),
+            trace(158, 60, 0x724297327B410D7FL, 0.0, 6.666666666666667, 18.333333333333332, 61.666666666666664),
+            trace(159, 73, 0x73F63AC7B1FA36E6L, 0.0, 5.47945205479452, 17.80821917808219, 69.86301369863014));
+
+    private DifferentialBaseline() {
+    }
+
+    private static RecordedTrace trace(long seed, long steps, long fingerprints, Double... medianTimePercentages) {
+        return new RecordedTrace(seed, new Trace(steps, fingerprints, List.of(medianTimePercentages)));
+    }
+
+    record RecordedTrace(long seed, Trace trace) {
+    }
+}
@@ -0,0 +1,52 @@
+import org.junit.jupiter.api.Test;
+import org.togetherjava.event.elevator.simulation.Simulation;
+import org.togetherjava.event.elevator.verification.DifferentialHarness;
+import org.togetherjava.event.elevator.verification.DifferentialHarness.Divergence;
+import org.togetherjava.event.elevator.verification.DifferentialHarness.SimulationFactory;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class DifferentialHarnessTest {
+    private static final SimulationFactory REFERENCE = DifferentialHarness.randomScenarios(3, 200, 20);
+
+    @Test
+    void testEngineIsDeterministic() {
+        DifferentialHarness harness = new DifferentialHarness(REFERENCE, REFERENCE, 10_000);
+
+        List<Divergence> divergences = harness.compare(0, 1_000);
+
+        assertTrue(divergences.isEmpty(),
+                "Simulations of the same seed are supposed to behave exactly the same, but found: " + divergences);
+    }
+
+    @Test
+    void testEngineMatchesRecordedBaseline() {
+        for (DifferentialBaseline.RecordedTrace recorded : DifferentialBaseline.TRACES) {
+            Simulation simulation = REFERENCE.create(recorded.seed());
+            simulation.getElevatorSystem().setHallCallReassignment(false);
+
+            assertEquals(recorded.trace(), DifferentialHarness.trace(simulation, 10_000),
+                    "Seed %d is supposed to go through the same states as the engine the traces were recorded with."
+                            .formatted(recorded.seed()));
+        }
+    }
+
+    @Test
+    void testDivergenceIsReported() {
+        SimulationFactory withoutParking = seed -> {
+            Simulation simulation = REFERENCE.create(seed);
+            simulation.getElevatorSystem().setIdleParking(false);
+            return simulation;
+        };
+        DifferentialHarness harness = new DifferentialHarness(REFERENCE, withoutParking, 10_000);
+
+        List<Divergence> divergences = harness.compare(0, 100);
+
+        assertFalse(divergences.isEmpty(), "Changing the behavior of the engine is supposed to be detected.");
+        Divergence divergence = divergences.getFirst();
+        assertTrue(divergence.step() > 0,
+                "Both engines start out equal, so they can only diverge after some steps, but got: " + divergence);
+    }
+}
@@ -0,0 +1,142 @@
+import org.junit.jupiter.api.Test;
+import org.togetherjava.event.elevator.elevators.Elevator;
+import org.togetherjava.event.elevator.elevators.FloorPanelSystem;
+import org.togetherjava.event.elevator.elevators.TravelDirection;
+import org.togetherjava.event.elevator.verification.DispatchStressHarness;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class DispatchStressHarnessTest {
+    @Test
+    void testSerializedRequestsAreNeitherLostNorDuplicated() throws InterruptedException {
+        DispatchStressHarness harness = new DispatchStressHarness(4, 20, Duration.ofMillis(1),
+                DispatchStressHarness.Synchronization.CONTROLLER_LOCK, 1);
+
+        DispatchStressHarness.Report report = harness.run(
+                new DispatchStressHarness.Load(4, false, 20_000, Duration.ofMillis(200), 0.5));
+
+        assertTrue(report.isCorrect(), "A controller lock is supposed to keep all requests intact, but got: " + report);
+        assertEquals(4_000, report.requests(), "Every producer is supposed to make its share of the requests.");
+        assertTrue(report.p50Nanos() <= report.p99Nanos() && report.p99Nanos() <= report.p999Nanos(),
+                "Percentiles are supposed to be ordered, but got: " + report);
+    }
+
+    @Test
+    void testVirtualThreadsMakeAllRequests() throws InterruptedException {
+        DispatchStressHarness harness = new DispatchStressHarness(2, 10, Duration.ofMillis(1),
+                DispatchStressHarness.Synchronization.CONTROLLER_LOCK, 2);
+
+        DispatchStressHarness.Report report = harness.run(
+                new DispatchStressHarness.Load(32, true, 16_000, Duration.ofMillis(100), 0));
+
+        assertTrue(report.isCorrect(), "Hall calls from virtual threads are supposed to be served, but got: " + report);
+        assertEquals(1_600, report.requests(), "Every producer is supposed to make its share of the requests.");
+    }
+
+    @Test
+    void testFaultyFloorPanelsAreDetected() throws InterruptedException {
+        DispatchStressHarness harness = new DispatchStressHarness(4, 20, Duration.ofMillis(1),
+                DispatchStressHarness.Synchronization.CONTROLLER_LOCK, 1, FaultyFloorPanels::new);
+
+        DispatchStressHarness.Report report = harness.run(
+                new DispatchStressHarness.Load(2, false, 10_000, Duration.ofMillis(100), 0));
+
+        assertFalse(report.isCorrect(), "Faulty floor panels are supposed to be detected, but got: " + report);
+        assertTrue(report.lostRequests() > 0, "Dropped hall calls are supposed to count as lost, but got: " + report);
+        assertTrue(report.duplicatedRequests() > 0,
+                "Hall calls dispatched twice are supposed to count as duplicated, but got: " + report);
+    }
+
+    @Test
+    void testHallCallsDroppedForElevatorsOnTheirWayAreLost() throws InterruptedException {
+        AtomicLong dropped = new AtomicLong();
+        DispatchStressHarness harness = new DispatchStressHarness(1, 3, Duration.ofMillis(1),
+                DispatchStressHarness.Synchronization.CONTROLLER_LOCK, 3,
+                system -> new OnTheWayDroppingFloorPanels(system, dropped));
+
+        DispatchStressHarness.Report report = harness.run(
+                new DispatchStressHarness.Load(2, false, 10_000, Duration.ofMillis(100), 0.5));
+
+        assertTrue(dropped.get() > 0, "Some hall calls are supposed to be made while the elevator heads there.");
+        assertEquals(dropped.get(), report.lostRequests(),
+                "Hall calls are not supposed to count as served by an elevator that was on its way anyway, but got: "
+                        + report);
+    }
+
+    @Test
+    void testInvalidLoadRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new DispatchStressHarness.Load(0, false, 1_000, Duration.ofSeconds(1), 0.5));
+        assertThrows(IllegalArgumentException.class,
+                () -> new DispatchStressHarness.Load(1, false, 1_000, Duration.ofSeconds(1), 1.5));
+    }
+
+    /**
+     * Drops every other hall call and dispatches the others twice. Only called under the controller lock.
+     */
+    private static final class FaultyFloorPanels implements FloorPanelSystem {
+        private final FloorPanelSystem system;
+        private boolean drop;
+
+        private FaultyFloorPanels(FloorPanelSystem system) {
+            this.system = system;
+        }
+
+        @Override
+        public void requestElevator(int atFloor, TravelDirection desiredTravelDirection) {
+            drop = !drop;
+            if (drop) {
+                return;
+            }
+            Elevator elevator = bestElevator(atFloor, desiredTravelDirection);
+            system.requestElevator(elevator, atFloor, desiredTravelDirection);
+            system.requestElevator(elevator, atFloor, desiredTravelDirection);
+        }
+
+        @Override
+        public void requestElevator(Elevator bestElevator, int atFloor, TravelDirection desiredTravelDirection) {
+            system.requestElevator(bestElevator, atFloor, desiredTravelDirection);
+        }
+
+        @Override
+        public Elevator bestElevator(int atFloor, TravelDirection desiredTravelDirection) {
+            return system.bestElevator(atFloor, desiredTravelDirection);
+        }
+    }
+
+    /**
+     * Drops hall calls of floors the elevator is already heading to. Only called under the controller lock.
+     */
+    private static final class OnTheWayDroppingFloorPanels implements FloorPanelSystem {
+        private final FloorPanelSystem system;
+        private final AtomicLong dropped;
+
+        private OnTheWayDroppingFloorPanels(FloorPanelSystem system, AtomicLong dropped) {
+            this.system = system;
+            this.dropped = dropped;
+        }
+
+        @Override
+        public void requestElevator(int atFloor, TravelDirection desiredTravelDirection) {
+            Elevator elevator = bestElevator(atFloor, desiredTravelDirection);
+            if (elevator.getFloorRequests().contains(atFloor)) {
+                dropped.incrementAndGet();
+                return;
+            }
+            system.requestElevator(elevator, atFloor, desiredTravelDirection);
+        }
+
+        @Override
+        public void requestElevator(Elevator bestElevator, int atFloor, TravelDirection desiredTravelDirection) {
+            system.requestElevator(bestElevator, atFloor, desiredTravelDirection);
+        }
+
+        @Override
+        public Elevator bestElevator(int atFloor, TravelDirection desiredTravelDirection) {
+            return system.bestElevator(atFloor, desiredTravelDirection);
+        }
+    }
+}
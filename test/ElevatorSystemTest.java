@@ -0,0 +1,214 @@
+import org.junit.jupiter.api.Test;
+import org.togetherjava.event.elevator.elevators.Elevator;
+import org.togetherjava.event.elevator.elevators.ElevatorSystem;
+import org.togetherjava.event.elevator.elevators.TravelDirection;
+import org.togetherjava.event.elevator.humans.Human;
+import org.togetherjava.event.elevator.scenarios.TrafficProfile;
+import org.togetherjava.event.elevator.scenarios.TrafficWorkload;
+import org.togetherjava.event.elevator.simulation.Simulation;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class ElevatorSystemTest {
+    @Test
+    void testAgedHallCallIsServedBeforeOlderRequests() {
+        ElevatorSystem system = new ElevatorSystem();
+        system.setIdleParking(false);
+        system.setMaxHallCallWait(10);
+        Elevator elevator = new Elevator(1, 20, 10);
+        system.registerElevator(elevator);
+        elevator.requestDestinationFloor(20);
+        system.requestElevator(1, TravelDirection.UP);
+
+        while (elevator.getCurrentFloor() != 1) {
+            assertNotEquals(20, elevator.getCurrentFloor(),
+                    "The aged hall call is supposed to be served before the request made earlier.");
+            system.moveOneFloor();
+        }
+        assertEquals(List.of(20), elevator.getFloorRequests(), "The earlier request is supposed to be served next.");
+        assertEquals(0, system.getHallCallWait(1), "A served hall call is not supposed to wait anymore.");
+    }
+
+    @Test
+    void testMaxHallCallWaitBoundsTheTail() {
+        Simulation unbounded = Simulation.createRandomSimulation(4637787693156730566L, 5, 5_000, 100);
+        Simulation bounded = Simulation.createRandomSimulation(4637787693156730566L, 5, 5_000, 100);
+        bounded.getElevatorSystem().setMaxHallCallWait(60);
+        unbounded.startAndExecuteUntilDone(200_000);
+        bounded.startAndExecuteUntilDone(200_000);
+
+        Human.State waiting = Human.State.WAITING_FOR_ELEVATOR;
+        assertTrue(unbounded.getStepsForStatePercentile(waiting, 100) > 60,
+                "Without a maximum, some humans are supposed to wait longer in this scenario.");
+        assertTrue(bounded.getStepsForStatePercentile(waiting, 100) <= 60,
+                "Nobody is supposed to wait longer than the maximum, but the longest wait was "
+                        + bounded.getStepsForStatePercentile(waiting, 100));
+        assertThrows(IllegalArgumentException.class, () -> bounded.getElevatorSystem().setMaxHallCallWait(-1));
+    }
+
+    @Test
+    void testMaxHallCallWaitHoldsWhileHumansKeepArriving() {
+        // Long enough for an elevator to cross the 20 floors within half of it, once the call is escalated
+        int maxHallCallWait = 40;
+        Simulation unbounded = TrafficWorkload.createSimulation(4, 3, 20, TrafficProfile.officeDay(500, 0.5));
+        Simulation bounded = TrafficWorkload.createSimulation(4, 3, 20, TrafficProfile.officeDay(500, 0.5));
+        bounded.getElevatorSystem().setMaxHallCallWait(maxHallCallWait);
+        unbounded.startAndExecuteUntilDone(100_000);
+        bounded.startAndExecuteUntilDone(100_000);
+
+        Human.State waiting = Human.State.WAITING_FOR_ELEVATOR;
+        assertTrue(unbounded.getStepsForStatePercentile(waiting, 100) > maxHallCallWait,
+                "Without a maximum, some humans are supposed to wait longer in this scenario.");
+        assertTrue(bounded.getStepsForStatePercentile(waiting, 100) <= maxHallCallWait,
+                "Nobody arriving during the day is supposed to wait longer than the maximum, but the longest wait was "
+                        + bounded.getStepsForStatePercentile(waiting, 100));
+    }
+
+    @Test
+    void testIdleElevatorParksAtBusyFloor() {
+        assertEquals(1, runToIdleAfterLobbyCalls(true),
+                "An idle elevator is supposed to return to the floor where most hall calls came from.");
+    }
+
+    @Test
+    void testIdleParkingCanBeDisabled() {
+        assertEquals(10, runToIdleAfterLobbyCalls(false),
+                "Without idle parking, an elevator is supposed to stay where it stopped.");
+    }
+
+    @Test
+    void testPredictedDemandFollowsHallCalls() {
+        ElevatorSystem system = new ElevatorSystem();
+        system.registerElevator(new Elevator(1, 10, 5));
+
+        system.requestElevator(3, TravelDirection.UP);
+        system.requestElevator(3, TravelDirection.UP);
+
+        assertTrue(system.getPredictedDemand(3, TravelDirection.UP) > 1.9);
+        assertEquals(0, system.getPredictedDemand(3, TravelDirection.DOWN));
+        assertEquals(0, system.getPredictedDemand(7, TravelDirection.UP));
+
+        for (int i = 0; i < 1_000; i++) {
+            system.moveOneFloor();
+        }
+        assertTrue(system.getPredictedDemand(3, TravelDirection.UP) < 0.1,
+                "The demand of old hall calls is supposed to decay over time.");
+    }
+
+    @Test
+    void testBestElevatorFollowsFleetChanges() {
+        ElevatorSystem system = new ElevatorSystem();
+        Elevator first = new Elevator(1, 10, 3);
+        Elevator second = new Elevator(1, 10, 7);
+        Elevator third = new Elevator(1, 10, 7);
+        system.registerElevator(first);
+        system.registerElevator(second);
+        system.registerElevator(third);
+
+        assertSame(second, system.bestElevator(8, TravelDirection.UP),
+                "Ties are supposed to go to the elevator registered first.");
+
+        second.requestDestinationFloor(1);
+        assertSame(third, system.bestElevator(8, TravelDirection.UP),
+                "Ties are supposed to go to the elevator with the least requests.");
+
+        first.incrementFloorByOne();
+        first.incrementFloorByOne();
+        first.incrementFloorByOne();
+        first.incrementFloorByOne();
+        assertSame(first, system.bestElevator(8, TravelDirection.UP),
+                "Dispatching is supposed to see elevators that moved.");
+    }
+
+    @Test
+    void testWaitingHallCallMovesToSoonerIdleElevator() {
+        ElevatorSystem system = new ElevatorSystem();
+        system.setIdleParking(false);
+        Elevator busy = new Elevator(1, 10, 5);
+        Elevator soonIdle = new Elevator(1, 10, 10);
+        system.registerElevator(busy);
+        system.registerElevator(soonIdle);
+
+        busy.requestDestinationFloor(10);
+        soonIdle.requestDestinationFloor(4);
+        system.requestElevator(busy, 2, TravelDirection.UP);
+        for (int i = 0; i < 6; i++) {
+            system.moveOneFloor();
+        }
+
+        assertFalse(busy.getFloorRequests().contains(2),
+                "The hall call is supposed to be withdrawn from the elevator it was given to.");
+        assertEquals(List.of(2), soonIdle.getFloorRequests(),
+                "The hall call is supposed to move to the elevator that became idle closer to it.");
+    }
+
+    @Test
+    void testHallCallReassignmentCanBeDisabled() {
+        ElevatorSystem system = new ElevatorSystem();
+        system.setIdleParking(false);
+        system.setHallCallReassignment(false);
+        Elevator busy = new Elevator(1, 10, 5);
+        Elevator soonIdle = new Elevator(1, 10, 10);
+        system.registerElevator(busy);
+        system.registerElevator(soonIdle);
+
+        busy.requestDestinationFloor(10);
+        soonIdle.requestDestinationFloor(4);
+        system.requestElevator(busy, 2, TravelDirection.UP);
+        for (int i = 0; i < 6; i++) {
+            system.moveOneFloor();
+        }
+
+        assertEquals(List.of(2), busy.getFloorRequests(),
+                "Without reassignment, a hall call is supposed to stay with the elevator it was given to.");
+        assertTrue(soonIdle.getFloorRequests().isEmpty());
+    }
+
+    @Test
+    void testParkedElevatorThatLostTakenOverHallCallMovesOneFloorPerStep() {
+        // Idle elevators take over hall calls and lose them to closer ones within the same step here,
+        // before they are sent to park
+        Simulation simulation = TrafficWorkload.createSimulation(3, 10, 50, TrafficProfile.officeDay(500, 2));
+        simulation.start();
+        List<Elevator> elevators = simulation.getElevators();
+        int[] previousFloors = new int[elevators.size()];
+        while (!simulation.isDone() && simulation.getStepCount() < 500) {
+            for (int i = 0; i < elevators.size(); i++) {
+                previousFloors[i] = elevators.get(i).getCurrentFloor();
+            }
+            simulation.step();
+
+            for (int i = 0; i < elevators.size(); i++) {
+                assertTrue(Math.abs(elevators.get(i).getCurrentFloor() - previousFloors[i]) <= 1,
+                        "Elevators are supposed to move at most one floor per step, but elevator %d moved from %d to %d"
+                                .formatted(i, previousFloors[i], elevators.get(i).getCurrentFloor()));
+            }
+        }
+    }
+
+    private static int runToIdleAfterLobbyCalls(boolean idleParking) {
+        ElevatorSystem system = new ElevatorSystem();
+        system.setIdleParking(idleParking);
+        Elevator elevator = new Elevator(1, 10, 10);
+        system.registerElevator(elevator);
+
+        for (int i = 0; i < 5; i++) {
+            system.requestElevator(1, TravelDirection.UP);
+            moveUntilIdle(system, elevator);
+        }
+        elevator.requestDestinationFloor(10);
+        moveUntilIdle(system, elevator);
+        for (int i = 0; i < 20; i++) {
+            system.moveOneFloor();
+        }
+        return elevator.getCurrentFloor();
+    }
+
+    private static void moveUntilIdle(ElevatorSystem system, Elevator elevator) {
+        for (int i = 0; i < 20 && !elevator.getFloorRequests().isEmpty(); i++) {
+            system.moveOneFloor();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+import org.junit.jupiter.api.Test;
+import org.togetherjava.event.elevator.sizing.FleetSizer;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class FleetSizerTest {
+    @Test
+    void testSmallestFleetMeetingTargetFound() {
+        FleetSizer sizer = new FleetSizer(20, FleetSizer.Traffic.population(300), 2, 64, 100_000);
+        FleetSizer.Target target = new FleetSizer.Target(95, 40);
+
+        FleetSizer.Evaluation smallest = sizer.findSmallestFleet(target).orElseThrow();
+
+        assertTrue(smallest.meets(target), "The found fleet is supposed to meet the target, but was: " + smallest);
+        assertTrue(smallest.getAmountOfElevators() > 1, "300 humans are not supposed to be served well by 1 elevator.");
+        FleetSizer.Evaluation oneLess = sizer.getEvaluations().stream()
+                .filter(evaluation -> evaluation.getAmountOfElevators() == smallest.getAmountOfElevators() - 1)
+                .findFirst()
+                .orElseThrow();
+        assertFalse(oneLess.meets(target), "One elevator less is supposed to miss the target, but was: " + oneLess);
+    }
+
+    @Test
+    void testEvaluationsReusedAcrossSearches() {
+        AtomicInteger simulations = new AtomicInteger();
+        FleetSizer.Traffic population = FleetSizer.Traffic.population(300);
+        FleetSizer sizer = new FleetSizer(20, (seed, amountOfElevators, floorsServed) -> {
+            simulations.incrementAndGet();
+            return population.createSimulation(seed, amountOfElevators, floorsServed);
+        }, 2, 64, 100_000);
+
+        int relaxed = sizer.findSmallestFleet(new FleetSizer.Target(95, 60)).orElseThrow().getAmountOfElevators();
+        int simulationsBefore = simulations.get();
+        int repeated = sizer.findSmallestFleet(new FleetSizer.Target(95, 60)).orElseThrow().getAmountOfElevators();
+
+        assertEquals(relaxed, repeated, "Searching again is supposed to give the same result.");
+        assertEquals(simulationsBefore, simulations.get(), "Searching again is not supposed to simulate anything.");
+
+        List<FleetSizer.Evaluation> evaluated = sizer.getEvaluations();
+        int strict = sizer.findSmallestFleet(new FleetSizer.Target(95, 20)).orElseThrow().getAmountOfElevators();
+        assertTrue(strict >= relaxed, "A stricter target is not supposed to need fewer elevators.");
+        assertEquals(2 * (sizer.getEvaluations().size() - evaluated.size()), simulations.get() - simulationsBefore,
+                "Only sizes that were not evaluated before are supposed to be simulated, once per replication.");
+    }
+
+    @Test
+    void testUnreachableTargetGivesNothing() {
+        FleetSizer sizer = new FleetSizer(20, FleetSizer.Traffic.population(100), 1, 4, 100_000);
+
+        Optional<FleetSizer.Evaluation> smallest = sizer.findSmallestFleet(new FleetSizer.Target(100, 0));
+
+        assertTrue(smallest.isEmpty(), "Nobody can be picked up without waiting, but got: " + smallest);
+    }
+}
@@ -50,14 +50,40 @@ final class PreviousElevatorSystemTest {
         elevators.forEach(system::registerElevator);
         listeners.forEach(system::registerElevatorListener);
         //system.ready();
+        elevators.forEach(elevator -> elevator.requestDestinationFloor(4));
 
         system.moveOneFloor();
         for (Elevator elevator : elevators) {
             for (ElevatorListener listener : listeners) {
                 verify(listener, description(
-                        "The 'moveOneFloor' method of ElevatorSystem is supposed to invoke 'onElevatorArrivedAtFloor' on all registered elevator listeners for each registered elevator.")).onElevatorArrivedAtFloor(
+                        "The 'moveOneFloor' method of ElevatorSystem is supposed to invoke 'onElevatorArrivedAtFloor' on all registered elevator listeners for each elevator that moved.")).onElevatorArrivedAtFloor(
                         elevator);
             }
         }
     }
+
+    @Test
+    void testMoveOneFloorSkipsIdleElevators() {
+        ElevatorSystem system = new ElevatorSystem();
+
+        Elevator idleElevator = new Elevator(1, 5, 2);
+        Elevator busyElevator = new Elevator(1, 5, 2);
+        ElevatorListener listener = mock(ElevatorListener.class);
+
+        system.registerElevator(idleElevator);
+        system.registerElevator(busyElevator);
+        system.registerElevatorListener(listener);
+        busyElevator.requestDestinationFloor(3);
+
+        system.moveOneFloor();
+        verify(listener, description(
+                "The 'moveOneFloor' method of ElevatorSystem is supposed to fire 'onElevatorArrivedAtFloor' for elevators that moved.")).onElevatorArrivedAtFloor(
+                busyElevator);
+        verify(listener, never().description(
+                "The 'moveOneFloor' method of ElevatorSystem is not supposed to fire 'onElevatorArrivedAtFloor' for idle elevators.")).onElevatorArrivedAtFloor(
+                idleElevator);
+
+        system.moveOneFloor();
+        verifyNoMoreInteractions(listener);
+    }
 }
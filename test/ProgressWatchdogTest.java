@@ -0,0 +1,68 @@
+import org.junit.jupiter.api.Test;
+import org.togetherjava.event.elevator.elevators.Elevator;
+import org.togetherjava.event.elevator.humans.Human;
+import org.togetherjava.event.elevator.scenarios.TrafficProfile;
+import org.togetherjava.event.elevator.scenarios.TrafficWorkload;
+import org.togetherjava.event.elevator.simulation.ProgressWatchdog;
+import org.togetherjava.event.elevator.simulation.Simulation;
+import org.togetherjava.event.elevator.simulation.SimulationStalledException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class ProgressWatchdogTest {
+    @Test
+    void testStrandedHumanAbortsEarly() {
+        Human stranded = new Human(10, 4);
+        // Waiting without ever having requested an elevator, as if the request got lost, and nobody else passes floor 10
+        stranded.restoreState(Human.State.WAITING_FOR_ELEVATOR, null);
+        Simulation simulation = new Simulation(List.of(new Elevator(1, 10, 1)),
+                List.of(new Human(1, 5), stranded, new Human(8, 2)));
+
+        SimulationStalledException exception = assertThrows(SimulationStalledException.class,
+                () -> simulation.startAndExecuteUntilDone(200_000));
+
+        assertTrue(exception.getStep() <= 2_000, "Stranded humans are supposed to be detected within two windows.");
+        assertTrue(exception.getMessage().contains("startingFloor=10"),
+                "The dump is supposed to list the stranded human, but was: " + exception.getMessage());
+    }
+
+    @Test
+    void testElevatorNotReachingItsRequestAbortsEarly() {
+        Elevator elevator = new Elevator(1, 10, 5);
+        Simulation simulation = new Simulation(List.of(elevator), List.of());
+        simulation.start();
+        // Beyond the top floor, so the elevator can never reach it
+        elevator.requestDestinationFloor(15);
+        ProgressWatchdog watchdog = new ProgressWatchdog(simulation, 100, 50);
+
+        SimulationStalledException exception = assertThrows(SimulationStalledException.class, () -> {
+            while (simulation.getStepCount() < 10_000) {
+                simulation.step();
+                watchdog.check();
+            }
+        });
+
+        assertEquals(100, exception.getStep(), "The elevator is supposed to be noticed at the first check.");
+        assertTrue(exception.getMessage().contains("requests [15]"),
+                "The dump is supposed to list the requests of the elevator, but was: " + exception.getMessage());
+    }
+
+    @Test
+    void testHealthySimulationsNotAborted() {
+        List<Simulation> simulations = List.of(Simulation.createRandomSimulation(2, 20, 1_000, 50),
+                Simulation.createRandomCohortSimulation(3, 5, 2_000, 20),
+                TrafficWorkload.createSimulation(3, 10, 50, TrafficProfile.officeDay(500, 2)));
+
+        for (Simulation simulation : simulations) {
+            simulation.start();
+            // Checking often, so transient states are seen as well
+            ProgressWatchdog watchdog = new ProgressWatchdog(simulation, 7, 1_000);
+            while (!simulation.isDone()) {
+                simulation.step();
+                assertDoesNotThrow(watchdog::check, "A simulation that finishes is not supposed to be aborted.");
+            }
+        }
+    }
+}
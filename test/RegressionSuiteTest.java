@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.togetherjava.event.elevator.regression.BaselineFile;
+import org.togetherjava.event.elevator.regression.Measurement;
+import org.togetherjava.event.elevator.regression.RegressionSuite;
+import org.togetherjava.event.elevator.regression.ScenarioCatalog;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class RegressionSuiteTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testBaselineRoundTrip() {
+        List<Measurement> measurements = List.of(
+                Measurement.of(ScenarioCatalog.get("simple"), 1),
+                Measurement.of(ScenarioCatalog.get("small-random"), 2));
+        Path path = tempDir.resolve("baseline.csv");
+
+        BaselineFile.write(path, measurements);
+        Map<String, Measurement> baseline = BaselineFile.read(path);
+
+        assertEquals(List.of("simple", "small-random"), List.copyOf(baseline.keySet()),
+                "Reading a baseline must restore all scenarios, in order.");
+        assertEquals(measurements.get(1), baseline.get("small-random"));
+    }
+
+    @Test
+    void testRegressionBeyondToleranceReported() {
+        Measurement baseline = new Measurement("simple", 1_000, 100, 10_000_000, 10, 50);
+        Measurement slightlyWorse = new Measurement("simple", 1_040, 100, 10_000_000, 10, 52);
+        Measurement muchWorse = new Measurement("simple", 1_000, 100, 10_000_000, 10, 80);
+
+        assertEquals(List.of(), RegressionSuite.findRegressions(Map.of("simple", baseline), List.of(slightlyWorse), 0.1),
+                "Changes within the tolerance are not supposed to be reported.");
+        List<String> regressions = RegressionSuite.findRegressions(Map.of("simple", baseline), List.of(muchWorse), 0.1);
+        assertEquals(1, regressions.size(), "Exactly the p99 wait regressed, but got: " + regressions);
+        assertTrue(regressions.getFirst().contains("p99WaitSteps"), regressions.getFirst());
+    }
+
+    @Test
+    void testScenariosAreDeterministic() {
+        ScenarioCatalog.Entry entry = ScenarioCatalog.get("medium-random");
+
+        Measurement first = Measurement.of(entry, 1);
+        Measurement second = Measurement.of(entry, 1);
+
+        assertEquals(first.steps(), second.steps(), "Catalog scenarios are supposed to be seeded.");
+        assertEquals(first.p99WaitSteps(), second.p99WaitSteps(), "Catalog scenarios are supposed to be seeded.");
+    }
+
+    @Test
+    void testUnknownScenarioRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ScenarioCatalog.get("does-not-exist"));
+    }
+}
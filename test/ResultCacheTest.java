@@ -0,0 +1,132 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.togetherjava.event.elevator.simulation.ResultCache;
+import org.togetherjava.event.elevator.simulation.Simulation;
+import org.togetherjava.event.elevator.simulation.SimulationResult;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class ResultCacheTest {
+    private static final int STEP_LIMIT = 10_000;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRepeatedRunsAreAnsweredFromDisk() {
+        ResultCache.Key key = ResultCache.Key.random(2, 5, 200, 20);
+
+        SimulationResult first = new ResultCache(tempDir, 1 << 20, "v1").run(key, STEP_LIMIT);
+        SimulationResult second = new ResultCache(tempDir, 1 << 20, "v1").run(key, STEP_LIMIT);
+
+        // Cached results report the wall time of the run that computed them, a second simulation would not
+        assertEquals(first.wallTime(), second.wallTime(),
+                "The second run is supposed to be answered by the file of the first.");
+        assertEquals(first, second, "The cached result is supposed to equal the computed one.");
+        assertEquals(SimulationResult.Outcome.DONE, second.outcome());
+        assertTrue(new ResultCache(tempDir, 1 << 20, "v2").get(key, STEP_LIMIT).isEmpty(),
+                "Results of another engine version are not supposed to be used.");
+        assertTrue(new ResultCache(tempDir, 1 << 20, "v1").get(key, STEP_LIMIT + 1).isEmpty(),
+                "Results of another step limit are not supposed to be used.");
+    }
+
+    @Test
+    void testLeastRecentlyUsedResultsAreEvicted() throws IOException {
+        ResultCache.Key a = ResultCache.Key.random(1, 2, 20, 10);
+        ResultCache.Key b = ResultCache.Key.random(2, 2, 20, 10);
+        ResultCache.Key c = ResultCache.Key.random(3, 2, 20, 10);
+        ResultCache unbounded = new ResultCache(tempDir, Long.MAX_VALUE, "v1");
+        unbounded.run(a, STEP_LIMIT);
+        long entryBytes = unbounded.sizeBytes();
+        // Room for two results
+        ResultCache cache = new ResultCache(tempDir, 2 * entryBytes + entryBytes / 2, "v1");
+        // Results are used in the order of their modification times, set far apart to not depend on the clock
+        Instant now = Instant.now();
+        Path resultOfA = newResult(null);
+        Files.setLastModifiedTime(resultOfA, FileTime.from(now.minus(3, ChronoUnit.HOURS)));
+
+        cache.run(b, STEP_LIMIT);
+        Path resultOfB = newResult(resultOfA);
+        Files.setLastModifiedTime(resultOfB, FileTime.from(now.minus(2, ChronoUnit.HOURS)));
+        assertTrue(cache.get(a, STEP_LIMIT).isPresent(), "Both results are supposed to fit.");
+        assertTrue(Files.getLastModifiedTime(resultOfA).toInstant().isAfter(now.minus(1, ChronoUnit.HOURS)),
+                "Reading a result is supposed to mark it as used.");
+        cache.run(c, STEP_LIMIT);
+
+        assertTrue(cache.get(a, STEP_LIMIT).isPresent(), "The recently read result is supposed to be kept.");
+        assertTrue(cache.get(b, STEP_LIMIT).isEmpty(), "The least recently used result is supposed to be evicted.");
+        assertTrue(cache.get(c, STEP_LIMIT).isPresent(), "The new result is supposed to be kept.");
+        assertTrue(cache.sizeBytes() <= 2 * entryBytes + entryBytes / 2, "The cache is supposed to stay bounded.");
+    }
+
+    @Test
+    void testParallelRunsOfTheSameKeySimulateOnce() throws Exception {
+        ResultCache cache = new ResultCache(tempDir, 1 << 20, "v1");
+        ResultCache.Key key = ResultCache.Key.random(4, 5, 2_000, 30);
+
+        List<SimulationResult> results;
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<Future<SimulationResult>> futures = IntStream.range(0, 8)
+                    .mapToObj(i -> executor.submit(() -> cache.run(key, STEP_LIMIT)))
+                    .toList();
+            results = futures.stream().map(future -> {
+                try {
+                    return future.get();
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            }).toList();
+        }
+
+        // Separate simulations would differ in their wall times
+        assertEquals(1, results.stream().distinct().count(),
+                "Concurrent runs of one key are supposed to share a single simulation.");
+    }
+
+    @Test
+    void testEngineVersionIsStable() {
+        assertEquals(ResultCache.engineVersion(), ResultCache.engineVersion(),
+                "The engine version is supposed to be computed once.");
+        assertEquals(64, ResultCache.engineVersion().length(), "The engine version is supposed to be a SHA-256.");
+    }
+
+    @Test
+    void testKeysSimulateTheScenarioTheyDescribe() {
+        ResultCache cache = new ResultCache(tempDir, 1 << 20, "v1");
+        ResultCache.Key key = ResultCache.Key.random(5, 3, 500, 30);
+        ResultCache.Key aged = key.withMaxHallCallWait(20);
+
+        SimulationResult result = cache.run(key, STEP_LIMIT);
+        SimulationResult agedResult = cache.run(aged, STEP_LIMIT);
+
+        Simulation expected = Simulation.createRandomSimulation(5, 3, 500, 30);
+        expected.startAndExecuteUntilDone(STEP_LIMIT);
+        assertEquals(expected.getStepCount(), result.steps(),
+                "The key is supposed to simulate the random scenario of its parameters.");
+        assertNotEquals(key, aged, "Keys of other dispatch settings are supposed to differ.");
+        assertEquals(key.withMaxHallCallWait(20), aged, "Keys of equal settings are supposed to be equal.");
+        assertNotEquals(result.stepsPerState(), agedResult.stepsPerState(),
+                "The dispatch settings of a key are supposed to be simulated.");
+    }
+
+    private Path newResult(Path known) throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            List<Path> results = files.filter(file -> !file.equals(known)).toList();
+            assertEquals(1, results.size(), "Exactly one new result is supposed to be written.");
+            return results.getFirst();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+import org.junit.jupiter.api.Test;
+import org.togetherjava.event.elevator.elevators.Elevator;
+import org.togetherjava.event.elevator.humans.Human;
+import org.togetherjava.event.elevator.scenarios.ScenarioGenerator;
+import org.togetherjava.event.elevator.simulation.RolloutDispatcher;
+import org.togetherjava.event.elevator.simulation.Simulation;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class RolloutDispatcherTest {
+    private static final Duration GENEROUS_BUDGET = Duration.ofSeconds(30);
+
+    @Test
+    void testBusyNearestElevatorPassedOver() {
+        Elevator busy = new Elevator(1, 10, 5);
+        Elevator idle = new Elevator(1, 10, 9);
+        Simulation simulation = new Simulation(List.of(busy, idle), List.of(new Human(5, 1)));
+        simulation.start();
+        simulation.step();
+        simulation.getElevatorSystem().setDispatchPolicy(new RolloutDispatcher(simulation, 2, 20, GENEROUS_BUDGET));
+        List<Elevator> dispatched = new ArrayList<>();
+        simulation.getElevatorSystem().registerDispatchListener((elevator, atFloor) -> dispatched.add(elevator));
+
+        simulation.addHuman(new Human(6, 10));
+
+        assertEquals(List.of(idle), dispatched,
+                "The nearest elevator first travels down, so the idle one is supposed to pick up the human.");
+    }
+
+    @Test
+    void testAllHumansArrive() {
+        Simulation simulation = new ScenarioGenerator(5, 3, 100, 20).createSimulation();
+        simulation.getElevatorSystem().setDispatchPolicy(new RolloutDispatcher(simulation, 3, 10, GENEROUS_BUDGET));
+
+        simulation.startAndExecuteUntilDone(1_000);
+
+        assertTrue(simulation.getHumans().stream().allMatch(human -> human.getCurrentState() == Human.State.ARRIVED),
+                "Every human is supposed to arrive with rollout dispatching.");
+    }
+
+    @Test
+    void testInvalidConfigurationRejected() {
+        Simulation simulation = Simulation.createSimpleSimulation();
+
+        assertThrows(IllegalArgumentException.class, () -> new RolloutDispatcher(simulation, 0, 10, GENEROUS_BUDGET));
+        assertThrows(IllegalArgumentException.class, () -> new RolloutDispatcher(simulation, 2, 10, Duration.ZERO));
+    }
+}
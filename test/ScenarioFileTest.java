@@ -0,0 +1,66 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.togetherjava.event.elevator.elevators.Elevator;
+import org.togetherjava.event.elevator.humans.Human;
+import org.togetherjava.event.elevator.scenarios.ScenarioFile;
+import org.togetherjava.event.elevator.simulation.Simulation;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class ScenarioFileTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRoundTrip() {
+        Simulation expected = Simulation.createRandomSimulation(1, 5, 200_000, 10);
+        Path path = tempDir.resolve("scenario.bin");
+
+        ScenarioFile.write(path, expected.getElevators(), expected.getHumans());
+        Simulation actual = ScenarioFile.read(path);
+
+        List<Elevator> expectedElevators = expected.getElevators();
+        List<Elevator> actualElevators = actual.getElevators();
+        assertEquals(expectedElevators.size(), actualElevators.size(),
+                "Reading a scenario file must restore all elevators that were written.");
+        for (int i = 0; i < expectedElevators.size(); i++) {
+            assertEquals(expectedElevators.get(i).getMinFloor(), actualElevators.get(i).getMinFloor());
+            assertEquals(expectedElevators.get(i).getFloorsServed(), actualElevators.get(i).getFloorsServed());
+            assertEquals(expectedElevators.get(i).getCurrentFloor(), actualElevators.get(i).getCurrentFloor());
+        }
+
+        List<Human> expectedHumans = expected.getHumans();
+        List<Human> actualHumans = actual.getHumans();
+        assertEquals(expectedHumans.size(), actualHumans.size(),
+                "Reading a scenario file must restore all humans that were written.");
+        for (int i = 0; i < expectedHumans.size(); i++) {
+            assertEquals(expectedHumans.get(i).getStartingFloor(), actualHumans.get(i).getStartingFloor());
+            assertEquals(expectedHumans.get(i).getDestinationFloor(), actualHumans.get(i).getDestinationFloor());
+        }
+    }
+
+    @Test
+    void testElevatorsAfterHumansRejected() {
+        try (ScenarioFile.Writer writer = new ScenarioFile.Writer(tempDir.resolve("scenario.bin"))) {
+            writer.writeElevator(1, 10, 1);
+            writer.writeHuman(1, 5);
+
+            assertThrows(IllegalStateException.class, () -> writer.writeElevator(1, 10, 1),
+                    "Elevators must not be written after humans.");
+        }
+    }
+
+    @Test
+    void testCorruptFileRejected() throws IOException {
+        Path path = tempDir.resolve("scenario.bin");
+        Files.write(path, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+
+        assertThrows(IllegalArgumentException.class, () -> ScenarioFile.read(path),
+                "Files that are not scenario files must be rejected.");
+    }
+}
@@ -0,0 +1,58 @@
+import org.junit.jupiter.api.Test;
+import org.togetherjava.event.elevator.humans.Human;
+import org.togetherjava.event.elevator.scenarios.ScenarioGenerator;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class ScenarioGeneratorTest {
+    @Test
+    void testParallelGenerationIsDeterministic() {
+        ScenarioGenerator generator = new ScenarioGenerator(42, 5, 100_000, 50);
+
+        List<Human> sequential = generator.humans().toList();
+        List<Human> parallel = generator.humans().parallel().toList();
+
+        assertEquals(sequential.size(), parallel.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(sequential.get(i).getStartingFloor(), parallel.get(i).getStartingFloor(),
+                    "Generating humans in parallel must produce the same humans as generating them sequentially.");
+            assertEquals(sequential.get(i).getDestinationFloor(), parallel.get(i).getDestinationFloor(),
+                    "Generating humans in parallel must produce the same humans as generating them sequentially.");
+        }
+    }
+
+    @Test
+    void testRandomAccess() {
+        ScenarioGenerator generator = new ScenarioGenerator(-7, 3, 1_000, 20);
+        List<Human> humans = generator.humans().toList();
+
+        for (int index : new int[] {999, 0, 500, 1}) {
+            Human human = generator.createHuman(index);
+            assertEquals(humans.get(index).getStartingFloor(), human.getStartingFloor(),
+                    "A human must only depend on the seed and its index.");
+            assertEquals(humans.get(index).getDestinationFloor(), human.getDestinationFloor(),
+                    "A human must only depend on the seed and its index.");
+        }
+    }
+
+    @Test
+    void testFloorsWithinRangeAndCovered() {
+        int floorsServed = 10;
+        ScenarioGenerator generator = new ScenarioGenerator(3, 100, 10_000, floorsServed);
+        boolean[] seen = new boolean[floorsServed + 1];
+
+        generator.humans().forEach(human -> {
+            assertTrue(human.getStartingFloor() >= 1 && human.getStartingFloor() <= floorsServed);
+            assertTrue(human.getDestinationFloor() >= 1 && human.getDestinationFloor() <= floorsServed);
+            seen[human.getStartingFloor()] = true;
+        });
+        generator.elevators().forEach(elevator -> assertTrue(
+                elevator.getCurrentFloor() >= 1 && elevator.getCurrentFloor() <= floorsServed));
+
+        for (int floor = 1; floor <= floorsServed; floor++) {
+            assertTrue(seen[floor], "Humans are supposed to be spread over all floors, but none started at " + floor);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.togetherjava.event.elevator.scenarios.ScenarioFile;
+import org.togetherjava.event.elevator.simulation.Simulation;
+import org.togetherjava.event.elevator.verification.SeedFuzzer;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class SeedFuzzerTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testScenarioMatchesRandomSimulation() {
+        SeedFuzzer fuzzer = new SeedFuzzer(5, 50, 10, 10_000);
+        Simulation expected = Simulation.createRandomSimulation(42, 5, 50, 10);
+        expected.startAndExecuteUntilDone(10_000);
+
+        assertEquals(expected.getStepCount(), fuzzer.steps(fuzzer.scenario(42)),
+                "The scenario of a seed is supposed to be the one of the random simulation.");
+    }
+
+    @Test
+    void testFindingsOrderedByStepRatio() {
+        SeedFuzzer fuzzer = new SeedFuzzer(5, 50, 10, 10_000);
+
+        List<SeedFuzzer.Finding> findings = fuzzer.fuzz(0, 50);
+
+        assertEquals(50, findings.size(), "Every seed is supposed to be reported.");
+        for (int i = 1; i < findings.size(); i++) {
+            assertTrue(findings.get(i - 1).stepRatio() >= findings.get(i).stepRatio(),
+                    "Findings are supposed to start with the worst, but got: " + findings);
+        }
+        for (SeedFuzzer.Finding finding : findings) {
+            assertTrue(finding.steps() >= finding.lowerBoundSteps(),
+                    "No scenario can be faster than its lower bound: " + finding);
+        }
+    }
+
+    @Test
+    void testShrunkScenarioStaysPathologicalAndReproduces() {
+        SeedFuzzer fuzzer = new SeedFuzzer(5, 50, 10, 10_000);
+        SeedFuzzer.Finding worst = fuzzer.fuzz(0, 50).getFirst();
+        SeedFuzzer.Scenario scenario = fuzzer.scenario(worst.seed());
+
+        SeedFuzzer.Scenario shrunk = fuzzer.shrink(scenario, worst.stepRatio());
+
+        assertTrue(fuzzer.stepRatio(shrunk) >= worst.stepRatio(),
+                "Shrinking is not supposed to lose the pathology, but got: " + shrunk);
+        assertTrue(shrunk.trips().size() < scenario.trips().size(), "Not all humans can be needed: " + shrunk);
+        Path path = tempDir.resolve("shrunk.bin");
+        shrunk.write(path);
+        Simulation reproduced = ScenarioFile.read(path);
+        reproduced.startAndExecuteUntilDone(10_000);
+        assertEquals(fuzzer.steps(shrunk), reproduced.getStepCount(),
+                "The written scenario is supposed to reproduce the shrunk one.");
+    }
+}
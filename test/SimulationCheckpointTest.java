@@ -0,0 +1,133 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.togetherjava.event.elevator.humans.Human;
+import org.togetherjava.event.elevator.scenarios.ScenarioGenerator;
+import org.togetherjava.event.elevator.scenarios.TrafficProfile;
+import org.togetherjava.event.elevator.scenarios.TrafficWorkload;
+import org.togetherjava.event.elevator.simulation.Simulation;
+import org.togetherjava.event.elevator.simulation.SimulationSnapshot;
+import org.togetherjava.event.elevator.verification.DifferentialHarness;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class SimulationCheckpointTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testResumedSimulationContinuesIdentically() {
+        Simulation expected = new ScenarioGenerator(7, 4, 100_000, 30).createSimulation();
+        expected.start();
+        for (int i = 0; i < 50; i++) {
+            expected.step();
+        }
+        Path path = tempDir.resolve("checkpoint.bin");
+
+        expected.checkpoint(path);
+        Simulation actual = Simulation.resume(path);
+
+        assertEquals(expected.getStepCount(), actual.getStepCount(), "Resuming must restore the step count.");
+        assertRunsIdentically(expected, actual);
+    }
+
+    @Test
+    void testZonedSimulationResumesBetweenLegs() {
+        Simulation expected = Simulation.createZonedSimulation(11, 3, 2, 11, 1_000);
+        expected.start();
+        for (int i = 0; i < 40; i++) {
+            expected.step();
+        }
+        assertTrue(expected.getHumans().stream()
+                        .anyMatch(human -> human.getLegStartingFloor() != human.getStartingFloor()),
+                "Some humans are supposed to have changed elevators before the checkpoint.");
+        Path path = tempDir.resolve("checkpoint.bin");
+
+        expected.checkpoint(path);
+        Simulation actual = Simulation.resume(path);
+
+        assertRunsIdentically(expected, actual);
+    }
+
+    @Test
+    void testAgingHallCallsResumeIdentically() {
+        Simulation expected = Simulation.createRandomSimulation(4637787693156730566L, 5, 2_000, 100);
+        expected.getElevatorSystem().setMaxHallCallWait(40);
+        expected.start();
+        for (int i = 0; i < 60; i++) {
+            expected.step();
+        }
+
+        Simulation actual = expected.snapshot().restore();
+
+        assertRunsIdentically(expected, actual);
+    }
+
+    @Test
+    void testCheckpointBeforeStart() {
+        Simulation expected = new ScenarioGenerator(3, 3, 500, 20).createSimulation();
+        Path path = tempDir.resolve("checkpoint.bin");
+
+        expected.checkpoint(path);
+        Simulation actual = Simulation.resume(path);
+        expected.start();
+        actual.start();
+
+        assertRunsIdentically(expected, actual);
+    }
+
+    @Test
+    void testRestoredSnapshotsAreIndependentForks() {
+        Simulation expected = new ScenarioGenerator(11, 4, 2_000, 25).createSimulation();
+        expected.start();
+        for (int i = 0; i < 20; i++) {
+            expected.step();
+        }
+
+        SimulationSnapshot snapshot = expected.snapshot();
+        Simulation fork = snapshot.restore();
+        for (int i = 0; i < 30; i++) {
+            fork.step();
+        }
+
+        assertEquals(20, expected.getStepCount(), "Stepping a fork must not affect the original simulation.");
+        assertRunsIdentically(expected, snapshot.restore());
+    }
+
+    @Test
+    void testSimulationWithWorkloadRejected() {
+        Simulation simulation = TrafficWorkload.createSimulation(1, 2, 10, TrafficProfile.upPeak(10, 1));
+
+        assertThrows(IllegalStateException.class, () -> simulation.checkpoint(tempDir.resolve("checkpoint.bin")),
+                "Workloads can not be stored, so their simulations must not be checkpointed.");
+    }
+
+    @Test
+    void testCorruptFileRejected() throws IOException {
+        Path path = tempDir.resolve("checkpoint.bin");
+        Files.write(path, new byte[64]);
+
+        assertThrows(IllegalArgumentException.class, () -> Simulation.resume(path),
+                "Files that are not checkpoints must be rejected.");
+    }
+
+    private static void assertRunsIdentically(Simulation expected, Simulation actual) {
+        while (!expected.isDone()) {
+            assertEquals(DifferentialHarness.fingerprint(expected), DifferentialHarness.fingerprint(actual),
+                    "The resumed simulation is supposed to be in the same state as the original one, at step "
+                            + expected.getStepCount());
+            expected.step();
+            actual.step();
+        }
+        assertTrue(actual.isDone(), "The resumed simulation is supposed to finish together with the original one.");
+        assertEquals(expected.getStepCount(), actual.getStepCount());
+        for (Human.State state : Human.State.values()) {
+            assertEquals(expected.getAverageTimePercentageSpendForState(state),
+                    actual.getAverageTimePercentageSpendForState(state),
+                    "Statistics of the resumed simulation are supposed to match the original ones for " + state);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+import org.junit.jupiter.api.Test;
+import org.togetherjava.event.elevator.elevators.Elevator;
+import org.togetherjava.event.elevator.humans.Human;
+import org.togetherjava.event.elevator.simulation.Simulation;
+import org.togetherjava.event.elevator.simulation.SimulationEvent;
+import org.togetherjava.event.elevator.simulation.SimulationEventPublisher;
+import org.togetherjava.event.elevator.simulation.SimulationEventPublisher.BackpressurePolicy;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class SimulationEventPublisherTest {
+    @Test
+    void testAllEventsDelivered() throws InterruptedException {
+        Simulation simulation = Simulation.createSimpleSimulation();
+        CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+
+        try (SimulationEventPublisher publisher = new SimulationEventPublisher(1_000, BackpressurePolicy.BLOCK)) {
+            simulation.publishEvents(publisher);
+            publisher.subscribe(subscriber);
+            simulation.startAndExecuteUntilDone(500);
+        }
+
+        assertTrue(subscriber.completed.await(10, TimeUnit.SECONDS), "Closing the publisher must complete its subscribers.");
+        long stepEvents = subscriber.events.stream().filter(SimulationEvent.StepCompleted.class::isInstance).count();
+        long arrivedEvents = subscriber.events.stream().filter(SimulationEvent.HumanArrived.class::isInstance).count();
+        assertEquals(simulation.getStepCount(), stepEvents, "Every step is supposed to be published.");
+        assertEquals(simulation.getHumans().size(), arrivedEvents, "Every arrival is supposed to be published.");
+        assertTrue(subscriber.events.stream().anyMatch(SimulationEvent.ElevatorDispatched.class::isInstance));
+        assertTrue(subscriber.events.stream().anyMatch(SimulationEvent.HumanBoarded.class::isInstance));
+    }
+
+    @Test
+    void testTransferBoardingReportsTheFloorOfTheLeg() throws InterruptedException {
+        // Low zone 1-10 and high zone 10-20, changing elevators at floor 10
+        Simulation simulation = new Simulation(List.of(new Elevator(1, 10, 1), new Elevator(10, 11, 20)),
+                List.of(new Human(3, 15)));
+        CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+
+        try (SimulationEventPublisher publisher = new SimulationEventPublisher(1_000, BackpressurePolicy.BLOCK)) {
+            simulation.publishEvents(publisher);
+            publisher.subscribe(subscriber);
+            simulation.startAndExecuteUntilDone(500);
+        }
+
+        assertTrue(subscriber.completed.await(10, TimeUnit.SECONDS), "Closing the publisher must complete its subscribers.");
+        List<Integer> boardingFloors = subscriber.events.stream()
+                .filter(SimulationEvent.HumanBoarded.class::isInstance)
+                .map(event -> ((SimulationEvent.HumanBoarded) event).startingFloor())
+                .toList();
+        assertEquals(List.of(3, 10), boardingFloors,
+                "Each leg is supposed to be boarded at its own starting floor, the second one at the sky lobby.");
+    }
+
+    @Test
+    void testDropKeepsOldestEvents() {
+        List<SimulationEvent> events = runWithLaggingSubscriber(BackpressurePolicy.DROP, 2);
+
+        assertEquals(2, events.size(), "A lagging subscriber must not receive more events than fit its buffer.");
+        assertEquals(0, events.getFirst().step(), "Dropping must keep the oldest events.");
+    }
+
+    @Test
+    void testConflateSkipsStepsButKeepsOtherEvents() throws InterruptedException {
+        List<String> otherEvents = otherEvents(runWithPromptSubscriber());
+        // Room for all other events and a single step
+        List<SimulationEvent> events = runWithLaggingSubscriber(BackpressurePolicy.CONFLATE, otherEvents.size() + 1);
+
+        assertEquals(otherEvents, otherEvents(events), "Conflating must only skip steps, never the other events.");
+        SimulationEvent last = events.getLast();
+        assertInstanceOf(SimulationEvent.StepCompleted.class, last, "Conflating must keep the latest step.");
+        assertEquals(0, ((SimulationEvent.StepCompleted) last).humansTraveling(),
+                "Conflating must keep the latest state, in which all humans arrived.");
+    }
+
+    @Test
+    void testConflateDropsNewEventsIfNoStepIsBuffered() {
+        List<SimulationEvent> events = runWithLaggingSubscriber(BackpressurePolicy.CONFLATE, 1);
+
+        assertEquals(1, events.size(), "A lagging subscriber must not receive more events than fit its buffer.");
+        assertFalse(events.getFirst() instanceof SimulationEvent.StepCompleted,
+                "The first event is not a step, so it is supposed to be kept instead of the later ones.");
+    }
+
+    @Test
+    void testInvalidRequestIsSignaledByTheDrain() throws InterruptedException {
+        Simulation simulation = Simulation.createSimpleSimulation();
+        CollectingSubscriber subscriber = new CollectingSubscriber(0);
+
+        try (SimulationEventPublisher publisher = new SimulationEventPublisher(1_000, BackpressurePolicy.DROP)) {
+            simulation.publishEvents(publisher);
+            publisher.subscribe(subscriber);
+            subscriber.subscription.request(0);
+
+            assertTrue(subscriber.failed.await(10, TimeUnit.SECONDS), "A non-positive request must signal an error.");
+            assertInstanceOf(IllegalArgumentException.class, subscriber.error);
+            assertNotSame(Thread.currentThread(), subscriber.errorThread,
+                    "The error must be signaled by the drain, not on the thread making the request.");
+            assertFalse(publisher.hasSubscribers(), "A failed subscription is supposed to be removed.");
+        }
+    }
+
+    /**
+     * The events that are not steps, by type and step, as elevator IDs differ between simulations.
+     */
+    private static List<String> otherEvents(List<SimulationEvent> events) {
+        return events.stream()
+                .filter(event -> !(event instanceof SimulationEvent.StepCompleted))
+                .map(event -> event.getClass().getSimpleName() + "@" + event.step())
+                .toList();
+    }
+
+    private static List<SimulationEvent> runWithPromptSubscriber() {
+        Simulation simulation = Simulation.createSimpleSimulation();
+        CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+
+        try (SimulationEventPublisher publisher = new SimulationEventPublisher(1, BackpressurePolicy.DROP,
+                Runnable::run)) {
+            simulation.publishEvents(publisher);
+            publisher.subscribe(subscriber);
+            simulation.startAndExecuteUntilDone(500);
+
+            assertEquals(0, publisher.getDroppedEvents(), "A subscriber consuming on the spot is not supposed to lag.");
+        }
+        return subscriber.events;
+    }
+
+    private static List<SimulationEvent> runWithLaggingSubscriber(BackpressurePolicy policy, int bufferCapacity) {
+        Simulation simulation = Simulation.createSimpleSimulation();
+        CollectingSubscriber subscriber = new CollectingSubscriber(0);
+
+        // Delivers on the calling thread, so nothing is consumed before the subscriber requests it
+        try (SimulationEventPublisher publisher = new SimulationEventPublisher(bufferCapacity, policy,
+                Runnable::run)) {
+            simulation.publishEvents(publisher);
+            publisher.subscribe(subscriber);
+            simulation.startAndExecuteUntilDone(500);
+
+            assertTrue(publisher.getDroppedEvents() > 0, "A lagging subscriber is supposed to miss events.");
+            subscriber.subscription.request(Long.MAX_VALUE);
+        }
+        return subscriber.events;
+    }
+
+    private static final class CollectingSubscriber implements Flow.Subscriber<SimulationEvent> {
+        private final long initialDemand;
+        private final List<SimulationEvent> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private final CountDownLatch failed = new CountDownLatch(1);
+        private Flow.Subscription subscription;
+        private volatile Throwable error;
+        private volatile Thread errorThread;
+
+        CollectingSubscriber(long initialDemand) {
+            this.initialDemand = initialDemand;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialDemand > 0) {
+                subscription.request(initialDemand);
+            }
+        }
+
+        @Override
+        public void onNext(SimulationEvent item) {
+            events.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            errorThread = Thread.currentThread();
+            failed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+}
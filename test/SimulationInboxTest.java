@@ -0,0 +1,152 @@
+import org.junit.jupiter.api.Test;
+import org.togetherjava.event.elevator.elevators.Elevator;
+import org.togetherjava.event.elevator.elevators.TravelDirection;
+import org.togetherjava.event.elevator.humans.Human;
+import org.togetherjava.event.elevator.simulation.Simulation;
+import org.togetherjava.event.elevator.simulation.SimulationInbox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class SimulationInboxTest {
+    private static final int PRODUCERS = 4;
+    private static final int HUMANS_PER_PRODUCER = 2_000;
+    private static final int CLOSING_ROUNDS = 50;
+
+    @Test
+    void testHumansFromManyThreadsArrive() throws InterruptedException {
+        Simulation simulation = new Simulation(List.of(new Elevator(1, 20, 1), new Elevator(1, 20, 20)), List.of());
+        SimulationInbox inbox = simulation.openInbox();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        for (int producer = 0; producer < PRODUCERS; producer++) {
+            int firstFloor = 1 + producer;
+            producers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < HUMANS_PER_PRODUCER; i++) {
+                    inbox.submitHuman(new Human(firstFloor, 1 + (firstFloor + i) % 20));
+                }
+            }));
+        }
+
+        simulation.start();
+        start.countDown();
+        while (producers.stream().anyMatch(Thread::isAlive)) {
+            simulation.step();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        inbox.close();
+        while (!simulation.isDone()) {
+            assertTrue(simulation.getStepCount() < 1_000_000, "The simulation is supposed to finish eventually.");
+            simulation.step();
+        }
+
+        assertEquals(PRODUCERS * HUMANS_PER_PRODUCER, simulation.getAmountOfHumans(),
+                "Every submitted human is supposed to join the simulation exactly once.");
+        assertTrue(simulation.getHumans().stream().allMatch(human -> human.getCurrentState() == Human.State.ARRIVED));
+    }
+
+    @Test
+    void testClosingWhileSubmittingLosesNothing() throws InterruptedException {
+        for (int round = 0; round < CLOSING_ROUNDS; round++) {
+            Simulation simulation = new Simulation(List.of(new Elevator(1, 20, 1), new Elevator(1, 20, 20)), List.of());
+            SimulationInbox inbox = simulation.openInbox();
+            AtomicInteger accepted = new AtomicInteger();
+            CountDownLatch submitting = new CountDownLatch(PRODUCERS);
+            List<Thread> producers = new ArrayList<>();
+            for (int producer = 0; producer < PRODUCERS; producer++) {
+                producers.add(Thread.ofPlatform().start(() -> {
+                    try {
+                        // Humans already at their destination keep the simulation short
+                        for (int i = 0; i < HUMANS_PER_PRODUCER; i++) {
+                            inbox.submitHuman(new Human(1 + i % 20, 1 + i % 20));
+                            accepted.incrementAndGet();
+                            if (i == 0) {
+                                submitting.countDown();
+                            }
+                        }
+                    } catch (IllegalStateException e) {
+                        // Closed, all previous submissions were accepted
+                    }
+                }));
+            }
+
+            simulation.start();
+            submitting.await();
+            // Closes while the producers are most likely still submitting
+            inbox.close();
+            while (!simulation.isDone()) {
+                simulation.step();
+            }
+            for (Thread producer : producers) {
+                producer.join();
+            }
+
+            assertEquals(accepted.get(), simulation.getAmountOfHumans(),
+                    "Every accepted submission is supposed to join the simulation, even when closing concurrently.");
+        }
+    }
+
+    @Test
+    void testHallCallMovesElevator() {
+        Elevator elevator = new Elevator(1, 10, 1);
+        Simulation simulation = new Simulation(List.of(elevator), List.of());
+        SimulationInbox inbox = simulation.openInbox();
+        simulation.start();
+
+        inbox.submitHallCall(6, TravelDirection.DOWN);
+        assertEquals(1, elevator.getCurrentFloor(), "Submissions are supposed to wait for the next step.");
+        for (int i = 0; i < 5; i++) {
+            simulation.step();
+        }
+
+        assertEquals(6, elevator.getCurrentFloor(), "The hall call is supposed to send the elevator to its floor.");
+        assertFalse(simulation.isDone(), "The simulation is not done before its inbox is closed.");
+        inbox.close();
+        assertTrue(simulation.isDone());
+    }
+
+    @Test
+    void testHallCallsBetweenZonesAreRejected() {
+        // Floors 6 to 9 are served by neither elevator
+        Elevator low = new Elevator(1, 5, 1);
+        Elevator high = new Elevator(10, 11, 20);
+        Simulation simulation = new Simulation(List.of(low, high), List.of());
+        SimulationInbox inbox = simulation.openInbox();
+        simulation.start();
+
+        assertThrows(IllegalArgumentException.class, () -> inbox.submitHallCall(7, TravelDirection.UP),
+                "Hall calls to floors in a gap between zones are supposed to be rejected by the caller.");
+        inbox.submitHallCall(5, TravelDirection.UP);
+        inbox.submitHallCall(10, TravelDirection.DOWN);
+        for (int i = 0; i < 10; i++) {
+            simulation.step();
+        }
+
+        assertEquals(5, low.getCurrentFloor(), "The low zone is supposed to serve the call of its top floor.");
+        assertEquals(10, high.getCurrentFloor(), "The high zone is supposed to serve the call of its lowest floor.");
+    }
+
+    @Test
+    void testClosedInboxRejectsSubmissions() {
+        Simulation simulation = new Simulation(List.of(new Elevator(1, 10, 1)), List.of());
+        SimulationInbox inbox = simulation.openInbox();
+
+        inbox.close();
+
+        assertThrows(IllegalStateException.class, () -> inbox.submitHuman(new Human(1, 2)));
+        assertThrows(IllegalArgumentException.class, () -> simulation.openInbox().submitHallCall(11, TravelDirection.UP),
+                "Hall calls to floors that are not served are supposed to be rejected.");
+    }
+}
@@ -0,0 +1,103 @@
+import org.junit.jupiter.api.Test;
+import org.togetherjava.event.elevator.humans.Human;
+import org.togetherjava.event.elevator.simulation.Simulation;
+import org.togetherjava.event.elevator.simulation.SimulationProgress;
+import org.togetherjava.event.elevator.simulation.SimulationResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class SimulationRunAsyncTest {
+    @Test
+    void testResultMatchesBlockingRun() throws ExecutionException, InterruptedException {
+        Simulation blocking = Simulation.createRandomSimulation(2, 20, 1_000, 50);
+        blocking.startAndExecuteUntilDone(100_000);
+
+        SimulationResult result;
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            result = Simulation.createRandomSimulation(2, 20, 1_000, 50).runAsync(100_000, executor).get();
+        }
+
+        assertEquals(SimulationResult.Outcome.DONE, result.outcome());
+        assertEquals(blocking.getStepCount(), result.steps(), "Running asynchronously is not supposed to change steps.");
+        assertEquals(1_000, result.humans());
+        assertEquals(0, result.humansTraveling(), "Everyone is supposed to have arrived.");
+        SimulationResult.Percentiles waiting = result.stepsPerState().get(Human.State.WAITING_FOR_ELEVATOR);
+        assertEquals(blocking.getStepsForStatePercentile(Human.State.WAITING_FOR_ELEVATOR, 99), waiting.p99());
+        assertEquals(blocking.getStepsForStatePercentile(Human.State.WAITING_FOR_ELEVATOR, 100), waiting.max());
+    }
+
+    @Test
+    void testStepLimitEndsRunWithoutFailing() throws ExecutionException, InterruptedException {
+        SimulationResult result;
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            result = Simulation.createRandomSimulation(2, 20, 1_000, 50).runAsync(10, executor).get();
+        }
+
+        assertEquals(SimulationResult.Outcome.STEP_LIMIT_REACHED, result.outcome());
+        assertEquals(10, result.steps());
+        assertTrue(result.humansTraveling() > 0, "Not everyone can arrive within 10 steps.");
+    }
+
+    @Test
+    void testProgressReportedAtInterval() throws ExecutionException, InterruptedException {
+        List<SimulationProgress> progress = new CopyOnWriteArrayList<>();
+        SimulationResult result;
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            result = Simulation.createRandomSimulation(2, 20, 1_000, 50)
+                    .runAsync(100_000, executor, 10, progress::add)
+                    .get();
+        }
+
+        assertEquals(result.steps() / 10, progress.size(), "Progress is supposed to be reported every 10 steps.");
+        for (int i = 0; i < progress.size(); i++) {
+            assertEquals(10L * (i + 1), progress.get(i).steps());
+        }
+        assertTrue(progress.getFirst().humansTraveling() >= progress.getLast().humansTraveling(),
+                "Humans are only supposed to arrive over time, but got: " + progress);
+    }
+
+    @Test
+    void testCancelledRunStops() throws InterruptedException {
+        Simulation simulation = Simulation.createRandomSimulation(3, 100, 100_000, 100);
+        CountDownLatch progressed = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            CompletableFuture<SimulationResult> result = simulation.runAsync(200_000, executor, 1,
+                    progress -> progressed.countDown());
+            assertTrue(progressed.await(30, TimeUnit.SECONDS), "The run is supposed to make progress.");
+
+            assertTrue(result.cancel(true), "A running simulation is supposed to be cancellable.");
+            assertThrows(CancellationException.class, result::join);
+        }
+        // Closing the executor waited for the last slice, so the simulation is not stepped anymore
+        long stepsAfterCancelling = simulation.getStepCount();
+        assertFalse(simulation.isDone(), "The simulation is supposed to have stopped before it was done.");
+        Thread.sleep(50);
+        assertEquals(stepsAfterCancelling, simulation.getStepCount(), "A cancelled run is not supposed to step.");
+    }
+
+    @Test
+    void testManySimulationsShareOneThread() {
+        List<CompletableFuture<SimulationResult>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            for (int seed = 0; seed < 20; seed++) {
+                results.add(Simulation.createRandomSimulation(seed, 5, 50, 10).runAsync(100_000, executor));
+            }
+            CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).join();
+        }
+
+        for (CompletableFuture<SimulationResult> result : results) {
+            assertEquals(SimulationResult.Outcome.DONE, result.join().outcome());
+        }
+    }
+}
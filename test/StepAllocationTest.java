@@ -0,0 +1,36 @@
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.Test;
+import org.togetherjava.event.elevator.simulation.Simulation;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+final class StepAllocationTest {
+    @Test
+    void testSteadyStateStepDoesNotAllocate() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "The JVM can not measure allocations.");
+
+        // An identical run first lets the JIT compile the step and see its rare branches. Otherwise, a compiled
+        // method can be deoptimized inside the measured steps, and the interpreter resuming it allocates.
+        Simulation.createRandomSimulation(1, 3, 2_000, 100).startAndExecuteUntilDone(100_000);
+
+        Simulation simulation = Simulation.createRandomSimulation(1, 3, 2_000, 100);
+        simulation.start();
+        // Lets the request arrays of the elevators grow to their final size
+        for (int i = 0; i < 100; i++) {
+            simulation.step();
+        }
+
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 200; i++) {
+            simulation.step();
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        assertFalse(simulation.isDone(), "The simulation is supposed to still be running while measuring.");
+        assertEquals(0, allocated, "Stepping a running simulation is not supposed to allocate any objects.");
+    }
+}
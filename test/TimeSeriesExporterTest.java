@@ -0,0 +1,116 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.togetherjava.event.elevator.elevators.Elevator;
+import org.togetherjava.event.elevator.simulation.Simulation;
+import org.togetherjava.event.elevator.simulation.TimeSeriesExporter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class TimeSeriesExporterTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testCsvHasALinePerStep() throws IOException {
+        Simulation simulation = Simulation.createSimpleSimulation();
+        Path path = tempDir.resolve("series.csv");
+
+        run(simulation, path, TimeSeriesExporter.Format.CSV, 1);
+
+        List<String> lines = Files.readAllLines(path);
+        assertEquals("step,arrivals," + String.join(",", List.of("waiting_floor_1", "waiting_floor_2",
+                        "waiting_floor_3", "waiting_floor_4", "waiting_floor_5", "waiting_floor_6", "waiting_floor_7",
+                        "waiting_floor_8", "waiting_floor_9", "waiting_floor_10"))
+                        + ",elevator_0_floor,elevator_1_floor,elevator_0_riders,elevator_1_riders"
+                        + ",elevator_0_floor_requests,elevator_1_floor_requests",
+                lines.getFirst(), "The header is supposed to name a column per series.");
+        assertEquals(simulation.getStepCount() + 2, lines.size(), "Every step is supposed to have a line.");
+
+        String[] start = lines.get(1).split(",");
+        assertEquals("0", start[0], "The first sample is supposed to be taken right after the start.");
+        long arrivals = lines.stream().skip(1).mapToLong(line -> Long.parseLong(line.split(",")[1])).sum();
+        assertEquals(5, arrivals, "All humans are supposed to arrive exactly once.");
+        String[] end = lines.getLast().split(",");
+        for (int column = 2; column < end.length; column++) {
+            if (column == 12 || column == 13) {
+                continue; // The floors of the elevators
+            }
+            assertEquals("0", end[column], "Nobody is supposed to wait, ride or request at the end.");
+        }
+    }
+
+    @Test
+    void testBinaryIsColumnar() throws IOException {
+        Simulation simulation = Simulation.createRandomSimulation(2, 20, 1_000, 50);
+        Path path = tempDir.resolve("series.bin");
+
+        run(simulation, path, TimeSeriesExporter.Format.BINARY, 10);
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        assertEquals(0x454C_5453, buffer.getInt(), "The file is supposed to start with the magic number.");
+        assertEquals(1, buffer.getInt());
+        int minFloor = buffer.getInt();
+        int floors = buffer.getInt();
+        int elevators = buffer.getInt();
+        assertEquals(1, minFloor);
+        assertEquals(50, floors);
+        assertEquals(20, elevators);
+        assertEquals(10, buffer.getInt(), "The header is supposed to contain the sample interval.");
+
+        long arrivals = 0;
+        long lastStep = -1;
+        int samples = 0;
+        int[] lastFloors = new int[elevators];
+        while (buffer.hasRemaining()) {
+            int blockSamples = buffer.getInt();
+            for (int sample = 0; sample < blockSamples; sample++) {
+                long step = buffer.getLong();
+                assertTrue(step > lastStep, "Steps are supposed to increase.");
+                lastStep = step;
+            }
+            for (int sample = 0; sample < blockSamples; sample++) {
+                arrivals += buffer.getInt();
+            }
+            buffer.position(buffer.position() + floors * blockSamples * Integer.BYTES);
+            for (int elevator = 0; elevator < elevators; elevator++) {
+                for (int sample = 0; sample < blockSamples; sample++) {
+                    lastFloors[elevator] = buffer.getInt();
+                }
+            }
+            buffer.position(buffer.position() + 2 * elevators * blockSamples * Integer.BYTES);
+            samples += blockSamples;
+        }
+
+        assertEquals(1_000, arrivals, "All humans are supposed to arrive exactly once.");
+        assertEquals(simulation.getStepCount(), lastStep, "The last step is supposed to be sampled on closing.");
+        assertEquals((simulation.getStepCount() + 9) / 10 + 1, samples, "Every tenth step is supposed to be sampled.");
+        for (int i = 0; i < elevators; i++) {
+            assertEquals(simulation.getElevators().get(i).getCurrentFloor(), lastFloors[i],
+                    "The floor series are supposed to end at the final floors of the elevators.");
+        }
+    }
+
+    @Test
+    void testInvalidIntervalRejected() {
+        Simulation simulation = new Simulation(List.of(new Elevator(1, 5, 1)), List.of());
+        assertThrows(IllegalArgumentException.class, () -> new TimeSeriesExporter(simulation,
+                tempDir.resolve("series.csv"), TimeSeriesExporter.Format.CSV, 0));
+    }
+
+    private static void run(Simulation simulation, Path path, TimeSeriesExporter.Format format, int interval) {
+        try (TimeSeriesExporter exporter = new TimeSeriesExporter(simulation, path, format, interval)) {
+            simulation.start();
+            exporter.sample();
+            while (!simulation.isDone()) {
+                simulation.step();
+                exporter.sample();
+            }
+        }
+    }
+}
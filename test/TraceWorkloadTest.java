@@ -0,0 +1,93 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.togetherjava.event.elevator.elevators.Elevator;
+import org.togetherjava.event.elevator.humans.Human;
+import org.togetherjava.event.elevator.scenarios.TraceWorkload;
+import org.togetherjava.event.elevator.simulation.Simulation;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class TraceWorkloadTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testCsvCallsArriveAtTheirStep() throws IOException {
+        Path path = tempDir.resolve("calls.csv");
+        Files.writeString(path, """
+                timestamp,from,to
+                1000,1,5
+                1500,3,1
+
+                3000, 2 , 4\r
+                3999,4,2""");
+
+        List<String> arrivals = new ArrayList<>();
+        try (TraceWorkload workload = new TraceWorkload(path, 1000)) {
+            for (long step = 0; !workload.isExhausted(); step++) {
+                long currentStep = step;
+                workload.injectArrivals(step, human -> arrivals.add(
+                        currentStep + ":" + human.getStartingFloor() + "->" + human.getDestinationFloor()));
+            }
+        }
+
+        assertEquals(List.of("0:1->5", "0:3->1", "2:2->4", "2:4->2"), arrivals,
+                "Calls are supposed to arrive at the step of their timestamp, relative to the first call.");
+    }
+
+    @Test
+    void testBinaryTraceReplayed() {
+        assertBinaryTraceReplayed(20_000);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "elevator.slowTests", matches = "true",
+            disabledReason = "Takes about half a minute, run with -Delevator.slowTests=true")
+    void testLargeBinaryTraceReplayed() {
+        assertBinaryTraceReplayed(200_000);
+    }
+
+    private void assertBinaryTraceReplayed(int calls) {
+        Path path = tempDir.resolve("calls.bin");
+        try (TraceWorkload.Writer writer = new TraceWorkload.Writer(path)) {
+            for (int i = 0; i < calls; i++) {
+                writer.writeCall(i / 20, 1 + i % 10, 1 + (i * 7 + 3) % 10);
+            }
+        }
+
+        Simulation simulation = TraceWorkload.createSimulation(
+                List.of(new Elevator(1, 10, 1), new Elevator(1, 10, 10)), path, 1);
+        simulation.startAndExecuteUntilDone(100_000);
+
+        assertEquals(calls, simulation.getAmountOfHumans(), "Every call of the trace is supposed to arrive.");
+        assertTrue(simulation.getHumans().stream().allMatch(human -> human.getCurrentState() == Human.State.ARRIVED));
+        assertTrue(simulation.getStepCount() >= calls / 20, "The last call only arrives at step " + calls / 20);
+    }
+
+    @Test
+    void testUnorderedCallsRejected() throws IOException {
+        Path path = tempDir.resolve("calls.csv");
+        Files.writeString(path, "5,1,2\n4,2,1\n");
+
+        assertThrows(IllegalArgumentException.class, () -> new TraceWorkload(path, 1).injectArrivals(0, human -> {
+        }));
+    }
+
+    @Test
+    void testMalformedLineRejected() throws IOException {
+        Path path = tempDir.resolve("calls.csv");
+        Files.writeString(path, "1,2,3\n2;3;4\n");
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> new TraceWorkload(path, 1).injectArrivals(0, human -> {
+                }));
+        assertTrue(exception.getMessage().contains("line 2"), "The message should point to the line: " + exception);
+    }
+}
@@ -0,0 +1,41 @@
+import org.junit.jupiter.api.Test;
+import org.togetherjava.event.elevator.humans.Human;
+import org.togetherjava.event.elevator.scenarios.TrafficProfile;
+import org.togetherjava.event.elevator.scenarios.TrafficWorkload;
+import org.togetherjava.event.elevator.simulation.Simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class TrafficWorkloadTest {
+    @Test
+    void testUpPeakStartsAtLobby() {
+        TrafficWorkload workload = new TrafficWorkload(TrafficProfile.upPeak(1_000, 2), 20, 1);
+        List<Human> humans = new ArrayList<>();
+        for (long step = 0; !workload.isExhausted(); step++) {
+            workload.injectArrivals(step, humans::add);
+        }
+
+        long fromLobby = humans.stream().filter(human -> human.getStartingFloor() == 1).count();
+        assertTrue(humans.size() > 1_500 && humans.size() < 2_500,
+                "An arrival rate of 2 over 1000 steps should add roughly 2000 humans, but added " + humans.size());
+        assertTrue(fromLobby > humans.size() * 3 / 4,
+                "During the up-peak, most humans are supposed to start at the lobby.");
+    }
+
+    @Test
+    void testSimulationRunsUntilWorkloadExhausted() {
+        TrafficProfile profile = TrafficProfile.officeDay(100, 0.5);
+        Simulation simulation = TrafficWorkload.createSimulation(7, 3, 15, profile);
+
+        assertFalse(simulation.isDone(),
+                "A simulation must not be done while its workload still adds humans.");
+        assertDoesNotThrow(() -> simulation.startAndExecuteUntilDone(10_000),
+                "A simulation driven by a traffic workload was aborted because it could not finish in time.");
+        assertTrue(simulation.getStepCount() >= profile.durationSteps(),
+                "A simulation must run at least as long as its workload adds humans.");
+        assertFalse(simulation.getHumans().isEmpty());
+    }
+}
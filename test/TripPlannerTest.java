@@ -0,0 +1,77 @@
+import org.junit.jupiter.api.Test;
+import org.togetherjava.event.elevator.elevators.Elevator;
+import org.togetherjava.event.elevator.elevators.TripPlanner;
+import org.togetherjava.event.elevator.humans.Human;
+import org.togetherjava.event.elevator.simulation.ProgressWatchdog;
+import org.togetherjava.event.elevator.simulation.Simulation;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class TripPlannerTest {
+    @Test
+    void testLegsThroughStackedZones() {
+        // Low zone 1-20, mid zone 20-40 and high zone 40-60, sharing their sky lobbies
+        TripPlanner planner = new TripPlanner(List.of(new Elevator(1, 20, 1), new Elevator(20, 21, 20),
+                new Elevator(40, 21, 40), new Elevator(1, 20, 5)));
+
+        assertTrue(planner.isZoned(), "Elevators serving different floors are supposed to form zones.");
+        assertEquals(15, planner.nextLegDestination(3, 15), "Floors of the same zone are supposed to be direct.");
+        assertEquals(20, planner.nextLegDestination(3, 30), "The mid zone is supposed to be reached via floor 20.");
+        assertEquals(40, planner.nextLegDestination(30, 55), "The high zone is supposed to be reached via floor 40.");
+        assertEquals(40, planner.nextLegDestination(55, 10), "Going down, the mid zone is supposed to come first.");
+        assertEquals(2, planner.changesBetween(3, 55), "The lobby is supposed to be two changes below the high zone.");
+        assertEquals(0, planner.changesBetween(30, 25), "Floors of the same zone need no change.");
+    }
+
+    @Test
+    void testChangesClosestToTheDestination() {
+        TripPlanner planner = new TripPlanner(List.of(new Elevator(1, 10, 1), new Elevator(5, 26, 5)));
+
+        assertEquals(10, planner.nextLegDestination(2, 25),
+                "Going up, the highest shared floor is supposed to be the change.");
+        assertEquals(5, planner.nextLegDestination(25, 2),
+                "Going down, the lowest shared floor is supposed to be the change.");
+        assertEquals(8, planner.nextLegDestination(25, 8), "Shared floors are supposed to be reached directly.");
+    }
+
+    @Test
+    void testUnservedAndDisconnectedFloors() {
+        TripPlanner unzoned = new TripPlanner(List.of(new Elevator(1, 10, 1), new Elevator(1, 10, 10)));
+        assertFalse(unzoned.isZoned(), "Elevators serving the same floors are supposed to form a single zone.");
+        assertEquals(7, unzoned.nextLegDestination(2, 7), "Without zones, every trip is supposed to be direct.");
+
+        TripPlanner gap = new TripPlanner(List.of(new Elevator(1, 5, 1), new Elevator(8, 5, 8)));
+        assertThrows(IllegalArgumentException.class, () -> gap.nextLegDestination(2, 10),
+                "Zones not sharing a floor are not supposed to be connected.");
+        assertThrows(IllegalArgumentException.class, () -> gap.nextLegDestination(2, 13),
+                "Floors above the building are not supposed to be served.");
+    }
+
+    @Test
+    void testZonedTowerDeliversEveryone() {
+        Simulation simulation = Simulation.createZonedSimulation(5, 4, 3, 11, 2_000);
+        simulation.start();
+        ProgressWatchdog watchdog = new ProgressWatchdog(simulation);
+        while (!simulation.isDone() && simulation.getStepCount() < 100_000) {
+            simulation.step();
+            watchdog.check();
+
+            for (Human human : simulation.getHumans()) {
+                human.getCurrentEnteredElevatorId().ifPresent(id -> {
+                    Elevator elevator = simulation.getElevators().stream()
+                            .filter(candidate -> candidate.getId() == id)
+                            .findFirst()
+                            .orElseThrow();
+                    assertTrue(elevator.serves(human.getLegDestinationFloor()),
+                            "Humans are supposed to only ride elevators serving their leg: " + human);
+                });
+            }
+        }
+
+        assertTrue(simulation.isDone(), "Everybody is supposed to arrive, changing elevators where needed.");
+        assertTrue(simulation.getHumans().stream().allMatch(human -> human.getCurrentState() == Human.State.ARRIVED),
+                "All humans are supposed to have arrived.");
+    }
+}